@@ -0,0 +1,59 @@
+package com.ucd.bookshop.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Keeps a session's reads on the primary for a while after it writes, until the replicas have caught up with it.
+ * Runs ahead of security, so the user lookup at login is routed the same way.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String LAST_WRITE = ReadYourWritesFilter.class.getName() + ".LAST_WRITE";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReplicaRoutingDataSource.startRequest(wroteRecently(request.getSession(false)));
+        boolean wrote = false;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            wrote = ReplicaRoutingDataSource.endRequest();
+        }
+
+        HttpSession session = request.getSession(false);
+        if (wrote && session != null) {
+            try {
+                session.setAttribute(LAST_WRITE, System.currentTimeMillis());
+            } catch (IllegalStateException e) {
+                // Invalidated during the request e.g. logout
+            }
+        }
+    }
+
+    private boolean wroteRecently(HttpSession session) {
+        if (session == null) {
+            return false;
+        }
+        try {
+            Object lastWrite = session.getAttribute(LAST_WRITE);
+            return lastWrite instanceof Long at && System.currentTimeMillis() - at < window.toMillis();
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+}
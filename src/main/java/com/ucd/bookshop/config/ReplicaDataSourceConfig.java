@@ -0,0 +1,84 @@
+package com.ucd.bookshop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, on when bookshop.datasource.replica-urls lists one or more jdbc urls. Without it the single
+ * auto-configured DataSource is used as before.
+ *
+ * Replicas log in as the primary's user unless bookshop.datasource.replica-username/replica-password are set. For
+ * local testing any second database with the same schema works e.g. another H2 or MySQL instance.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bookshop.datasource", name = "replica-urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            DataSourceProperties properties,
+            @Value("${bookshop.datasource.replica-urls}") List<String> replicaUrls,
+            @Value("${bookshop.datasource.replica-username:#{null}}") String replicaUsername,
+            @Value("${bookshop.datasource.replica-password:#{null}}") String replicaPassword,
+            @Value("${bookshop.datasource.replica-pool-size:10}") int replicaPoolSize,
+            @Value("${bookshop.datasource.replica-max-lag:PT1S}") Duration maxLag) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url.strip());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setUsername(replicaUsername != null ? replicaUsername : properties.determineUsername());
+            replica.setPassword(replicaPassword != null ? replicaPassword : properties.determinePassword());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // Connect on first use, a replica that is down at startup is left out of rotation until it is back
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLag);
+    }
+
+    /**
+     * The DataSource JPA and JdbcTemplate use
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Long enough to cover the max lag and a lag check
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${bookshop.datasource.read-your-writes-window:PT5S}") Duration window) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,196 @@
+package com.ucd.bookshop.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to a replica, everything else to the primary.
+ *
+ * Replicas are taken in turn, skipping any that are down or further behind the primary than the max lag; with none
+ * left reads fall back to the primary. Once a request has opened a read-write transaction its later reads stay on
+ * the primary too, so a page shown straight after a write e.g. the cart after addBookToCart, shows that write.
+ *
+ * @Notes must sit behind a LazyConnectionDataSourceProxy, so the connection is taken once the transaction is marked
+ * read-only rather than at its start.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    /** Routing of the current web request, null outside one */
+    private static final ThreadLocal<RequestRouting> currentRequest = new ThreadLocal<>();
+
+    /** Set while reads must see the latest commit, @see onPrimary */
+    private static final ThreadLocal<Boolean> primaryOnly = new ThreadLocal<>();
+
+    private final Map<String, DataSource> replicas;
+
+    private final Duration maxLag;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /** Replicas within the max lag at the last check */
+    private volatile List<String> usableReplicas = List.of();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag) {
+        this.maxLag = maxLag;
+        this.replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.put("replica-" + i, replicas.get(i));
+        }
+
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicas();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        RequestRouting request = currentRequest.get();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (request != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                request.wrote = true;
+            }
+            return PRIMARY;
+        }
+        if (primaryOnly.get() != null || (request != null && (request.pinned || request.wrote))) {
+            return PRIMARY;
+        }
+
+        List<String> usable = usableReplicas;
+        if (usable.isEmpty()) {
+            return PRIMARY;
+        }
+        return usable.get(Math.floorMod(nextReplica.getAndIncrement(), usable.size()));
+    }
+
+    /**
+     * Measure how far behind each replica is, taking it out of rotation when over the max lag or unreachable
+     */
+    @Scheduled(fixedDelayString = "${bookshop.datasource.replica-check-interval:PT2S}")
+    public void checkReplicas() {
+        List<String> usable = new ArrayList<>();
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            Duration lag = lagOf(replica.getKey(), replica.getValue());
+            boolean wasUsable = usableReplicas.contains(replica.getKey());
+            if (lag != null && lag.compareTo(maxLag) <= 0) {
+                usable.add(replica.getKey());
+                if (!wasUsable) {
+                    logger.info("{} back in rotation", replica.getKey());
+                }
+            } else if (wasUsable) {
+                logger.warn("{} out of rotation, lag {} over max {}", replica.getKey(), lag, maxLag);
+            }
+        }
+        usableReplicas = List.copyOf(usable);
+    }
+
+    /**
+     * Seconds_Behind_Source on MySQL, null when replication is stopped or the replica cannot be reached. Other
+     * databases e.g. a second H2 for local testing, and a MySQL that is not replicating, count as up to date.
+     *
+     * @Notes the replica user needs the REPLICATION CLIENT privilege
+     */
+    private static Duration lagOf(String name, DataSource replica) {
+        try (Connection con = replica.getConnection()) {
+            if (!"MySQL".equalsIgnoreCase(con.getMetaData().getDatabaseProductName())) {
+                return Duration.ZERO;
+            }
+            try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery("SHOW REPLICA STATUS")) {
+                if (!rs.next()) {
+                    return Duration.ZERO;
+                }
+                long seconds = rs.getLong("Seconds_Behind_Source");
+                return rs.wasNull() ? null : Duration.ofSeconds(seconds);
+            }
+        } catch (SQLException e) {
+            logger.warn("{} lag check failed: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    List<String> getUsableReplicas() {
+        return usableReplicas;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * Run reads on the primary even in read-only transactions, for results kept against a version of the data e.g.
+     * a cache filled after a change, which a replica might not have yet
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        if (primaryOnly.get() != null) {
+            return reads.get();
+        }
+        primaryOnly.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            primaryOnly.remove();
+        }
+    }
+
+    /**
+     * Start routing for a web request on this thread
+     *
+     * @param pinned keep every read on the primary e.g. the session wrote moments ago
+     */
+    static void startRequest(boolean pinned) {
+        RequestRouting request = new RequestRouting();
+        request.pinned = pinned;
+        currentRequest.set(request);
+    }
+
+    /**
+     * End routing for the web request on this thread
+     *
+     * @return whether the request opened a read-write transaction
+     */
+    static boolean endRequest() {
+        RequestRouting request = currentRequest.get();
+        currentRequest.remove();
+        return request != null && request.wrote;
+    }
+
+    private static final class RequestRouting {
+
+        private boolean pinned;
+
+        private boolean wrote;
+    }
+}
@@ -0,0 +1,26 @@
+package com.ucd.bookshop.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Enables @Scheduled background jobs e.g. inventory ledger compaction
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * More than one thread, so a long nightly job does not hold up the inventory feed
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${bookshop.scheduling.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("bookshop-scheduling-");
+        return scheduler;
+    }
+}
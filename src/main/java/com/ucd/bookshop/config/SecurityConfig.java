@@ -111,9 +111,11 @@ public class SecurityConfig {
                         .requestMatchers("/v1/web/customers/order", "/v1/web/customers/order/success", "/v1/web/customers/order/cancel").hasRole("CUSTOMER")
                         .requestMatchers(getOpenedResources()).permitAll()
                         .requestMatchers("/v1/web/users/login", "/v1/web/users/register", "/v1/web/users/login2","/v1/web/home").permitAll()
-                        .requestMatchers("/v1/web/access-denied").permitAll()
+                        .requestMatchers("/v1/web/access-denied", "/v1/web/autocomplete").permitAll()
                         .requestMatchers("/css/**", "/js/**", "/images/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
                         .requestMatchers("/v1/api/**").hasRole("ADMIN") // API endpoints require ADMIN role
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // metrics e.g. bookshop.catalog.cache.*
                         .requestMatchers("/admin/**", "/v1/web/books/**").hasRole("ADMIN")
                         .requestMatchers("/customer/**", "/v1/web/customers/**").hasRole("CUSTOMER")
                         .anyRequest().authenticated())
@@ -122,6 +124,7 @@ public class SecurityConfig {
                         .defaultAuthenticationEntryPointFor(
                             apiAuthenticationEntryPoint(), 
                             request -> request.getRequestURI().startsWith("/v1/api/")
+                                    || request.getRequestURI().startsWith("/actuator/")
                         ))
                 .httpBasic(basic -> basic
                         .authenticationEntryPoint(apiAuthenticationEntryPoint()))
@@ -171,7 +174,7 @@ public class SecurityConfig {
                         .requestMatchers("/v1/web/customers/order", "/v1/web/customers/order/success", "/v1/web/customers/order/cancel").hasRole("CUSTOMER")
                         .requestMatchers(getOpenedResources()).permitAll()
                         .requestMatchers("/v1/web/users/login", "/v1/web/users/register", "/v1/web/home").permitAll()
-                        .requestMatchers("/v1/web/access-denied").permitAll()
+                        .requestMatchers("/v1/web/access-denied", "/v1/web/autocomplete").permitAll()
                         .requestMatchers("/css/**", "/js/**", "/images/**").permitAll()
                         .requestMatchers("/v1/api/**").hasRole("ADMIN") // API endpoints require ADMIN role
                         .requestMatchers("/admin/**", "/v1/web/books/**").hasRole("ADMIN")
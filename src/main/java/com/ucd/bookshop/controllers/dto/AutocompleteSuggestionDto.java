@@ -0,0 +1,52 @@
+package com.ucd.bookshop.controllers.dto;
+
+/**
+ * A title or author completing what the customer has typed, with the number of books it covers.
+ */
+public class AutocompleteSuggestionDto {
+
+    public enum Type {
+        TITLE,
+        AUTHOR
+    }
+
+    private String text;
+
+    private Type type;
+
+    private int books;
+
+    public AutocompleteSuggestionDto() {
+        super();
+    }
+
+    public AutocompleteSuggestionDto(String text, Type type, int books) {
+        this.text = text;
+        this.type = type;
+        this.books = books;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public int getBooks() {
+        return books;
+    }
+
+    public void setBooks(int books) {
+        this.books = books;
+    }
+}
@@ -0,0 +1,72 @@
+package com.ucd.bookshop.controllers.dto;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Fields of a book in the API, for sparse fieldsets e.g. fields=id,isbn,copies.
+ *
+ * @Notes id is always returned, so a row can be matched to the book it is for.
+ */
+public enum BookField {
+    ID(BookWithInventoryDto::getId),
+    TITLE(BookWithInventoryDto::getTitle),
+    AUTHOR(BookWithInventoryDto::getAuthor),
+    ISBN(BookWithInventoryDto::getIsbn),
+    PRICE(BookWithInventoryDto::getPrice),
+    YEAR(BookWithInventoryDto::getYear),
+    COPIES(BookWithInventoryDto::getCopies);
+
+    public static final Set<BookField> ALL = Collections.unmodifiableSet(EnumSet.allOf(BookField.class));
+
+    private final Function<BookWithInventoryDto, Object> value;
+
+    BookField(Function<BookWithInventoryDto, Object> value) {
+        this.value = value;
+    }
+
+    /**
+     * Name of the field in JSON and of the Book attribute
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the fields of a comma separated list plus id, ALL when blank, null when a name is not known
+     */
+    public static Set<BookField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+
+        Set<BookField> parsed = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            if (name.isBlank()) {
+                continue;
+            }
+            try {
+                parsed.add(valueOf(name.strip().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return parsed.size() == ALL.size() ? ALL : Collections.unmodifiableSet(parsed);
+    }
+
+    /**
+     * The book as a JSON object of only these fields, in the order of the full book
+     */
+    public static Map<String, Object> project(BookWithInventoryDto book, Set<BookField> fields) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (BookField field : fields) {
+            projected.put(field.getName(), field.value.apply(book));
+        }
+        return projected;
+    }
+}
@@ -0,0 +1,127 @@
+package com.ucd.bookshop.controllers.dto;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Catalog filters and sort order, bound from query parameters.
+ *
+ * @Notes sort is one of newest, price, -price, title, -title, year, -year, a leading - sorts descending.
+ */
+public class BookFilterDto {
+
+    public enum Sort {
+        NEWEST, PRICE, PRICE_DESC, TITLE, TITLE_DESC, YEAR, YEAR_DESC;
+
+        /**
+         * @return the sort for a query parameter, NEWEST when blank, null when unknown
+         */
+        public static Sort parse(String value) {
+            if (value == null || value.isBlank()) {
+                return NEWEST;
+            }
+
+            String name = value.strip().toUpperCase(Locale.ROOT);
+            if (name.startsWith("-")) {
+                name = name.substring(1) + "_DESC";
+            }
+            for (Sort sort : values()) {
+                if (sort.name().equals(name)) {
+                    return sort;
+                }
+            }
+            return null;
+        }
+
+        public boolean isDescending() {
+            return this == NEWEST || name().endsWith("_DESC");
+        }
+
+        /**
+         * The sort as a query parameter, the inverse of parse
+         */
+        public String toParameter() {
+            String name = name().toLowerCase(Locale.ROOT);
+            return name.endsWith("_desc") ? "-" + name.substring(0, name.length() - "_desc".length()) : name;
+        }
+    }
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    private Integer fromYear;
+
+    private Integer toYear;
+
+    private String author;
+
+    private String sort;
+
+    public BookFilterDto() {
+        super();
+    }
+
+    /**
+     * No filter and the default order, the plain catalog
+     */
+    public boolean isUnfiltered() {
+        return minPrice == null && maxPrice == null && fromYear == null && toYear == null
+                && (author == null || author.isBlank()) && getSortOrder() == Sort.NEWEST;
+    }
+
+    /**
+     * The parsed sort, null when sort is not a known value
+     */
+    public Sort getSortOrder() {
+        return Sort.parse(sort);
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Integer getFromYear() {
+        return fromYear;
+    }
+
+    public void setFromYear(Integer fromYear) {
+        this.fromYear = fromYear;
+    }
+
+    public Integer getToYear() {
+        return toYear;
+    }
+
+    public void setToYear(Integer toYear) {
+        this.toYear = toYear;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ucd.bookshop.controllers.dto;
+
+/**
+ * A row of an import that was not written, by its line in the file.
+ */
+public class BookImportErrorDto {
+
+    private long line;
+
+    private String isbn;
+
+    private String message;
+
+    public BookImportErrorDto() {
+        super();
+    }
+
+    public BookImportErrorDto(long line, String isbn, String message) {
+        this.line = line;
+        this.isbn = isbn;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ucd.bookshop.controllers.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a catalog import. Every rejected row is counted, the errors list stops at the first max-errors of them.
+ */
+public class BookImportResultDto {
+
+    private long rows;
+
+    private long imported;
+
+    private long rejected;
+
+    private List<BookImportErrorDto> errors = new ArrayList<>();
+
+    public BookImportResultDto() {
+        super();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<BookImportErrorDto> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<BookImportErrorDto> errors) {
+        this.errors = errors;
+    }
+}
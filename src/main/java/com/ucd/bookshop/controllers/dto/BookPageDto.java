@@ -0,0 +1,44 @@
+package com.ucd.bookshop.controllers.dto;
+
+import java.util.List;
+
+/**
+ * One page of the catalog, newest first.
+ *
+ * @Notes nextCursor is the id to pass as cursor for the following page, null on the last page.
+ */
+public class BookPageDto {
+
+    private List<BookWithInventoryDto> books;
+
+    private Long nextCursor;
+
+    public BookPageDto() {
+        super();
+    }
+
+    public BookPageDto(List<BookWithInventoryDto> books, Long nextCursor) {
+        this.books = books;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<BookWithInventoryDto> getBooks() {
+        return books;
+    }
+
+    public void setBooks(List<BookWithInventoryDto> books) {
+        this.books = books;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
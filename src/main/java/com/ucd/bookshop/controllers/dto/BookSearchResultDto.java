@@ -0,0 +1,75 @@
+package com.ucd.bookshop.controllers.dto;
+
+import java.util.List;
+
+/**
+ * One page of search results, best match first.
+ */
+public class BookSearchResultDto {
+
+    private String query;
+
+    private int page;
+
+    private int size;
+
+    private long total;
+
+    private List<BookWithInventoryDto> books;
+
+    public BookSearchResultDto() {
+        super();
+    }
+
+    public BookSearchResultDto(String query, int page, int size, long total, List<BookWithInventoryDto> books) {
+        this.query = query;
+        this.page = page;
+        this.size = size;
+        this.total = total;
+        this.books = books;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public List<BookWithInventoryDto> getBooks() {
+        return books;
+    }
+
+    public void setBooks(List<BookWithInventoryDto> books) {
+        this.books = books;
+    }
+
+    public boolean hasNext() {
+        return (long) (page + 1) * size < total;
+    }
+}
@@ -1,5 +1,7 @@
 package com.ucd.bookshop.controllers.dto;
 
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -27,7 +29,10 @@ public class BookWithInventoryDto {
     @Size(min = 3, max = 511, message = "ISBN must be between 3 and 511 characters")
     private String isbn;
 
+    // book.price is DECIMAL(5,2)
     @NotNull(message = "Price is required")
+    @DecimalMin(value = "0", message = "Price must not be negative")
+    @Digits(integer = 3, fraction = 2, message = "Price must be at most 999.99, in euro and cent")
     private BigDecimal price;
 
     @NotNull(message = "Year is required")
@@ -52,6 +57,16 @@ public class BookWithInventoryDto {
         this.copies = bookInventory.getCopies();
     }
 
+    public BookWithInventoryDto(BookWithInventoryDto book) {
+        this.id = book.getId();
+        this.title = book.getTitle();
+        this.author = book.getAuthor();
+        this.isbn = book.getIsbn();
+        this.price = book.getPrice();
+        this.year = book.getYear();
+        this.copies = book.getCopies();
+    }
+
     public Long getId() {
         return id;
     }
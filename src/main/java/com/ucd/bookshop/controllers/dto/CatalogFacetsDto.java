@@ -0,0 +1,74 @@
+package com.ucd.bookshop.controllers.dto;
+
+import java.util.List;
+
+/**
+ * Book counts of the whole catalog per author, publication decade, price band and stock status.
+ *
+ * @Notes authors holds the authors with the most books only, see bookshop.facets.max-authors.
+ */
+public class CatalogFacetsDto {
+
+    private List<FacetCountDto> authors;
+
+    private List<FacetCountDto> decades;
+
+    private List<FacetCountDto> priceBands;
+
+    private long inStock;
+
+    private long outOfStock;
+
+    public CatalogFacetsDto() {
+        super();
+    }
+
+    public CatalogFacetsDto(List<FacetCountDto> authors, List<FacetCountDto> decades, List<FacetCountDto> priceBands,
+            long inStock, long outOfStock) {
+        this.authors = authors;
+        this.decades = decades;
+        this.priceBands = priceBands;
+        this.inStock = inStock;
+        this.outOfStock = outOfStock;
+    }
+
+    public List<FacetCountDto> getAuthors() {
+        return authors;
+    }
+
+    public void setAuthors(List<FacetCountDto> authors) {
+        this.authors = authors;
+    }
+
+    public List<FacetCountDto> getDecades() {
+        return decades;
+    }
+
+    public void setDecades(List<FacetCountDto> decades) {
+        this.decades = decades;
+    }
+
+    public List<FacetCountDto> getPriceBands() {
+        return priceBands;
+    }
+
+    public void setPriceBands(List<FacetCountDto> priceBands) {
+        this.priceBands = priceBands;
+    }
+
+    public long getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(long inStock) {
+        this.inStock = inStock;
+    }
+
+    public long getOutOfStock() {
+        return outOfStock;
+    }
+
+    public void setOutOfStock(long outOfStock) {
+        this.outOfStock = outOfStock;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ucd.bookshop.controllers.dto;
+
+/**
+ * One value of a catalog facet with the number of books having it.
+ *
+ * @Notes from and to are the catalog filter bounds selecting the value, e.g. fromYear and toYear of a decade,
+ * null when the value is not a range or the range is open.
+ */
+public class FacetCountDto {
+
+    private String value;
+
+    private String from;
+
+    private String to;
+
+    private long count;
+
+    public FacetCountDto() {
+        super();
+    }
+
+    public FacetCountDto(String value, String from, String to, long count) {
+        this.value = value;
+        this.from = from;
+        this.to = to;
+        this.count = count;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,36 @@
+package com.ucd.bookshop.controllers.dto;
+
+/**
+ * One line of a batch adjustment, delta is the signed number of copies to add to the stock of the book.
+ */
+public class InventoryAdjustmentDto {
+
+    private Long bookId;
+
+    private Long delta;
+
+    public InventoryAdjustmentDto() {
+        super();
+    }
+
+    public InventoryAdjustmentDto(Long bookId, Long delta) {
+        this.bookId = bookId;
+        this.delta = delta;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Long delta) {
+        this.delta = delta;
+    }
+}
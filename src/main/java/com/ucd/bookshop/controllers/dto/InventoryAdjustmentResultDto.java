@@ -0,0 +1,75 @@
+package com.ucd.bookshop.controllers.dto;
+
+/**
+ * Outcome of one line of a batch adjustment, in the order the lines were sent.
+ */
+public class InventoryAdjustmentResultDto {
+
+    public enum Status {
+        APPLIED,
+        BOOK_NOT_FOUND,
+        INVALID
+    }
+
+    private int line;
+
+    private Long bookId;
+
+    private Long delta;
+
+    private Status status;
+
+    private String message;
+
+    public InventoryAdjustmentResultDto() {
+        super();
+    }
+
+    public InventoryAdjustmentResultDto(int line, Long bookId, Long delta, Status status, String message) {
+        this.line = line;
+        this.bookId = bookId;
+        this.delta = delta;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Long delta) {
+        this.delta = delta;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
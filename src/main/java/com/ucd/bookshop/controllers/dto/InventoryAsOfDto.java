@@ -0,0 +1,74 @@
+package com.ucd.bookshop.controllers.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock of a book at a point in time.
+ *
+ * @Notes exact is false when the ledger around that time has been compacted, copies is then the stock at
+ * checkpointAsOf, the nearest earlier checkpoint.
+ */
+public class InventoryAsOfDto {
+
+    private Long bookId;
+
+    private LocalDateTime asOf;
+
+    private Long copies;
+
+    private LocalDateTime checkpointAsOf;
+
+    private boolean exact;
+
+    public InventoryAsOfDto() {
+        super();
+    }
+
+    public InventoryAsOfDto(Long bookId, LocalDateTime asOf, Long copies, LocalDateTime checkpointAsOf, boolean exact) {
+        this.bookId = bookId;
+        this.asOf = asOf;
+        this.copies = copies;
+        this.checkpointAsOf = checkpointAsOf;
+        this.exact = exact;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public void setAsOf(LocalDateTime asOf) {
+        this.asOf = asOf;
+    }
+
+    public Long getCopies() {
+        return copies;
+    }
+
+    public void setCopies(Long copies) {
+        this.copies = copies;
+    }
+
+    public LocalDateTime getCheckpointAsOf() {
+        return checkpointAsOf;
+    }
+
+    public void setCheckpointAsOf(LocalDateTime checkpointAsOf) {
+        this.checkpointAsOf = checkpointAsOf;
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public void setExact(boolean exact) {
+        this.exact = exact;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ucd.bookshop.controllers.dto;
+
+/**
+ * Stock change of one book pushed on the inventory feed, delta is the net change since the previous event.
+ */
+public class InventoryFeedEventDto {
+
+    private Long bookId;
+
+    private Long delta;
+
+    private Long copies;
+
+    public InventoryFeedEventDto() {
+        super();
+    }
+
+    public InventoryFeedEventDto(Long bookId, Long delta, Long copies) {
+        this.bookId = bookId;
+        this.delta = delta;
+        this.copies = copies;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Long delta) {
+        this.delta = delta;
+    }
+
+    public Long getCopies() {
+        return copies;
+    }
+
+    public void setCopies(Long copies) {
+        this.copies = copies;
+    }
+}
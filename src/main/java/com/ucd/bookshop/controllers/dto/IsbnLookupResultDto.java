@@ -0,0 +1,64 @@
+package com.ucd.bookshop.controllers.dto;
+
+/**
+ * Outcome of looking up one scanned ISBN, in the order the ISBNs were sent.
+ */
+public class IsbnLookupResultDto {
+
+    public enum Status {
+        FOUND,
+        NOT_FOUND,
+        INVALID
+    }
+
+    private String isbn;
+
+    private String isbn13;
+
+    private Status status;
+
+    private BookWithInventoryDto book;
+
+    public IsbnLookupResultDto() {
+        super();
+    }
+
+    public IsbnLookupResultDto(String isbn, String isbn13, Status status, BookWithInventoryDto book) {
+        this.isbn = isbn;
+        this.isbn13 = isbn13;
+        this.status = status;
+        this.book = book;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+
+    public String getIsbn13() {
+        return isbn13;
+    }
+
+    public void setIsbn13(String isbn13) {
+        this.isbn13 = isbn13;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public BookWithInventoryDto getBook() {
+        return book;
+    }
+
+    public void setBook(BookWithInventoryDto book) {
+        this.book = book;
+    }
+}
@@ -1,19 +1,43 @@
 package com.ucd.bookshop.controllers.v1;
 
+import com.ucd.bookshop.controllers.dto.BookField;
+import com.ucd.bookshop.controllers.dto.BookFilterDto;
+import com.ucd.bookshop.controllers.dto.BookImportResultDto;
+import com.ucd.bookshop.controllers.dto.BookPageDto;
+import com.ucd.bookshop.controllers.dto.BookSearchResultDto;
 import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.controllers.dto.CatalogFacetsDto;
+import com.ucd.bookshop.controllers.dto.IsbnLookupResultDto;
 import com.ucd.bookshop.exception.BookAlreadyExistsException;
 import com.ucd.bookshop.exception.BookNotFoundException;
+import com.ucd.bookshop.service.BookCatalogService;
+import com.ucd.bookshop.service.BookExportService;
+import com.ucd.bookshop.service.BookExportService.ExportSlot;
+import com.ucd.bookshop.service.BookImportService;
 import com.ucd.bookshop.service.BookInventoryService;
+import com.ucd.bookshop.service.BookSearchService;
+import com.ucd.bookshop.service.FileFormat;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/v1/api")
@@ -23,15 +47,130 @@ public class BookApiController {
 
     private final BookInventoryService bookInventoryService;
 
+    private final BookSearchService bookSearchService;
+
+    private final BookExportService bookExportService;
+
+    private final BookCatalogService bookCatalogService;
+
+    private final BookImportService bookImportService;
+
+    @Value("${bookshop.isbn.lookup.max-isbns:1000}")
+    private int maxIsbns;
+
+    @Value("${bookshop.export.timeout:PT10M}")
+    private Duration streamTimeout;
+
     @Autowired
-    public BookApiController( BookInventoryService bookInventoryService) {
+    public BookApiController( BookInventoryService bookInventoryService, BookSearchService bookSearchService,
+            BookExportService bookExportService, BookCatalogService bookCatalogService,
+            BookImportService bookImportService) {
         this.bookInventoryService = bookInventoryService;
+        this.bookSearchService = bookSearchService;
+        this.bookExportService = bookExportService;
+        this.bookCatalogService = bookCatalogService;
+        this.bookImportService = bookImportService;
     }
 
-    @Operation(summary = "Get all books", description = "Retrieve a list of books")
+    @Operation(summary = "Get all books", description = "Retrieve a page of books, newest first unless sorted by price, title or year "
+            + "(newest, price, -price, title, -title, year, -year). Filter by price range, year range and author. Name the fields "
+            + "wanted e.g. fields=id,isbn,copies to read and return only those, id is always returned. The Link header holds "
+            + "the next page, send the ETag back in If-None-Match to get 304 Not Modified while the catalog is unchanged")
     @GetMapping("/books")
-    public List<BookWithInventoryDto> getAllBooks() {
-        return bookInventoryService.getAllBooksWithInventory();
+    public ResponseEntity<List<?>> getAllBooks(
+            @Parameter(description = "Cursor from the previous page's next link") @RequestParam(value = "cursor", required = false) Long cursor,
+            @Parameter(description = "Books per page") @RequestParam(value = "size", required = false) Integer size,
+            @Parameter(description = "Comma separated fields to return, of id, title, author, isbn, price, year and copies. "
+                    + "Every field when left out") @RequestParam(value = "fields", required = false) String fields,
+            @ParameterObject BookFilterDto filter,
+            WebRequest request) {
+        Set<BookField> bookFields = BookField.parse(fields);
+        if (filter.getSortOrder() == null || bookFields == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Answer polling clients before touching the database
+        if (request.checkNotModified(bookInventoryService.getCatalogVersionTag())) {
+            return null;
+        }
+
+        BookPageDto page = bookCatalogService.getBooksPage(filter, cursor, size, bookFields);
+        List<?> books = bookFields.equals(BookField.ALL) ? page.getBooks() : page.getBooks().stream()
+                .map(book -> BookField.project(book, bookFields))
+                .toList();
+        if (!page.hasNext()) {
+            return ResponseEntity.ok(books);
+        }
+
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", page.getNextCursor())
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(books);
+    }
+
+    @Operation(summary = "Get catalog facets", description = "Number of books per author, publication decade, price band and "
+            + "stock status, with the filter bounds of each value. Shares the ETag of the book list")
+    @GetMapping("/books/facets")
+    public ResponseEntity<CatalogFacetsDto> getFacets(WebRequest request) {
+        if (request.checkNotModified(bookInventoryService.getCatalogVersionTag())) {
+            return null;
+        }
+
+        CatalogFacetsDto facets = bookCatalogService.getFacets();
+        return facets != null ? ResponseEntity.ok(facets) : ResponseEntity.notFound().build();
+    }
+
+    @Operation(summary = "Stream all books", description = "Every book in one JSON array, newest first, written as it is read from the database. "
+            + "503 with Retry-After while bookshop.export.max-concurrent streams and exports are running")
+    @GetMapping("/books/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllBooks(WebRequest request) {
+        if (request.checkNotModified(bookInventoryService.getCatalogVersionTag())) {
+            return null;
+        }
+        ExportSlot slot = bookExportService.tryReserve();
+        if (slot == null) {
+            return StreamingResponses.busy();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(StreamingResponses.inSlot(request, streamTimeout, slot, bookExportService::writeJson));
+    }
+
+    @Operation(summary = "Search books", description = "Find books by words of the title, author or ISBN, best match first")
+    @GetMapping("/books/search")
+    public BookSearchResultDto searchBooks(
+            @Parameter(description = "Words to match, every word must match") @RequestParam(value = "q") String query,
+            @Parameter(description = "Zero based page") @RequestParam(value = "page", defaultValue = "0") int page,
+            @Parameter(description = "Books per page") @RequestParam(value = "size", required = false) Integer size) {
+        return bookSearchService.search(query, page, size);
+    }
+
+    @Operation(summary = "Get book by ISBN", description = "ISBN-10 or ISBN-13, with or without hyphens")
+    @GetMapping("/books/isbn/{isbn}")
+    public ResponseEntity<BookWithInventoryDto> getBookByIsbn(
+            @Parameter(description = "ISBN of the book to retrieve") @PathVariable(value = "isbn") String isbn,
+            WebRequest request) {
+        if (request.checkNotModified(bookInventoryService.getCatalogVersionTag())) {
+            return null;
+        }
+
+        IsbnLookupResultDto result = bookInventoryService.getBooksWithInventoryByIsbn(List.of(isbn)).get(0);
+        return switch (result.getStatus()) {
+            case FOUND -> ResponseEntity.ok(result.getBook());
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case INVALID -> ResponseEntity.badRequest().build();
+        };
+    }
+
+    @Operation(summary = "Get books by ISBN", description = "Resolve many scanned ISBNs at once, one result per ISBN in the order sent")
+    @PostMapping("/books/isbn")
+    public ResponseEntity<List<IsbnLookupResultDto>> getBooksByIsbn(@RequestBody List<String> isbns) {
+        if (isbns.size() > maxIsbns) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(bookInventoryService.getBooksWithInventoryByIsbn(isbns));
     }
 
     @Operation(summary = "Create a new book", description = "Add a new book ")
@@ -41,16 +180,37 @@ public class BookApiController {
         return bookInventoryService.createBookInventory(newBook, null);
     }
 
+    @Operation(summary = "Import books", description = "Create many books from text/csv, with a header row naming the columns "
+            + "title, author, isbn, price, year (yyyy or yyyy-MM-dd) and copies, or from application/x-ndjson, one book per line. "
+            + "Rows are validated like a new book and written in chunks, each in its own transaction. Reports the rows not imported")
+    @PostMapping(value = "/books/import", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<BookImportResultDto> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        FileFormat format = MediaType.parseMediaType("text/csv").isCompatibleWith(contentType)
+                ? FileFormat.CSV : FileFormat.NDJSON;
+        try {
+            return ResponseEntity.ok(bookImportService.importBooks(body, format));
+        } catch (IllegalArgumentException e) {
+            // CSV header without the columns
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(summary = "Get book by ID", description = "Retrieve a specific book")
     @GetMapping("/books/{id}")
-    public BookWithInventoryDto getBookById(@Parameter(description = "ID of the book to retrieve") @PathVariable(value = "id") Long bookId) throws BookNotFoundException {
+    public BookWithInventoryDto getBookById(@Parameter(description = "ID of the book to retrieve") @PathVariable(value = "id") Long bookId,
+            WebRequest request) throws BookNotFoundException {
+        if (request.checkNotModified(bookInventoryService.getCatalogVersionTag())) {
+            return null;
+        }
         return bookInventoryService.getBookWithInventoryById(bookId);
     }
 
     @Operation(summary = "Update an existing book", description = "Update book details")
     @PutMapping("/books/{id}")
     public BookWithInventoryDto updateBook(@Parameter(description = "ID of the book to update") @PathVariable(value = "id") Long bookId, 
-                          @Valid @RequestBody BookWithInventoryDto bookDetails) throws BookNotFoundException {
+                          @Valid @RequestBody BookWithInventoryDto bookDetails)
+            throws BookNotFoundException, BookAlreadyExistsException {
         // TODO: Add customer id from security context
         return bookInventoryService.updateBookInventory(bookDetails, null);
     }
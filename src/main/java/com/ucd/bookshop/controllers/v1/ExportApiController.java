@@ -0,0 +1,113 @@
+package com.ucd.bookshop.controllers.v1;
+
+import com.ucd.bookshop.service.BookExportService;
+import com.ucd.bookshop.service.BookExportService.ExportSlot;
+import com.ucd.bookshop.service.FileFormat;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Nightly dumps of the catalog and the inventory ledger, streamed from a database cursor as they are written.
+ *
+ * @Notes only bookshop.export.max-concurrent exports run at once, the rest get 503 with Retry-After.
+ */
+@RestController
+@RequestMapping("/v1/api/export")
+@Tag(name = "Exports", description = "Catalog and ledger export Api")
+@SecurityRequirement(name = "basicAuth")
+public class ExportApiController {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final BookExportService bookExportService;
+
+    private final Duration timeout;
+
+    @Autowired
+    public ExportApiController(BookExportService bookExportService,
+            @Value("${bookshop.export.timeout:PT10M}") Duration timeout) {
+        this.bookExportService = bookExportService;
+        this.timeout = timeout;
+    }
+
+    @Operation(summary = "Export books", description = "Every book with its copies in id order, as csv or ndjson. Resume a broken "
+            + "export with after set to the last id received. Gzip compressed when the request accepts gzip")
+    @GetMapping("/books")
+    public ResponseEntity<StreamingResponseBody> exportBooks(
+            @Parameter(description = "csv or ndjson") @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @Parameter(description = "Last book id already received") @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        FileFormat fileFormat = FileFormat.parse(format);
+        if (fileFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return export("books", fileFormat, acceptEncoding, request, out -> bookExportService.writeBooks(out, fileFormat, after));
+    }
+
+    @Operation(summary = "Export the inventory ledger", description = "Every ledger row in id order, as csv or ndjson. Resume a "
+            + "broken export with after set to the last id received. Gzip compressed when the request accepts gzip")
+    @GetMapping("/inventory")
+    public ResponseEntity<StreamingResponseBody> exportLedger(
+            @Parameter(description = "csv or ndjson") @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @Parameter(description = "Last ledger id already received") @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        FileFormat fileFormat = FileFormat.parse(format);
+        if (fileFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return export("inventory", fileFormat, acceptEncoding, request, out -> bookExportService.writeLedger(out, fileFormat, after));
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String name, FileFormat format, String acceptEncoding,
+            WebRequest request, StreamingResponseBody export) {
+        ExportSlot slot = bookExportService.tryReserve();
+        if (slot == null) {
+            return StreamingResponses.busy();
+        }
+        StreamingResponseBody body = StreamingResponses.inSlot(request, timeout, slot, export);
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String fileName = name + (format == FileFormat.CSV ? ".csv" : ".ndjson");
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format == FileFormat.CSV ? TEXT_CSV : APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(body);
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out -> {
+            GZIPOutputStream zip = new GZIPOutputStream(out, 64 * 1024);
+            body.writeTo(zip);
+            zip.finish();
+        });
+    }
+
+    /** gzip listed in Accept-Encoding, unless with q=0 */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && Arrays.stream(acceptEncoding.split(","))
+                .map(coding -> coding.strip().replace(" ", ""))
+                .anyMatch(coding -> (coding.equals("gzip") || coding.startsWith("gzip;"))
+                        && !coding.matches(".*;q=0(\\.0*)?$"));
+    }
+}
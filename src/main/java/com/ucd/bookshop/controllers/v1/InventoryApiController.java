@@ -0,0 +1,63 @@
+package com.ucd.bookshop.controllers.v1;
+
+import com.ucd.bookshop.controllers.dto.InventoryAdjustmentDto;
+import com.ucd.bookshop.controllers.dto.InventoryAsOfDto;
+import com.ucd.bookshop.exception.BookNotFoundException;
+import com.ucd.bookshop.service.InventoryAdjustmentService;
+import com.ucd.bookshop.service.InventoryCheckpointService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/v1/api/inventory")
+@Tag(name = "Inventory", description = "Inventory management Api")
+@SecurityRequirement(name = "basicAuth")
+public class InventoryApiController {
+
+    private final InventoryAdjustmentService inventoryAdjustmentService;
+    private final InventoryCheckpointService inventoryCheckpointService;
+
+    @Value("${bookshop.inventory.adjustments.max-lines:10000}")
+    private int maxLines;
+
+    @Autowired
+    public InventoryApiController(InventoryAdjustmentService inventoryAdjustmentService,
+            InventoryCheckpointService inventoryCheckpointService) {
+        this.inventoryAdjustmentService = inventoryAdjustmentService;
+        this.inventoryCheckpointService = inventoryCheckpointService;
+    }
+
+    @Operation(summary = "Adjust stock of many books",
+            description = "Apply a list of (bookId, delta) lines in one transaction and report a result per line")
+    @PostMapping("/adjustments")
+    public ResponseEntity<?> adjustInventory(@RequestBody List<InventoryAdjustmentDto> adjustments) {
+        if (adjustments.size() > maxLines) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Validation failed");
+            errorResponse.put("errors", Map.of("adjustments",
+                    String.format("At most %d lines per request, got %d", maxLines, adjustments.size())));
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        return ResponseEntity.ok(inventoryAdjustmentService.applyAdjustments(adjustments));
+    }
+
+    @Operation(summary = "Get stock as of a time", description = "Stock of a book at a point in time, e.g. 2025-01-31T17:00:00")
+    @GetMapping("/{id}/as-of")
+    public InventoryAsOfDto getStockAsOf(@Parameter(description = "ID of the book") @PathVariable(value = "id") Long bookId,
+            @RequestParam("at") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at)
+            throws BookNotFoundException {
+        return inventoryCheckpointService.getCopiesAsOf(bookId, at);
+    }
+}
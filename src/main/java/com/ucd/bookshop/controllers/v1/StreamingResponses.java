@@ -0,0 +1,67 @@
+package com.ucd.bookshop.controllers.v1;
+
+import com.ucd.bookshop.service.BookExportService.ExportSlot;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+
+/**
+ * Settings for one StreamingResponseBody response, leaving every other async request to the container defaults.
+ *
+ * Streams hold a pooled connection for as long as the client reads, so each runs in a slot from
+ * BookExportService.tryReserve and a request finding none free is turned away.
+ */
+final class StreamingResponses {
+
+    /** Seconds a client turned away should wait before trying again */
+    private static final String RETRY_AFTER_SECONDS = "60";
+
+    private StreamingResponses() {
+    }
+
+    /**
+     * 503 with Retry-After, for a request finding every slot taken
+     */
+    static ResponseEntity<StreamingResponseBody> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .build();
+    }
+
+    /**
+     * The body with the timeout of this request extended, releasing the slot once the body ends or the request is
+     * over without it having run, e.g. the client left first
+     */
+    static StreamingResponseBody inSlot(WebRequest request, Duration timeout, ExportSlot slot,
+            StreamingResponseBody body) {
+        extendTimeout(request, timeout, slot::release);
+        return out -> {
+            try {
+                body.writeTo(out);
+            } finally {
+                slot.release();
+            }
+        };
+    }
+
+    /**
+     * Give this request's body the timeout instead of the default of 30s, which would cut off a large catalog, and run
+     * onCompletion when the request is over however it ends, including before the body starts.
+     */
+    private static void extendTimeout(WebRequest request, Duration timeout, Runnable onCompletion) {
+        // Set up by the handler adapter before the controller runs, taken over when the body is handed to the executor
+        AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+        if (asyncRequest == null) {
+            return;
+        }
+        asyncRequest.setTimeout(timeout.toMillis());
+        asyncRequest.addCompletionHandler(onCompletion);
+    }
+}
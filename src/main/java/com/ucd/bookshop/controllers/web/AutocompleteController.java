@@ -0,0 +1,39 @@
+package com.ucd.bookshop.controllers.web;
+
+import com.ucd.bookshop.controllers.dto.AutocompleteSuggestionDto;
+import com.ucd.bookshop.service.BookAutocompleteIndex;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Type-ahead for the home page search box, open to anonymous visitors like the home page.
+ */
+@RestController
+@RequestMapping("/v1/web")
+public class AutocompleteController {
+
+    private final BookAutocompleteIndex bookAutocompleteIndex;
+
+    @Autowired
+    public AutocompleteController(BookAutocompleteIndex bookAutocompleteIndex) {
+        this.bookAutocompleteIndex = bookAutocompleteIndex;
+    }
+
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<AutocompleteSuggestionDto>> autocomplete(@RequestParam(value = "prefix") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        // The same prefixes are typed over and over, let the browser keep them briefly
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(30)).cachePublic())
+                .body(bookAutocompleteIndex.complete(prefix, limit));
+    }
+}
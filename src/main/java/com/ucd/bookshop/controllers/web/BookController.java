@@ -13,10 +13,9 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import com.ucd.bookshop.controllers.dto.BookPageDto;
 import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
 
-import java.util.List;
-
 @Controller
 @RequestMapping("/v1/web/books")
 public class BookController {
@@ -32,30 +31,22 @@ public class BookController {
 
     // Get All Books
     @GetMapping({ "/" })
-    public String getAllBooks(Model model) {
-        List<BookWithInventoryDto> listBooks = bookInventoryService.getAllBooksWithInventory()
-            .stream()
-            .toList();
-
-        model.addAttribute("listBooks", listBooks);
+    public String getAllBooks(@RequestParam(value = "cursor", required = false) Long cursor, Model model) {
+        addBooksPage(model, cursor);
 
         // TODO: Change to books
         return "admin/home";
     }
 
     @GetMapping("/edit/{id}")
-    public String showHomeWithEdit(@PathVariable("id") Long bookId, Model model) {
+    public String showHomeWithEdit(@PathVariable("id") Long bookId,
+            @RequestParam(value = "cursor", required = false) Long cursor, Model model) {
         
         /**
          * Gives the apperance nothing has changed in the background to make it look like a one page application
          * in-efficient but it is a simple solution to the problem
          */
-        List<BookWithInventoryDto> listBooks = bookInventoryService.getAllBooksWithInventory()
-            .stream()
-            .toList();
-
-                
-        model.addAttribute("listBooks", listBooks);
+        addBooksPage(model, cursor);
         
         if (bookId == 0) {
             // Create new book
@@ -68,7 +59,7 @@ public class BookController {
                
             } catch (Exception e) {
                 // If book not found, just show the home page
-                return "redirect:/v1/web/books";
+                return redirectToBooks(cursor);
             }
         }
         
@@ -86,7 +77,8 @@ public class BookController {
     // Create a new Book
     @PostMapping("/")
     public String newBook(@Valid @ModelAttribute("book") BookWithInventoryDto book, BindingResult bindingResult, Model model,
-                         @RequestParam(value = "source", required = false) String source) {
+                         @RequestParam(value = "source", required = false) String source,
+                         @RequestParam(value = "cursor", required = false) Long cursor) {
 
         logger.info("newBook called with book ID: {}, title: '{}', author: '{}'", 
         book.getId(), book.getTitle(), book.getAuthor());
@@ -97,7 +89,7 @@ public class BookController {
             
             // TODO: revist source logic
             if ("home".equals(source)) {
-                simulateSinglePageApp(model, true, true);
+                simulateSinglePageApp(model, cursor, true, true);
                 // book object with errors is already in the model from @ModelAttribute
                 return "admin/home";
             }
@@ -110,7 +102,7 @@ public class BookController {
             bookInventoryService.createBookInventory(book, null);
         } catch (BookAlreadyExistsException e) {
             logger.error("Book with ID: {} already exists, throwing BookAlreadyExistsException", book.getId());
-            simulateSinglePageApp(model, true, true);
+            simulateSinglePageApp(model, cursor, true, true);
             return "admin/addBook";
         }
         
@@ -134,7 +126,8 @@ public class BookController {
     // Update an Existing Book
     @PutMapping("/save")
     public String updateBook(@Valid @ModelAttribute("book") BookWithInventoryDto book, BindingResult bindingResult, Model model,
-            jakarta.servlet.http.HttpServletRequest request, @RequestParam(value = "source", required = false) String source)
+            jakarta.servlet.http.HttpServletRequest request, @RequestParam(value = "source", required = false) String source,
+            @RequestParam(value = "cursor", required = false) Long cursor)
             throws BookNotFoundException {
 
         logger.info("updateBook called with book ID: {}, title: '{}', author: '{}'", 
@@ -147,7 +140,7 @@ public class BookController {
             // Check if the request came from home page edit
             if ("home".equals(source)) {
                 // If from home page, we need to return home template with both book list and edit form
-                simulateSinglePageApp(model, true, false);
+                simulateSinglePageApp(model, cursor, true, false);
                 
                 // book object with errors is already in the model from @ModelAttribute
                 return "admin/home";
@@ -159,7 +152,17 @@ public class BookController {
         if (bookInventoryService.getBookWithInventoryById(book.getId()) != null) {
             logger.info("Book with ID: {} found, proceeding with update", book.getId());
             // TODO: add customerId from security context
-            bookInventoryService.updateBookInventory(book, null);
+            try {
+                bookInventoryService.updateBookInventory(book, null);
+            } catch (BookAlreadyExistsException e) {
+                logger.warn("Book with ID: {} not updated, {}", book.getId(), e.getMessage());
+                bindingResult.rejectValue("isbn", "duplicate", "Another book already has this ISBN");
+                if ("home".equals(source)) {
+                    simulateSinglePageApp(model, cursor, true, false);
+                    return "admin/home";
+                }
+                return "admin/editBook";
+            }
             logger.info("Book with ID: {} successfully updated", book.getId());
         } else {
             logger.error("Book with ID: {} not found, throwing BookNotFoundException", book.getId());
@@ -169,27 +172,42 @@ public class BookController {
         logger.info("updateBook completed successfully for book ID: {}, redirecting to book list", book.getId());
         
         
-        return "redirect:/v1/web/books/";
+        return redirectToBooks(cursor);
     }
 
     // Delete a Book
     @DeleteMapping("/delete/{id}")
-    public String deleteBook(@PathVariable(value = "id") Long bookId, Model model) throws BookNotFoundException {
+    public String deleteBook(@PathVariable(value = "id") Long bookId,
+            @RequestParam(value = "cursor", required = false) Long cursor, Model model) throws BookNotFoundException {
         bookInventoryService.deleteBookInventory(bookId);
-        return "redirect:/v1/web/books/";
+        return redirectToBooks(cursor);
     }
 
-    private void simulateSinglePageApp(Model model, boolean isEditMode, boolean isNewBook) {
+    /**
+     * @param cursor the list page the admin was on, carried through the edit form, null for the first page
+     */
+    private void simulateSinglePageApp(Model model, Long cursor, boolean isEditMode, boolean isNewBook) {
         // If from home page, we need to return home template with both book list and add form 
-        List<BookWithInventoryDto> listBooks = bookInventoryService.getAllBooksWithInventory()
-            .stream()
-            .toList();
-
-        model.addAttribute("listBooks", listBooks);
+        addBooksPage(model, cursor);
         model.addAttribute("editMode", isEditMode);
         model.addAttribute("isNewBook", isNewBook);
     }
 
+    private void addBooksPage(Model model, Long cursor) {
+        BookPageDto page = bookInventoryService.getBooksPage(cursor, null);
+
+        model.addAttribute("listBooks", page.getBooks());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("cursor", cursor);
+    }
+
+    /**
+     * Back to the list page the admin was on
+     */
+    private static String redirectToBooks(Long cursor) {
+        return cursor == null ? "redirect:/v1/web/books/" : "redirect:/v1/web/books/?cursor=" + cursor;
+    }
+
     private void simulateSinglePageApp(Model model, BookWithInventoryDto book, boolean isEditMode, boolean isNewBook) {
         model.addAttribute("book", book);
         model.addAttribute("editMode", isEditMode);
@@ -0,0 +1,124 @@
+package com.ucd.bookshop.controllers.web;
+
+import com.ucd.bookshop.config.ReplicaRoutingDataSource;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The storefront book table rendered to HTML, kept per catalog version, locale and table key.
+ *
+ * A hit skips both the catalog read and the template, the page around the table still renders per request. The
+ * table shows nothing about the visitor, so one copy serves everyone. The cached HTML is dropped as a whole when the
+ * catalog version moves on, so a book or stock change shows on the next page view.
+ *
+ * The key is built by the caller from the parsed parameters the table depends on, not the raw query string, so
+ * reordered, repeated or unrelated parameters share one entry rather than filling the cache with copies.
+ *
+ * @Notes the version must be read before the model is loaded, a change in between then only caches under the old
+ * version, which is already gone.
+ */
+@Component
+public class BookTableCache {
+
+    static final String TEMPLATE = "fragments/book-table";
+
+    private static final Set<String> FRAGMENT = Set.of("book-table");
+
+    private final ITemplateEngine templateEngine;
+
+    private volatile Generation generation = new Generation("");
+
+    @Value("${bookshop.web.book-table-cache.enabled:true}")
+    private boolean enabled = true;
+
+    /** Distinct pages kept per catalog version, further pages render every time */
+    @Value("${bookshop.web.book-table-cache.max-entries:1000}")
+    private int maxEntries = 1000;
+
+    @Autowired
+    public BookTableCache(ITemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+    }
+
+    /**
+     * The book table for this request, from the cache or rendered from the model
+     *
+     * @param versionTag catalog version the model would be read at
+     * @param key the normalised parameters of the table, equal for every request that renders the same HTML
+     * @param model variables of the fragment, only asked for on a miss
+     */
+    public String get(String versionTag, String key, HttpServletRequest request, HttpServletResponse response,
+            Supplier<Map<String, Object>> model) {
+        Locale locale = RequestContextUtils.getLocale(request);
+        if (!enabled) {
+            return render(request, response, locale, model.get());
+        }
+
+        Generation current = generation(versionTag);
+        String localeKey = locale.toLanguageTag() + " " + key;
+        String html = current.tables.get(localeKey);
+        if (html == null) {
+            // Read on the primary, a lagging replica would cache an older catalog under this version
+            html = render(request, response, locale, ReplicaRoutingDataSource.onPrimary(model));
+            if (current.tables.size() < maxEntries) {
+                current.tables.putIfAbsent(localeKey, html);
+            }
+        }
+        return html;
+    }
+
+    private Generation generation(String versionTag) {
+        Generation current = generation;
+        if (!current.versionTag.equals(versionTag)) {
+            current = new Generation(versionTag);
+            generation = current;
+        }
+        return current;
+    }
+
+    private String render(HttpServletRequest request, HttpServletResponse response, Locale locale,
+            Map<String, Object> model) {
+        // Links must not carry this visitor's session id into HTML served to others
+        HttpServletResponse noSessionIds = new HttpServletResponseWrapper(response) {
+            @Override
+            public String encodeURL(String url) {
+                return url;
+            }
+
+            @Override
+            public String encodeRedirectURL(String url) {
+                return url;
+            }
+        };
+
+        WebContext context = new WebContext(JakartaServletWebApplication.buildApplication(request.getServletContext())
+                .buildExchange(request, noSessionIds), locale, model);
+        return templateEngine.process(TEMPLATE, FRAGMENT, context);
+    }
+
+    private static final class Generation {
+
+        private final String versionTag;
+        private final Map<String, String> tables = new ConcurrentHashMap<>();
+
+        private Generation(String versionTag) {
+            this.versionTag = versionTag;
+        }
+    }
+}
@@ -5,10 +5,12 @@ import com.stripe.model.PaymentIntent;
 import com.stripe.param.PaymentIntentCreateParams;
 import com.ucd.bookshop.config.SecurityConfig.CustomUserDetails;
 import com.ucd.bookshop.exception.BookNotFoundException;
+import com.ucd.bookshop.exception.OutOfStockException;
 import com.ucd.bookshop.exception.UserNotFoundException;
 import com.ucd.bookshop.model.ShoppingCartWithInventory;
 import com.ucd.bookshop.repository.ShoppingCartRepository;
 import com.ucd.bookshop.service.CustomerCartService;
+import com.ucd.bookshop.service.InventoryLedgerAppender;
 //import com.ucd.bookshop.repository.UserRepository;       // NEW
 import com.ucd.bookshop.repository.CustomerRepository;   // NEW
 import jakarta.annotation.security.RolesAllowed;
@@ -45,6 +47,7 @@ public class CustomerController {
     private final ShoppingCartRepository shoppingCartRepository;
     //private final UserRepository userRepository;
     private final CustomerRepository customerRepository;
+    private final InventoryLedgerAppender inventoryLedgerAppender;
 
     @Value("${stripe.publishableKey}")
     private String stripePublishableKey;
@@ -56,11 +59,13 @@ public class CustomerController {
    public CustomerController(CustomerCartService customerCartService,
                              ShoppingCartRepository shoppingCartRepository,
                              //UserRepository userRepository,                 // NEW
-                             CustomerRepository customerRepository) {      // NEW
+                             CustomerRepository customerRepository,      // NEW
+                             InventoryLedgerAppender inventoryLedgerAppender) {
                this.customerCartService = customerCartService;
                this.shoppingCartRepository = shoppingCartRepository;
                //this.userRepository = userRepository;             // NEW
                this.customerRepository = customerRepository;     // NEW
+               this.inventoryLedgerAppender = inventoryLedgerAppender;
            }
 
     private static long toMinorUnits(BigDecimal amount) {
@@ -79,7 +84,7 @@ public class CustomerController {
                        Integer customerId = requireCurrentCustomerId(principal); // FIX: semicolon & type
 
 
-        List<ShoppingCartWithInventory> cartItems = shoppingCartRepository.findShoppingCartWithInventoryByCustomerId(customerId);
+        List<ShoppingCartWithInventory> cartItems = customerCartService.getCart(customerId);
         model.addAttribute("cartItems", cartItems);
 
         return "customers/checkout";
@@ -89,7 +94,18 @@ public class CustomerController {
     public String addItemToCart(Model model, @RequestParam Long bookId) throws UserNotFoundException, BookNotFoundException {
         Integer customerId = getCurrentCustomerId(); 
 
-        List<ShoppingCartWithInventory> cartItems = customerCartService.addBookToCart(customerId, 1L, bookId);
+        List<ShoppingCartWithInventory> cartItems;
+        try {
+            cartItems = customerCartService.addBookToCart(customerId, 1L, bookId);
+            if (inventoryLedgerAppender.isEnabled()) {
+                // The hold reaches the ledger after commit, read the cart again once it is there
+                cartItems = customerCartService.getCart(customerId);
+            }
+        } catch (OutOfStockException e) {
+            logger.info("Book {} is out of stock for customer {}", bookId, customerId);
+            cartItems = customerCartService.getCart(customerId);
+            model.addAttribute("errorMessage", "Sorry, that book is out of stock.");
+        }
         model.addAttribute("cartItems", cartItems);
 
         return "customers/checkout";
@@ -110,7 +126,7 @@ public class CustomerController {
     public String makeOrder(Model model) throws UserNotFoundException {
         Integer customerId = getCurrentCustomerId(); 
 
-        List<ShoppingCartWithInventory> cartItems = shoppingCartRepository.findShoppingCartWithInventoryByCustomerId(customerId);
+        List<ShoppingCartWithInventory> cartItems = customerCartService.getCart(customerId);
         
         if (cartItems.isEmpty()) {
             model.addAttribute("errorMessage", "Your cart is empty.");
@@ -119,11 +135,14 @@ public class CustomerController {
 
         // ✅ Compute total server-side
         BigDecimal orderTotal = cartItems.stream()
-                .map(item -> item.getBook().getPrice().multiply(BigDecimal.valueOf(item.getCopies())))
+                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getCopies())))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         model.addAttribute("orderTotal", "€" + orderTotal);
 
+        // Payment is under way, keep the holds from expiring while the customer pays
+        customerCartService.touchCart(customerId);
+
         // Create a PaymentIntent for that total (type-safe params builder)
         PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
                 .setAmount(toMinorUnits(orderTotal))
@@ -1,6 +1,7 @@
 package com.ucd.bookshop.controllers.web;
 
-import com.ucd.bookshop.service.BookInventoryService;
+import com.ucd.bookshop.service.BookCatalogService;
+import com.ucd.bookshop.service.BookSearchService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,9 +9,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import org.springframework.web.util.UriComponentsBuilder;
+import com.ucd.bookshop.controllers.dto.BookFilterDto;
+import com.ucd.bookshop.controllers.dto.BookPageDto;
+import com.ucd.bookshop.controllers.dto.BookSearchResultDto;
 
-import java.util.List;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 
 @Controller
@@ -19,23 +28,48 @@ public class HomeController {
     
     private static final Logger logger = LoggerFactory.getLogger(HomeController.class);
 
-    private final BookInventoryService bookInventoryService;
+    private final BookCatalogService bookCatalogService;
+
+    private final BookSearchService bookSearchService;
+
+    private final BookTableCache bookTableCache;
 
     @Autowired
-    public HomeController(BookInventoryService bookInventoryService) {
-        this.bookInventoryService = bookInventoryService;
+    public HomeController(BookCatalogService bookCatalogService, BookSearchService bookSearchService,
+            BookTableCache bookTableCache) {
+        this.bookCatalogService = bookCatalogService;
+        this.bookSearchService = bookSearchService;
+        this.bookTableCache = bookTableCache;
     }
 
     @GetMapping("/home")
-    public String showHome(Model model) {
+    public String showHome(@RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "q", required = false) String query,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @ModelAttribute("filter") BookFilterDto filter, Model model,
+            HttpServletRequest request, HttpServletResponse response) {
         logger.info("Showing home page");
 
-        // Fetch books data and add to model for the fragment
-        List<BookWithInventoryDto> listBooks = bookInventoryService.getAllBooksWithInventory()
-        .stream()
-        .toList();
-        
-        model.addAttribute("listBooks", listBooks);
+        boolean searching = query != null && !query.isBlank();
+        if (filter.getSortOrder() == null) {
+            // Unknown sort from a hand edited link, show the default order
+            filter.setSort(null);
+        }
+
+        // Read before the books, so a change while loading is not cached as current
+        String versionTag = bookCatalogService.getCatalogVersionTag();
+        String bookTable = searching
+                ? bookTableCache.get(versionTag, "search " + Math.max(page, 0) + " " + query.strip(), request,
+                        response, () -> searchTable(query.strip(), page))
+                : bookTableCache.get(versionTag, "catalog " + catalogUrl(request, filter, cursor), request,
+                        response, () -> catalogTable(filter, cursor, request));
+
+        model.addAttribute("bookTable", bookTable);
+        model.addAttribute("searching", searching);
+        model.addAttribute("query", searching ? query : null);
+        if (!searching) {
+            model.addAttribute("facets", bookCatalogService.getFacets());
+        }
         return "home";
     }
 
@@ -44,4 +78,60 @@ public class HomeController {
         model.addAttribute("errorMessage", "Access Denied: You don't have permission to access this resource.");
         return "error/access-denied";
     }
+
+    private Map<String, Object> searchTable(String query, int page) {
+        BookSearchResultDto results = bookSearchService.search(query, page, null);
+
+        Map<String, Object> table = new HashMap<>();
+        table.put("listBooks", results.getBooks());
+        table.put("search", results);
+        return table;
+    }
+
+    private Map<String, Object> catalogTable(BookFilterDto filter, Long cursor, HttpServletRequest request) {
+        // Fetch a page of books for the fragment
+        BookPageDto books = bookCatalogService.getBooksPage(filter, cursor, null);
+
+        Map<String, Object> table = new HashMap<>();
+        table.put("listBooks", books.getBooks());
+        table.put("nextCursor", books.getNextCursor());
+        table.put("cursor", cursor);
+        // Paging links keep the filters, and stay relative as the table is served to every host name
+        if (books.hasNext()) {
+            table.put("nextPageUrl", catalogUrl(request, filter, books.getNextCursor()));
+        }
+        table.put("firstPageUrl", catalogUrl(request, filter, null));
+        return table;
+    }
+
+    /**
+     * A catalog page from the parsed filter rather than the query string, in a fixed order and without unknown
+     * parameters. Every query string meaning the same page gives the same url, so it is also the book table key.
+     */
+    static String catalogUrl(HttpServletRequest request, BookFilterDto filter, Long cursor) {
+        UriComponentsBuilder url = UriComponentsBuilder.fromPath(request.getRequestURI());
+        if (filter.getMinPrice() != null) {
+            url.queryParam("minPrice", filter.getMinPrice().stripTrailingZeros().toPlainString());
+        }
+        if (filter.getMaxPrice() != null) {
+            url.queryParam("maxPrice", filter.getMaxPrice().stripTrailingZeros().toPlainString());
+        }
+        if (filter.getFromYear() != null) {
+            url.queryParam("fromYear", filter.getFromYear());
+        }
+        if (filter.getToYear() != null) {
+            url.queryParam("toYear", filter.getToYear());
+        }
+        if (filter.getAuthor() != null && !filter.getAuthor().isBlank()) {
+            // Matched ignoring case, @see BookCatalogRepository
+            url.queryParam("author", filter.getAuthor().strip().toLowerCase(Locale.ROOT));
+        }
+        if (filter.getSortOrder() != BookFilterDto.Sort.NEWEST) {
+            url.queryParam("sort", filter.getSortOrder().toParameter());
+        }
+        if (cursor != null) {
+            url.queryParam("cursor", cursor);
+        }
+        return url.encode().build().toUriString();
+    }
 }
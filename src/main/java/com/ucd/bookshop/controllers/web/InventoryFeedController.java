@@ -0,0 +1,36 @@
+package com.ucd.bookshop.controllers.web;
+
+import com.ucd.bookshop.service.InventoryFeedService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Live stock changes for the book lists, @see InventoryFeedService
+ */
+@RestController
+@RequestMapping("/v1/web/inventory")
+public class InventoryFeedController {
+
+    private final InventoryFeedService inventoryFeedService;
+
+    @Autowired
+    public InventoryFeedController(InventoryFeedService inventoryFeedService) {
+        this.inventoryFeedService = inventoryFeedService;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamInventory() {
+        SseEmitter emitter = inventoryFeedService.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
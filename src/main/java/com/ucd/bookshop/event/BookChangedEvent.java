@@ -0,0 +1,42 @@
+package com.ucd.bookshop.event;
+
+import com.ucd.bookshop.model.Book;
+
+/**
+ * Published when a book is created, updated or deleted.
+ *
+ * @Notes books created by an import are published as a BooksImportedEvent per chunk instead.
+ */
+public class BookChangedEvent {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Long bookId;
+    private final ChangeType changeType;
+    private final Book book;
+
+    public BookChangedEvent(Long bookId, ChangeType changeType, Book book) {
+        this.bookId = bookId;
+        this.changeType = changeType;
+        this.book = book;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    /**
+     * The book as saved, null when deleted
+     */
+    public Book getBook() {
+        return book;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ucd.bookshop.event;
+
+import com.ucd.bookshop.model.Book;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Published once per chunk of a bulk import, in place of a BookChangedEvent and an InventoryChangedEvent per book,
+ * so listeners can apply the whole chunk at once.
+ *
+ * @Notes listeners of BookChangedEvent or InventoryChangedEvent that keep state must also listen to this one.
+ */
+public class BooksImportedEvent {
+
+    private final List<Book> books;
+    private final Map<Long, Long> copiesByBookId;
+
+    public BooksImportedEvent(List<Book> books, Map<Long, Long> copiesByBookId) {
+        this.books = books;
+        this.copiesByBookId = copiesByBookId;
+    }
+
+    /**
+     * The books as saved, in ascending id order
+     */
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * Copies in stock of each new book, the delta of its one ledger row
+     */
+    public Map<Long, Long> getCopiesByBookId() {
+        return copiesByBookId;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ucd.bookshop.event;
+
+/**
+ * @Order of the BookChangedEvent and InventoryChangedEvent listeners, lowest first.
+ *
+ * In-memory copies of the catalog e.g. BookSearchIndex and InventoryStockEngine are brought up to date before
+ * CatalogCache moves the catalog version on. A page rendered under the new version, e.g. by BookTableCache, then
+ * reads the updated copies rather than caching the old ones under the new version.
+ */
+public final class ChangeListenerOrder {
+
+    /** Listeners keeping an in-memory copy of books or stock */
+    public static final int STATE = 0;
+
+    /** CatalogCache, evicts pages and moves the catalog version on */
+    public static final int INVALIDATION = 100;
+
+    /** Listeners passing the change on e.g. to browsers */
+    public static final int NOTIFICATION = 200;
+
+    private ChangeListenerOrder() {
+    }
+}
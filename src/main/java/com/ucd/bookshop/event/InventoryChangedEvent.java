@@ -0,0 +1,39 @@
+package com.ucd.bookshop.event;
+
+/**
+ * Published for every row appended to the inventory ledger. A batch adjustment publishes one event per book
+ * carrying the net delta of its rows. The ledger rows of an import come as a BooksImportedEvent per chunk instead.
+ *
+ * @Notes listeners that keep in-memory state should use @TransactionalEventListener so only committed changes are seen.
+ */
+public class InventoryChangedEvent {
+
+    private final Long bookId;
+    private final int copies;
+    private final Integer onHoldForCustomerId;
+
+    public InventoryChangedEvent(Long bookId, int copies, Integer onHoldForCustomerId) {
+        this.bookId = bookId;
+        this.copies = copies;
+        this.onHoldForCustomerId = onHoldForCustomerId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    /**
+     * Signed ledger delta, negative when copies are put on hold or sold
+     */
+    public int getCopies() {
+        return copies;
+    }
+
+    public Integer getOnHoldForCustomerId() {
+        return onHoldForCustomerId;
+    }
+
+    public boolean isHold() {
+        return onHoldForCustomerId != null;
+    }
+}
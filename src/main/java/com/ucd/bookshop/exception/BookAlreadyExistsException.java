@@ -1,5 +1,9 @@
 package com.ucd.bookshop.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
 public class BookAlreadyExistsException extends Exception {
 
     private final long id;
@@ -8,4 +12,9 @@ public class BookAlreadyExistsException extends Exception {
         super(String.format("Book already exists with id : '%s'", id));
         this.id = id;
     }
+
+    public BookAlreadyExistsException(String isbn) {
+        super(String.format("Book already exists with isbn : '%s'", isbn));
+        this.id = 0;
+    }
 }
@@ -0,0 +1,30 @@
+package com.ucd.bookshop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a hold asks for more copies than are available.
+ *
+ * @Notes unchecked so the surrounding transaction, e.g. the new cart row, is rolled back
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class OutOfStockException extends RuntimeException {
+
+    private final long bookId;
+    private final long requested;
+
+    public OutOfStockException(long bookId, long requested) {
+        super(String.format("Not enough copies in stock for book with id : '%s', requested %s", bookId, requested));
+        this.bookId = bookId;
+        this.requested = requested;
+    }
+
+    public long getBookId() {
+        return bookId;
+    }
+
+    public long getRequested() {
+        return requested;
+    }
+}
@@ -3,7 +3,7 @@ package com.ucd.bookshop.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -11,7 +11,19 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "book")
+@Table(name = "book", indexes = {
+        @Index(name = "ux_book_isbn13", columnList = "isbn13", unique = true),
+        // Filter and sort indexes of the catalog, mirrors schema.sql, @see BookCatalogRepository
+        @Index(name = "idx_book_price", columnList = "price, book_id"),
+        @Index(name = "idx_book_year", columnList = "`year`, book_id"),
+        @Index(name = "idx_book_title_sort", columnList = "title_sort, book_id"),
+        @Index(name = "idx_book_author", columnList = "author_key, book_id"),
+        @Index(name = "idx_book_author_price", columnList = "author_key, price, book_id"),
+        @Index(name = "idx_book_author_year", columnList = "author_key, `year`, book_id"),
+        @Index(name = "idx_book_author_title", columnList = "author_key, title_sort, book_id"),
+        // Newest change for the catalog ETag, @see BookRepository.findCatalogState
+        @Index(name = "idx_book_last_modified", columnList = "last_modified_date")
+})
 public class Book {
 
     @Id
@@ -28,11 +40,25 @@ public class Book {
     @NotBlank
     private String isbn;
 
+    /** isbn as ISBN-13 digits, null when isbn is not a valid ISBN, @see Isbn */
+    @Column(name = "isbn13", length = 13)
+    private String isbn13;
+
+    /** Lower case title prefix to sort by, generated by the database */
+    @Column(name = "title_sort", length = 191, insertable = false, updatable = false,
+            columnDefinition = "VARCHAR(191) GENERATED ALWAYS AS (LEFT(LOWER(title), 191))")
+    private String titleSort;
+
+    /** Lower case author prefix to filter by, generated by the database */
+    @Column(name = "author_key", length = 191, insertable = false, updatable = false,
+            columnDefinition = "VARCHAR(191) GENERATED ALWAYS AS (LEFT(LOWER(author), 191))")
+    private String authorKey;
+
     @NotNull
     private BigDecimal price;
 
     @Column(name = "last_modified_date")
-    @CreationTimestamp
+    @UpdateTimestamp
     private LocalDateTime lastModifiedDate;
 
     @Column(name = "`year`")
@@ -83,6 +109,16 @@ public class Book {
         this.isbn = isbn;
     }
 
+    public String getIsbn13() {
+        return isbn13;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalizeIsbn() {
+        this.isbn13 = Isbn.toIsbn13(isbn);
+    }
+
     public Long getId() {
         return id;
     }
@@ -4,31 +4,65 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 /**
- * POJO for book with inventory.
+ * POJO for a book with its copies, read straight from query columns. Holds only what the API returns, not the
+ * entity, so no timestamp, ledger collection or persistence state is created per row.
  */
-public class BookInventory extends Book {
+public class BookInventory {
 
-    private Long copies;
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final String isbn;
+    private final BigDecimal price;
+    private final LocalDate year;
+    private final Long copies;
 
     public BookInventory(Long id, String title, String author, String isbn, BigDecimal price, LocalDate year, Long copies) {
-        super(id, title, author, isbn, price, year);
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+        this.price = price;
+        this.year = year;
         this.copies = copies;
     }
 
     public BookInventory(Book book, Long copies) {
-        super(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getPrice(), book.getYear());
-        this.copies = copies;
-    }   
+        this(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getPrice(), book.getYear(), copies);
+    }
 
-    public Long getCopies() {
-        return copies;
+    public Long getId() {
+        return id;
     }
 
-    public void setCopies(Long copies) {
-        this.copies = copies;
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public LocalDate getYear() {
+        return year;
+    }
+
+    public Long getCopies() {
+        return copies;
     }
 
-    public Book toBook() {
-        return new Book(getId(), getTitle(), getAuthor(), getIsbn(), getPrice(), getYear());
+    /**
+     * Same book with a different number of copies
+     */
+    public BookInventory withCopies(Long copies) {
+        return new BookInventory(id, title, author, isbn, price, year, copies);
     }
 }
@@ -0,0 +1,39 @@
+package com.ucd.bookshop.model;
+
+/**
+ * POJO for the searchable fields of a book, read without loading the entity.
+ */
+public class BookSearchDocument {
+
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final String isbn;
+
+    public BookSearchDocument(Long id, String title, String author, String isbn) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+    }
+
+    public BookSearchDocument(Book book) {
+        this(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+}
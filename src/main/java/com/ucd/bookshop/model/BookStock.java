@@ -0,0 +1,48 @@
+package com.ucd.bookshop.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Materialized stock per book. Holds the running total of the inventory ledger so
+ * catalog reads are a primary key lookup rather than a SUM over every ledger row.
+ *
+ * @Notes maintained in the same transaction as each inventory insert, @see BookStockService
+ */
+@Entity
+@Table(name = "book_stock")
+public class BookStock {
+
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @NotNull
+    @Column(name = "copies")
+    private Long copies;
+
+    public BookStock() {
+        super();
+    }
+
+    public BookStock(Long bookId, Long copies) {
+        this.bookId = bookId;
+        this.copies = copies;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getCopies() {
+        return copies;
+    }
+
+    public void setCopies(Long copies) {
+        this.copies = copies;
+    }
+}
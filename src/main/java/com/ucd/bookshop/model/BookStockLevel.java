@@ -0,0 +1,29 @@
+package com.ucd.bookshop.model;
+
+/**
+ * POJO for the stock of a book split into available copies and copies on hold for customers.
+ */
+public class BookStockLevel {
+
+    private final Long bookId;
+    private final Long available;
+    private final Long onHold;
+
+    public BookStockLevel(Long bookId, Long available, Long onHold) {
+        this.bookId = bookId;
+        this.available = available;
+        this.onHold = onHold;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Long getAvailable() {
+        return available;
+    }
+
+    public Long getOnHold() {
+        return onHold;
+    }
+}
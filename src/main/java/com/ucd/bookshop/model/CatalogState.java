@@ -0,0 +1,34 @@
+package com.ucd.bookshop.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * POJO for the high-water marks of the catalog in the database. Any committed change to a book or its stock moves
+ * at least one of them, whichever node or tool made it. A book deleted outside the application moves none unless
+ * catalog_version is bumped too, @see CatalogVersion
+ */
+public class CatalogState {
+
+    private final Long deletedBooks;
+    private final Long maxBookId;
+    private final LocalDateTime lastModifiedDate;
+    private final Long maxInventoryId;
+
+    public CatalogState(Long deletedBooks, Long maxBookId, LocalDateTime lastModifiedDate, Long maxInventoryId) {
+        this.deletedBooks = deletedBooks;
+        this.maxBookId = maxBookId;
+        this.lastModifiedDate = lastModifiedDate;
+        this.maxInventoryId = maxInventoryId;
+    }
+
+    /**
+     * The state as an ETag value
+     */
+    public String toTag() {
+        long modified = lastModifiedDate == null ? 0
+                : lastModifiedDate.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + lastModifiedDate.getNano() / 1_000;
+        return Long.toString(deletedBooks == null ? 0 : deletedBooks, 36) + "-" + Long.toString(maxBookId == null ? 0 : maxBookId, 36) + "-"
+                + Long.toString(modified, 36) + "-" + Long.toString(maxInventoryId == null ? 0 : maxInventoryId, 36);
+    }
+}
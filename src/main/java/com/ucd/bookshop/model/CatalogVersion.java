@@ -0,0 +1,51 @@
+package com.ucd.bookshop.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Single row counting deleted books, for the catalog ETag. Creates and updates move the highest book id or
+ * last_modified_date, a delete moves neither, so it moves this instead.
+ *
+ * @Notes bumped in the same transaction as each delete, @see CatalogVersionRepository
+ */
+@Entity
+@Table(name = "catalog_version")
+public class CatalogVersion {
+
+    /** Id of the one row */
+    public static final int ID = 1;
+
+    @Id
+    @Column(name = "catalog_version_id")
+    private Integer id;
+
+    @NotNull
+    @Column(name = "deleted_books")
+    private Long deletedBooks;
+
+    public CatalogVersion() {
+        super();
+    }
+
+    public CatalogVersion(Integer id, Long deletedBooks) {
+        this.id = id;
+        this.deletedBooks = deletedBooks;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Long getDeletedBooks() {
+        return deletedBooks;
+    }
+
+    public void setDeletedBooks(Long deletedBooks) {
+        this.deletedBooks = deletedBooks;
+    }
+}
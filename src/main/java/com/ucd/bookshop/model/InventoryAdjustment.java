@@ -0,0 +1,23 @@
+package com.ucd.bookshop.model;
+
+/**
+ * POJO for one admin adjustment to the stock of a book, written as a single inventory ledger row.
+ */
+public class InventoryAdjustment {
+
+    private final Long bookId;
+    private final Long copies;
+
+    public InventoryAdjustment(Long bookId, Long copies) {
+        this.bookId = bookId;
+        this.copies = copies;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Long getCopies() {
+        return copies;
+    }
+}
@@ -0,0 +1,76 @@
+package com.ucd.bookshop.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock of a book at a point in time, the SUM of its inventory ledger rows created up to as_of.
+ * Answers as-of-time queries from the nearest checkpoint plus the ledger rows since it.
+ *
+ * @Notes written periodically, @see InventoryCheckpointJob
+ */
+@Entity
+@Table(name = "inventory_checkpoint")
+public class InventoryCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "checkpoint_id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @NotNull
+    @Column(name = "copies")
+    private Long copies;
+
+    @NotNull
+    @Column(name = "as_of")
+    private LocalDateTime asOf;
+
+    public InventoryCheckpoint() {
+        super();
+    }
+
+    public InventoryCheckpoint(Long bookId, Long copies, LocalDateTime asOf) {
+        this.bookId = bookId;
+        this.copies = copies;
+        this.asOf = asOf;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getCopies() {
+        return copies;
+    }
+
+    public void setCopies(Long copies) {
+        this.copies = copies;
+    }
+
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public void setAsOf(LocalDateTime asOf) {
+        this.asOf = asOf;
+    }
+}
@@ -0,0 +1,50 @@
+package com.ucd.bookshop.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * POJO for a run of inventory ledger rows, for one book and hold, that can be folded into a single checkpoint row.
+ */
+public class InventoryCompactionGroup {
+
+    private final Long bookId;
+    private final Integer onHoldForCustomerId;
+    private final Long copies;
+    private final Long rows;
+    private final Long maxInventoryId;
+    private final LocalDateTime maxCreatedDate;
+
+    public InventoryCompactionGroup(Long bookId, Integer onHoldForCustomerId, Long copies, Long rows,
+            Long maxInventoryId, LocalDateTime maxCreatedDate) {
+        this.bookId = bookId;
+        this.onHoldForCustomerId = onHoldForCustomerId;
+        this.copies = copies;
+        this.rows = rows;
+        this.maxInventoryId = maxInventoryId;
+        this.maxCreatedDate = maxCreatedDate;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Integer getOnHoldForCustomerId() {
+        return onHoldForCustomerId;
+    }
+
+    public Long getCopies() {
+        return copies;
+    }
+
+    public Long getRows() {
+        return rows;
+    }
+
+    public Long getMaxInventoryId() {
+        return maxInventoryId;
+    }
+
+    public LocalDateTime getMaxCreatedDate() {
+        return maxCreatedDate;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ucd.bookshop.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * POJO for one row of the inventory ledger as stored, for exports.
+ */
+public class InventoryLedgerRow {
+
+    private final Long id;
+    private final Long bookId;
+    private final Integer copies;
+    private final String onHoldForCustomerId;
+    private final LocalDateTime createdDate;
+
+    public InventoryLedgerRow(Long id, Long bookId, Integer copies, String onHoldForCustomerId,
+            LocalDateTime createdDate) {
+        this.id = id;
+        this.bookId = bookId;
+        this.copies = copies;
+        this.onHoldForCustomerId = onHoldForCustomerId;
+        this.createdDate = createdDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Integer getCopies() {
+        return copies;
+    }
+
+    public String getOnHoldForCustomerId() {
+        return onHoldForCustomerId;
+    }
+
+    public LocalDateTime getCreatedDate() {
+        return createdDate;
+    }
+}
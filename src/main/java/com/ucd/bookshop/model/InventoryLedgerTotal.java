@@ -0,0 +1,31 @@
+package com.ucd.bookshop.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * POJO for the ledger total of a book up to a point in time, with the created date of its newest row.
+ */
+public class InventoryLedgerTotal {
+
+    private final Long bookId;
+    private final Long copies;
+    private final LocalDateTime lastCreatedDate;
+
+    public InventoryLedgerTotal(Long bookId, Long copies, LocalDateTime lastCreatedDate) {
+        this.bookId = bookId;
+        this.copies = copies;
+        this.lastCreatedDate = lastCreatedDate;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Long getCopies() {
+        return copies;
+    }
+
+    public LocalDateTime getLastCreatedDate() {
+        return lastCreatedDate;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ucd.bookshop.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * POJO for a month partition of the inventory ledger, holding rows created before lessThan.
+ *
+ * @Notes lessThan is null for the catch-all p_future partition.
+ */
+public class InventoryPartition {
+
+    private final String name;
+    private final LocalDateTime lessThan;
+
+    public InventoryPartition(String name, LocalDateTime lessThan) {
+        this.name = name;
+        this.lessThan = lessThan;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDateTime getLessThan() {
+        return lessThan;
+    }
+
+    public boolean isMaxValue() {
+        return lessThan == null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ucd.bookshop.model;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes ISBNs to the 13 digit key stored in book.isbn13.
+ */
+public final class Isbn {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s\\-:]");
+    private static final Pattern ISBN_13 = Pattern.compile("97[89]\\d{10}");
+    private static final Pattern ISBN_10 = Pattern.compile("\\d{9}[\\dX]");
+
+    private Isbn() {
+    }
+
+    /**
+     * ISBN-13 digits of an ISBN-10 or ISBN-13, with or without hyphens, spaces or an ISBN prefix.
+     *
+     * @return null when the text is not an ISBN or its check digit is wrong
+     */
+    public static String toIsbn13(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+
+        String digits = SEPARATORS.matcher(isbn).replaceAll("").toUpperCase(Locale.ROOT);
+        if (digits.startsWith("ISBN")) {
+            digits = digits.substring(4);
+        }
+
+        if (ISBN_13.matcher(digits).matches()) {
+            return checkDigit13(digits) == digits.charAt(12) ? digits : null;
+        }
+        if (ISBN_10.matcher(digits).matches() && isValidIsbn10(digits)) {
+            String isbn13 = "978" + digits.substring(0, 9);
+            return isbn13 + checkDigit13(isbn13);
+        }
+        return null;
+    }
+
+    /** Check digit of the first 12 digits, weighted 1 and 3 alternately */
+    private static char checkDigit13(String digits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+
+    /** Weighted 10 down to 1, X is 10, the sum must divide by 11 */
+    private static boolean isValidIsbn10(String digits) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = digits.charAt(i);
+            sum += (10 - i) * (c == 'X' ? 10 : c - '0');
+        }
+        return sum % 11 == 0;
+    }
+}
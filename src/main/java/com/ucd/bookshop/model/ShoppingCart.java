@@ -27,6 +27,13 @@ public class ShoppingCart {
     @Column(name = "created_date")
     private LocalDateTime createdDate;
 
+    /**
+     * Last time the customer changed the cart or went to checkout, holds expire from here
+     */
+    @CreationTimestamp
+    @Column(name = "last_activity_date")
+    private LocalDateTime lastActivityDate;
+
     @NotNull
     @Column(name = "abandoned")
     private Boolean abandoned = false;
@@ -75,6 +82,14 @@ public class ShoppingCart {
         this.createdDate = createdDate;
     }
 
+    public LocalDateTime getLastActivityDate() {
+        return lastActivityDate;
+    }
+
+    public void setLastActivityDate(LocalDateTime lastActivityDate) {
+        this.lastActivityDate = lastActivityDate;
+    }
+
     public Boolean getAbandoned() {
         return abandoned;
     }
@@ -90,6 +105,7 @@ public class ShoppingCart {
                 ", bookId=" + (book != null ? book.getId() : null) +
                 ", customerId=" + (customer != null ? customer.getId() : null) +
                 ", createdDate=" + createdDate +
+                ", lastActivityDate=" + lastActivityDate +
                 ", abandoned=" + abandoned +
                 '}';
     }
@@ -1,33 +1,65 @@
 package com.ucd.bookshop.model;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
 /**
- * POJO for shopping cart
+ * POJO for a shopping cart item with the copies held for it, read straight from query columns rather than
+ * loading the cart, book and customer entities.
  */
-public class ShoppingCartWithInventory extends ShoppingCart {
-
-    private Long copies;
+public class ShoppingCartWithInventory {
 
-    public ShoppingCartWithInventory(Long id, Book book, Customer customer,
-            Boolean abandoned, Long copies) {
-        super(book, customer, abandoned);
+    private final Long id;
+    private final Long bookId;
+    private final String title;
+    private final String author;
+    private final String isbn;
+    private final BigDecimal price;
+    private final LocalDate year;
+    private final Long copies;
 
-        this.setId(id);
+    public ShoppingCartWithInventory(Long id, Long bookId, String title, String author, String isbn,
+            BigDecimal price, LocalDate year, Long copies) {
+        this.id = id;
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+        this.price = price;
+        this.year = year;
         this.copies = copies;
     }
 
-    public ShoppingCartWithInventory(ShoppingCart shoppingCart, Long copies) {
-        super(shoppingCart.getBook(), shoppingCart.getCustomer(), shoppingCart.getAbandoned());
+    public Long getId() {
+        return id;
+    }
 
-        this.setId(shoppingCart.getId());
-        this.copies = copies;
+    public Long getBookId() {
+        return bookId;
     }
 
-    public Long getCopies() {
-        return copies;
+    public String getTitle() {
+        return title;
     }
 
-    public void setCopies(Long copies) {
-        this.copies = copies;
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public LocalDate getYear() {
+        return year;
+    }
+
+    public Long getCopies() {
+        return copies;
     }
 
     /**
@@ -36,14 +68,4 @@ public class ShoppingCartWithInventory extends ShoppingCart {
     public boolean isBookAvailable() {
         return copies != null && copies > 0;
     }
-
-    /**
-     * Convert back
-     */
-    public ShoppingCart toShoppingCart() {
-        ShoppingCart cart = new ShoppingCart(getBook(), getCustomer(), getAbandoned());
-        cart.setId(getId());
-        cart.setCreatedDate(getCreatedDate());
-        return cart;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.Book;
+
+import java.util.List;
+
+/**
+ * JDBC batched writes to book, @see BookBatchRepositoryImpl
+ */
+public interface BookBatchRepository {
+
+    /**
+     * Insert the books and set the id the database gave each of them.
+     */
+    void insertAllInBatch(List<Book> books);
+}
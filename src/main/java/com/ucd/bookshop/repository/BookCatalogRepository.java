@@ -0,0 +1,235 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.controllers.dto.BookField;
+import com.ucd.bookshop.controllers.dto.BookFilterDto;
+import com.ucd.bookshop.controllers.dto.BookFilterDto.Sort;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookInventory;
+import com.ucd.bookshop.model.BookStock;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.criteria.Subquery;
+
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Filtered and sorted pages of the catalog.
+ *
+ * Each sort has its own index ending in book_id (see schema.sql), and filters on author lead a second set of indexes,
+ * so a page is a range scan of one index from the cursor on. Only book ids are selected, which every index covers;
+ * the rows of the page are read by primary key afterwards.
+ *
+ * A price or year range with a sort on another column cannot be served by one index: the database reads every book
+ * in the range and sorts them, or walks the sort index from the cursor past books outside the range. Which it picks
+ * depends on its estimates, see BookCatalogRepositoryTest for what H2 does with each pair.
+ *
+ * A page continues after the cursor book in (sort key, book_id) order, the sort key of the cursor is read back by id.
+ * Books without a year sort lowest, as MySQL and H2 order NULL.
+ */
+@Repository
+public class BookCatalogRepository {
+
+    /** Length of the title_sort and author_key prefixes */
+    static final int KEY_LENGTH = 191;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Ids of up to limit books matching the filter in sort order, after the cursor book
+     *
+     * @param cursor id of the last book of the previous page, null for the first page. A page after a deleted
+     *            cursor book starts over from the first page.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findIds(BookFilterDto filter, Sort sort, Long cursor, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> book = query.from(Book.class);
+        Path<Long> id = book.get("id");
+
+        List<Predicate> where = filters(cb, book, filter);
+        switch (sort) {
+            case PRICE, PRICE_DESC -> orderBy(cb, query, where, book, "price", false, cursor, sort.isDescending());
+            case TITLE, TITLE_DESC -> orderBy(cb, query, where, book, "titleSort", false, cursor, sort.isDescending());
+            case YEAR, YEAR_DESC -> orderBy(cb, query, where, book, "year", true, cursor, sort.isDescending());
+            default -> {
+                if (cursor != null) {
+                    where.add(cb.lessThan(id, cursor));
+                }
+                query.orderBy(cb.desc(id));
+            }
+        }
+
+        query.select(id).where(where.toArray(new Predicate[0]));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Books for the ids with only the columns of the fields, in no order. Fields not read are null, so long titles
+     * and authors are neither read nor sent when not asked for.
+     *
+     * @param withCopies read copies from book_stock when the fields take it in, false when stock comes from memory
+     */
+    @Transactional(readOnly = true)
+    public List<BookInventory> findBooksByIds(Collection<Long> ids, Set<BookField> fields, boolean withCopies) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> book = query.from(Book.class);
+
+        List<Selection<?>> columns = new ArrayList<>();
+        columns.add(book.get("id").alias(BookField.ID.getName()));
+        for (BookField field : fields) {
+            if (field == BookField.COPIES) {
+                if (withCopies) {
+                    Subquery<Long> stock = query.subquery(Long.class);
+                    Root<BookStock> bookStock = stock.from(BookStock.class);
+                    stock.select(bookStock.get("copies")).where(cb.equal(bookStock.get("bookId"), book.get("id")));
+                    columns.add(cb.coalesce(stock, 0L).alias(field.getName()));
+                }
+            } else if (field != BookField.ID) {
+                columns.add(book.get(field.getName()).alias(field.getName()));
+            }
+        }
+        query.multiselect(columns).where(book.get("id").in(ids));
+
+        boolean copies = withCopies && fields.contains(BookField.COPIES);
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(row -> new BookInventory(row.get("id", Long.class),
+                        column(row, fields, BookField.TITLE, String.class),
+                        column(row, fields, BookField.AUTHOR, String.class),
+                        column(row, fields, BookField.ISBN, String.class),
+                        column(row, fields, BookField.PRICE, BigDecimal.class),
+                        column(row, fields, BookField.YEAR, LocalDate.class),
+                        copies ? row.get(BookField.COPIES.getName(), Long.class) : null))
+                .toList();
+    }
+
+    /**
+     * Ids of books with every term in the title, author or ISBN, newest first. Search without BookSearchIndex: each
+     * term is a LIKE over the whole table and accents are not folded, so it is only for bookshop.search.enabled off.
+     *
+     * @param terms lower case words as BookSearchIndex tokenizes them, letters and digits only
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findIdsMatching(List<String> terms, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(book.get("id")).where(matching(cb, book, terms)).orderBy(cb.desc(book.get("id")));
+        return entityManager.createQuery(query).setFirstResult(offset).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Number of books findIdsMatching finds in all
+     */
+    @Transactional(readOnly = true)
+    public long countMatching(List<String> terms) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(cb.count(book)).where(matching(cb, book, terms));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static Predicate[] matching(CriteriaBuilder cb, Root<Book> book, List<String> terms) {
+        Predicate[] where = new Predicate[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            // An ISBN term is the ISBN-13 without hyphens
+            where[i] = cb.or(cb.like(cb.lower(book.get("title")), "%" + term + "%"),
+                    cb.like(cb.lower(book.get("author")), "%" + term + "%"),
+                    cb.equal(book.get("isbn13"), term));
+        }
+        return where;
+    }
+
+    private static <T> T column(Tuple row, Set<BookField> fields, BookField field, Class<T> type) {
+        return fields.contains(field) ? row.get(field.getName(), type) : null;
+    }
+
+    private static List<Predicate> filters(CriteriaBuilder cb, Root<Book> book, BookFilterDto filter) {
+        List<Predicate> where = new ArrayList<>();
+        if (filter.getMinPrice() != null) {
+            where.add(cb.greaterThanOrEqualTo(book.get("price"), filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            where.add(cb.lessThanOrEqualTo(book.get("price"), filter.getMaxPrice()));
+        }
+        if (filter.getFromYear() != null) {
+            where.add(cb.greaterThanOrEqualTo(book.get("year"), LocalDate.of(filter.getFromYear(), 1, 1)));
+        }
+        if (filter.getToYear() != null) {
+            where.add(cb.lessThan(book.get("year"), LocalDate.of(filter.getToYear() + 1, 1, 1)));
+        }
+        if (filter.getAuthor() != null && !filter.getAuthor().isBlank()) {
+            String author = filter.getAuthor().strip().toLowerCase(Locale.ROOT);
+            // The indexed prefix finds the rows, the full name rules out longer names sharing it
+            where.add(cb.equal(book.get("authorKey"), author.substring(0, Math.min(author.length(), KEY_LENGTH))));
+            where.add(cb.equal(cb.lower(book.get("author")), author));
+        }
+        return where;
+    }
+
+    /**
+     * Order by the attribute then id, continuing after the cursor book
+     */
+    private <T extends Comparable<? super T>> void orderBy(CriteriaBuilder cb, CriteriaQuery<Long> query,
+            List<Predicate> where, Root<Book> book, String attribute, boolean nullable, Long cursor, boolean descending) {
+        Path<T> key = book.get(attribute);
+        Path<Long> id = book.get("id");
+        if (cursor != null) {
+            List<T> cursorKey = keyOf(attribute, cursor);
+            if (!cursorKey.isEmpty()) {
+                where.add(after(cb, key, id, cursorKey.get(0), cursor, nullable, descending));
+            }
+        }
+        query.orderBy(descending ? cb.desc(key) : cb.asc(key), descending ? cb.desc(id) : cb.asc(id));
+    }
+
+    /** The sort key of the cursor book, a list as the key itself may be null, empty when the book is gone */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> keyOf(String attribute, Long cursor) {
+        return (List<T>) entityManager
+                .createQuery("select b." + attribute + " from Book b where b.id = :id")
+                .setParameter("id", cursor)
+                .getResultList();
+    }
+
+    /**
+     * Rows after (value, afterId), written so the leading key bound is a range on the sort index. NULL sorts lowest,
+     * so descending pages of a nullable key also take in the NULL rows.
+     */
+    private static <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb, Path<T> key, Path<Long> id,
+            T value, Long afterId, boolean nullable, boolean descending) {
+        if (descending) {
+            if (value == null) {
+                return cb.and(cb.isNull(key), cb.lessThan(id, afterId));
+            }
+            Predicate before = cb.and(cb.lessThanOrEqualTo(key, value),
+                    cb.or(cb.lessThan(key, value), cb.lessThan(id, afterId)));
+            return nullable ? cb.or(before, cb.isNull(key)) : before;
+        }
+        if (value == null) {
+            return cb.or(cb.and(cb.isNull(key), cb.greaterThan(id, afterId)), cb.isNotNull(key));
+        }
+        return cb.and(cb.greaterThanOrEqualTo(key, value), cb.or(cb.greaterThan(key, value), cb.greaterThan(id, afterId)));
+    }
+}
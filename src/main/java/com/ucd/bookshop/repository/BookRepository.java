@@ -2,34 +2,134 @@ package com.ucd.bookshop.repository;
 
 import com.ucd.bookshop.model.Book;
 import com.ucd.bookshop.model.BookInventory;
+import com.ucd.bookshop.model.BookSearchDocument;
+import com.ucd.bookshop.model.CatalogState;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookBatchRepository {
 
    
-    /** Join on the classes(tables) and group by the id */
+    /**
+     * Join on the classes(tables) and group by the id. One page of the catalog, newest first, starting below
+     * beforeId so any page costs a range scan of the primary key rather than an offset.
+     */
     @Query("""
-        select new com.ucd.bookshop.model.BookInventory(b.id, b.title, b.isbn, b.author, b.price, b.year, COALESCE(SUM(i.copies), 0))
+        select new com.ucd.bookshop.model.BookInventory(b.id, b.title, b.author, b.isbn, b.price, b.year, COALESCE(SUM(i.copies), 0))
         from Book b 
         left join Inventory i on i.book.id = b.id 
+        where b.id < :beforeId
         group by b.id
         order by b.id desc
         """)
-    List<BookInventory> findAllBooksWithInventory();
+    List<BookInventory> findBooksWithInventoryBefore(Long beforeId, Limit limit);
 
     
     @Query("""
-        select new com.ucd.bookshop.model.BookInventory(b.id, b.title, b.isbn, b.author, b.price, b.year, COALESCE(SUM(i.copies), 0))
+        select new com.ucd.bookshop.model.BookInventory(b.id, b.title, b.author, b.isbn, b.price, b.year, COALESCE(SUM(i.copies), 0))
         from Book b 
         left join Inventory i on i.book.id = b.id 
         where b.id = :bookId 
         group by b.id
         """)
     BookInventory findBookWithInventoryById(Long bookId);
+
+    /** Same as findBooksWithInventoryBefore but reads the materialized book_stock instead of aggregating the ledger */
+    @Query("""
+        select new com.ucd.bookshop.model.BookInventory(b.id, b.title, b.author, b.isbn, b.price, b.year, COALESCE(s.copies, 0))
+        from Book b
+        left join BookStock s on s.bookId = b.id
+        where b.id < :beforeId
+        order by b.id desc
+        """)
+    List<BookInventory> findBooksWithStockBefore(Long beforeId, Limit limit);
+
+    /** Book rows only, newest first below beforeId, for when stock comes from the stock engine */
+    List<Book> findByIdLessThanOrderByIdDesc(Long beforeId, Limit limit);
+
+    @Query("""
+        select new com.ucd.bookshop.model.BookInventory(b.id, b.title, b.author, b.isbn, b.price, b.year, COALESCE(s.copies, 0))
+        from Book b
+        left join BookStock s on s.bookId = b.id
+        where b.id = :bookId
+        """)
+    BookInventory findBookWithStockById(Long bookId);
+
+    /** Book ids in ascending order after the given id, for background jobs that walk the catalog in chunks */
+    @Query("select b.id from Book b where b.id > :afterId order by b.id")
+    List<Long> findIdsAfter(Long afterId, Limit limit);
+
+    /** Searchable fields in ascending id order after the given id, for seeding the search index in chunks */
+    @Query("""
+        select new com.ucd.bookshop.model.BookSearchDocument(b.id, b.title, b.author, b.isbn)
+        from Book b
+        where b.id > :afterId
+        order by b.id
+        """)
+    List<BookSearchDocument> findSearchDocumentsAfter(Long afterId, Limit limit);
+
+    /** Books of a search or catalog page, in no order. Read-only, so read on a replica when there are any */
+    @Transactional(readOnly = true)
+    @Query("""
+        select new com.ucd.bookshop.model.BookInventory(b.id, b.title, b.author, b.isbn, b.price, b.year, COALESCE(s.copies, 0))
+        from Book b
+        left join BookStock s on s.bookId = b.id
+        where b.id in :ids
+        """)
+    List<BookInventory> findBooksWithStockByIds(Collection<Long> ids);
+
+    /** Lookup by normalized ISBN-13, served by the unique index on isbn13 */
+    @Query("""
+        select new com.ucd.bookshop.model.BookInventory(b.id, b.title, b.author, b.isbn, b.price, b.year, COALESCE(s.copies, 0))
+        from Book b
+        left join BookStock s on s.bookId = b.id
+        where b.isbn13 in :isbn13s
+        """)
+    List<BookInventory> findBooksWithStockByIsbn13In(Collection<String> isbn13s);
+
+    List<Book> findByIsbn13In(Collection<String> isbn13s);
+
+    boolean existsByIsbn13(String isbn13);
+
+    boolean existsByIsbn13AndIdNot(String isbn13, Long id);
+
+    /** Books whose isbn13 has not been filled in, for the backfill */
+    @Query("select b from Book b where b.isbn13 is null and b.id > :afterId order by b.id")
+    List<Book> findWithoutIsbn13After(Long afterId, Limit limit);
+
+    /**
+     * Bulk update, so last_modified_date is set here rather than by the entity
+     */
+    @Modifying
+    @Query("update Book b set b.isbn13 = :isbn13, b.lastModifiedDate = local datetime where b.id = :bookId")
+    int updateIsbn13(Long bookId, String isbn13);
+
+    /**
+     * Deleted book count, highest id, newest last_modified_date and highest ledger id, for the catalog ETag. Each is
+     * one row: the end of the book primary key, of idx_book_last_modified and of the ledger primary key, and the
+     * catalog_version row, so the cost does not grow with the catalog.
+     */
+    @Query("""
+        select new com.ucd.bookshop.model.CatalogState(
+            (select v.deletedBooks from CatalogVersion v where v.id = 1), max(b.id), max(b.lastModifiedDate),
+            (select max(i.id) from Inventory i)
+        )
+        from Book b
+        """)
+    CatalogState findCatalogState();
+
+    @Query("select b.id from Book b where b.id in :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Query("select b.isbn13 from Book b where b.isbn13 in :isbn13s")
+    List<String> findExistingIsbn13s(Collection<String> isbn13s);
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.ucd.bookshop.repository;
+
+import java.util.Map;
+
+/**
+ * JDBC batched writes to book_stock, @see BookStockBatchRepositoryImpl
+ */
+public interface BookStockBatchRepository {
+
+    /**
+     * Add each delta to the stock row of its book. Books without a stock row are left untouched.
+     */
+    void addCopiesInBatch(Map<Long, Long> deltaByBookId);
+
+    /**
+     * Insert a stock row per book, the books must not have one yet.
+     */
+    void insertAllInBatch(Map<Long, Long> copiesByBookId);
+}
@@ -0,0 +1,39 @@
+package com.ucd.bookshop.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+/**
+ * @Notes writes bypass the persistence context, BookStock entities already loaded in the transaction are stale afterwards.
+ */
+public class BookStockBatchRepositoryImpl implements BookStockBatchRepository {
+
+    static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BookStockBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void addCopiesInBatch(Map<Long, Long> deltaByBookId) {
+        jdbcTemplate.batchUpdate("update book_stock set copies = copies + ? where book_id = ?",
+                deltaByBookId.entrySet(), BATCH_SIZE, (ps, entry) -> {
+                    ps.setLong(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                });
+    }
+
+    @Override
+    public void insertAllInBatch(Map<Long, Long> copiesByBookId) {
+        jdbcTemplate.batchUpdate("insert into book_stock (book_id, copies) values (?, ?)",
+                copiesByBookId.entrySet(), BATCH_SIZE, (ps, entry) -> {
+                    ps.setLong(1, entry.getKey());
+                    ps.setLong(2, entry.getValue());
+                });
+    }
+}
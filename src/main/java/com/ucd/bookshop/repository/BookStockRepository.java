@@ -0,0 +1,61 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.BookStock;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BookStockRepository extends JpaRepository<BookStock, Long>, BookStockBatchRepository {
+
+    /**
+     * Apply a ledger delta to the materialized stock of a book.
+     *
+     * @return number of rows updated, 0 when the book has no stock row yet
+     */
+    @Modifying
+    @Query("update BookStock s set s.copies = s.copies + :delta where s.bookId = :bookId")
+    int addCopies(@Param("bookId") Long bookId, @Param("delta") long delta);
+
+    /**
+     * Take copies only if enough are available. The check and the decrement are one statement, so concurrent
+     * reservations can never drive stock below zero.
+     *
+     * @return 1 when reserved, 0 when there are not enough copies
+     */
+    @Modifying
+    @Query("update BookStock s set s.copies = s.copies - :copies where s.bookId = :bookId and s.copies >= :copies")
+    int reserveCopies(@Param("bookId") Long bookId, @Param("copies") long copies);
+
+    /**
+     * Stock of the books, locked until the transaction ends so concurrent adjustments check against the same copies
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from BookStock s where s.bookId in :bookIds")
+    List<BookStock> findAllByBookIdInForUpdate(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("select s.bookId from BookStock s where s.bookId in :bookIds")
+    List<Long> findBookIdsIn(@Param("bookIds") Collection<Long> bookIds);
+
+    /**
+     * Recompute the stock of every book from the inventory ledger. Expects the table to be empty.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        insert into BookStock (bookId, copies)
+        select b.id, COALESCE(SUM(i.copies), 0)
+        from Book b
+        left join Inventory i on i.book.id = b.id
+        group by b.id
+        """)
+    int insertAllFromLedger();
+}
@@ -0,0 +1,117 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.BookInventory;
+import com.ucd.bookshop.model.InventoryLedgerRow;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.function.Consumer;
+
+/**
+ * Reads the whole catalog or ledger row by row through a forward-only cursor, so only fetch-size rows are held at a
+ * time.
+ *
+ * The exports read in id order after a given id, so an export that broke off can be resumed from the last id
+ * received. Each is a single SELECT in a read-only transaction, a consistent read that takes no row locks, and is
+ * sent to a replica when there are any (@see com.ucd.bookshop.config.ReplicaRoutingDataSource). The exports run on
+ * an async thread outside the request, so they read a replica even right after the session wrote.
+ */
+@Repository
+public class BookStreamRepository {
+
+    private static final String BOOKS_WITH_STOCK = """
+            select b.*, coalesce(s.copies, 0) as stock_copies
+            from book b
+            left join book_stock s on s.book_id = b.book_id
+            order by b.book_id desc
+            """;
+
+    private static final String BOOKS_WITH_STOCK_AFTER = """
+            select b.*, coalesce(s.copies, 0) as stock_copies
+            from book b
+            left join book_stock s on s.book_id = b.book_id
+            where b.book_id > ?
+            order by b.book_id
+            """;
+
+    private static final String LEDGER_AFTER = """
+            select inventory_id, book_id, copies, on_hold_for_customer_id, created_date
+            from inventory
+            where inventory_id > ?
+            order by inventory_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${bookshop.catalog.stream.fetch-size:1000}")
+    private int fetchSize;
+
+    @Autowired
+    public BookStreamRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Every book with its stock, newest first, handed to action one at a time
+     */
+    @Transactional(readOnly = true)
+    public void forEachBookWithStock(Consumer<BookInventory> action) {
+        jdbcTemplate.query(con -> prepareCursor(con, BOOKS_WITH_STOCK), (RowCallbackHandler) rs -> action.accept(map(rs)));
+    }
+
+    /**
+     * Every book with its stock after afterId, oldest first, handed to action one at a time
+     */
+    @Transactional(readOnly = true)
+    public void forEachBookWithStockAfter(long afterId, Consumer<BookInventory> action) {
+        jdbcTemplate.query(con -> prepareCursor(con, BOOKS_WITH_STOCK_AFTER, afterId),
+                (RowCallbackHandler) rs -> action.accept(map(rs)));
+    }
+
+    /**
+     * Every inventory ledger row after afterId, in id order, handed to action one at a time
+     */
+    @Transactional(readOnly = true)
+    public void forEachLedgerRowAfter(long afterId, Consumer<InventoryLedgerRow> action) {
+        jdbcTemplate.query(con -> prepareCursor(con, LEDGER_AFTER, afterId),
+                (RowCallbackHandler) rs -> action.accept(mapLedgerRow(rs)));
+    }
+
+    private PreparedStatement prepareCursor(Connection con, String sql, long afterId) throws SQLException {
+        PreparedStatement ps = prepareCursor(con, sql);
+        ps.setLong(1, afterId);
+        return ps;
+    }
+
+    private PreparedStatement prepareCursor(Connection con, String sql) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // Connector/J reads the whole result into memory for any other fetch size, unless useCursorFetch=true
+        boolean mysql = "MySQL".equalsIgnoreCase(con.getMetaData().getDatabaseProductName());
+        ps.setFetchSize(mysql ? Integer.MIN_VALUE : fetchSize);
+        return ps;
+    }
+
+    private static BookInventory map(ResultSet rs) throws SQLException {
+        Date year = rs.getDate("year");
+        return new BookInventory(rs.getLong("book_id"), rs.getString("title"), rs.getString("author"),
+                rs.getString("isbn"), rs.getBigDecimal("price"), year != null ? year.toLocalDate() : null,
+                rs.getLong("stock_copies"));
+    }
+
+    private static InventoryLedgerRow mapLedgerRow(ResultSet rs) throws SQLException {
+        Timestamp created = rs.getTimestamp("created_date");
+        return new InventoryLedgerRow(rs.getLong("inventory_id"), rs.getLong("book_id"), rs.getInt("copies"),
+                rs.getString("on_hold_for_customer_id"), created != null ? created.toLocalDateTime() : null);
+    }
+}
@@ -0,0 +1,17 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.InventoryAdjustment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC batched writes to the inventory ledger, @see InventoryBatchRepositoryImpl
+ */
+public interface InventoryBatchRepository {
+
+    /**
+     * Append one ledger row per adjustment, not on hold for any customer.
+     */
+    void insertAllInBatch(List<InventoryAdjustment> adjustments, LocalDateTime createdDate);
+}
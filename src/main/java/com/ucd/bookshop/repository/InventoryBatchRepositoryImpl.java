@@ -0,0 +1,42 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.InventoryAdjustment;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inserts go straight through JDBC so thousands of rows are sent as a few batches rather than one
+ * persist and identity round trip per row.
+ *
+ * @Notes MySQL only rewrites a batch into multi-row inserts with rewriteBatchedStatements=true on the datasource url.
+ */
+public class InventoryBatchRepositoryImpl implements InventoryBatchRepository {
+
+    static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public InventoryBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAllInBatch(List<InventoryAdjustment> adjustments, LocalDateTime createdDate) {
+        Timestamp created = Timestamp.valueOf(createdDate);
+
+        jdbcTemplate.batchUpdate("""
+                insert into inventory (book_id, copies, on_hold_for_customer_id, created_date)
+                values (?, ?, null, ?)
+                """, adjustments, BATCH_SIZE, (ps, adjustment) -> {
+            ps.setLong(1, adjustment.getBookId());
+            ps.setLong(2, adjustment.getCopies());
+            ps.setTimestamp(3, created);
+        });
+    }
+}
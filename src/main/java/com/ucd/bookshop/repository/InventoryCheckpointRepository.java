@@ -0,0 +1,31 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.InventoryCheckpoint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InventoryCheckpointRepository extends JpaRepository<InventoryCheckpoint, Long> {
+
+    /**
+     * Newest checkpoint at or before a point in time, served by idx_inventory_checkpoint_book(book_id, as_of)
+     */
+    Optional<InventoryCheckpoint> findFirstByBookIdAndAsOfLessThanEqualOrderByAsOfDesc(Long bookId, LocalDateTime asOf);
+
+    /**
+     * Newest checkpoint of each book in the list, books without one are missing from the result
+     */
+    @Query("""
+        select c from InventoryCheckpoint c
+        where c.bookId in :bookIds
+        and c.asOf = (select max(c2.asOf) from InventoryCheckpoint c2 where c2.bookId = c.bookId)
+        """)
+    List<InventoryCheckpoint> findLatestByBookIds(@Param("bookIds") List<Long> bookIds);
+}
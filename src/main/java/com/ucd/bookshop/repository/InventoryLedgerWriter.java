@@ -0,0 +1,95 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.Inventory;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Writes groups of ledger rows for the write-behind appender over a pool of its own, one connection to the primary
+ * database opened on the first write.
+ *
+ * @Notes request threads wait for their group while still holding a connection of the shop's pool, so the writer
+ * must never queue behind them for one. A connection that fails validation, e.g. dropped by the server while idle,
+ * is evicted and replaced before the group is written. @see com.ucd.bookshop.service.InventoryLedgerAppender
+ */
+@Repository
+public class InventoryLedgerWriter {
+
+    private static final String INSERT = """
+            insert into inventory (book_id, copies, on_hold_for_customer_id, created_date)
+            values (?, ?, ?, ?)
+            """;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final HikariDataSource dataSource;
+
+    @Autowired
+    public InventoryLedgerWriter(DataSourceProperties properties) {
+        this(properties.initializeDataSourceBuilder().type(HikariDataSource.class).build());
+    }
+
+    InventoryLedgerWriter(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+        dataSource.setPoolName("inventory-ledger");
+        dataSource.setMaximumPoolSize(1);
+        // Opened on the first write, nothing is held while write-behind is off
+        dataSource.setMinimumIdle(0);
+        dataSource.setAutoCommit(false);
+    }
+
+    /**
+     * Insert the rows as one JDBC batch and commit, keeping their created date.
+     */
+    public synchronized void write(List<Inventory> rows) {
+        try (Connection con = validConnection()) {
+            try (PreparedStatement ps = con.prepareStatement(INSERT)) {
+                for (Inventory row : rows) {
+                    ps.setLong(1, row.getBook().getId());
+                    ps.setInt(2, row.getCopies());
+                    if (row.getOnHoldForCustomerId() != null) {
+                        ps.setInt(3, row.getOnHoldForCustomerId());
+                    } else {
+                        ps.setNull(3, Types.INTEGER);
+                    }
+                    ps.setTimestamp(4, Timestamp.valueOf(row.getCreatedDate()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to write " + rows.size() + " inventory ledger rows", e);
+        }
+    }
+
+    /**
+     * The pooled connection, or a new one when it no longer answers
+     */
+    private Connection validConnection() throws SQLException {
+        Connection con = dataSource.getConnection();
+        if (con.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+            return con;
+        }
+        dataSource.evictConnection(con);
+        return dataSource.getConnection();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,119 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.InventoryPartition;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * MySQL partition maintenance for the inventory table, @see com.ucd.bookshop.service.InventoryPartitionManager
+ */
+@Repository
+public class InventoryPartitionRepository {
+
+    public static final String FUTURE_PARTITION = "p_future";
+
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public InventoryPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Partitioning is MySQL only, H2 keeps a plain table
+     */
+    public boolean isSupported() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        return "MySQL".equalsIgnoreCase(product);
+    }
+
+    /**
+     * Partitions of the inventory table in range order, empty when it is not partitioned
+     */
+    public List<InventoryPartition> findPartitions() {
+        return jdbcTemplate.query("""
+                select partition_name, partition_description from information_schema.partitions
+                where table_schema = database() and table_name = 'inventory' and partition_name is not null
+                order by partition_ordinal_position
+                """, (rs, rowNum) -> new InventoryPartition(rs.getString(1), parseBound(rs.getString(2))));
+    }
+
+    /**
+     * Split the new months off the empty p_future partition, a metadata-only change while it holds no rows
+     */
+    public void addPartitions(List<InventoryPartition> partitions) {
+        String definitions = partitions.stream()
+                .map(p -> String.format("PARTITION %s VALUES LESS THAN ('%s')", p.getName(),
+                        p.getLessThan().format(BOUND_FORMAT)))
+                .collect(Collectors.joining(", "));
+
+        jdbcTemplate.execute(String.format("ALTER TABLE inventory REORGANIZE PARTITION %s INTO (%s, PARTITION %s VALUES LESS THAN (MAXVALUE))",
+                FUTURE_PARTITION, definitions, FUTURE_PARTITION));
+    }
+
+    public boolean isRolledUp(String partitionName) {
+        Integer count = jdbcTemplate.queryForObject(
+                "select count(*) from inventory_partition_archive where partition_name = ?", Integer.class, partitionName);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Move the rows of a partition forward: the net copies of each (book_id, on_hold_for_customer_id) go into one
+     * row at the start of the next partition and the rows they replace are deleted. Must run in one transaction, so
+     * every SUM over the ledger is the same before and after it commits, and the partition is left empty to drop.
+     *
+     * Reads by created_date rather than by partition name, which MySQL prunes to the same partition and which works
+     * on any database. Partitions are rolled up oldest first, so every row before the range end is in this one.
+     *
+     * @return number of rows carried forward
+     */
+    public int rollUp(InventoryPartition partition) {
+        Timestamp rangeEnd = Timestamp.valueOf(partition.getLessThan());
+
+        // Rolled up by an earlier version that copied without deleting, its rows are already counted forward
+        boolean carriedBefore = isRolledUp(partition.getName());
+        int carried = carriedBefore ? 0 : jdbcTemplate.update("""
+                insert into inventory (book_id, copies, on_hold_for_customer_id, created_date)
+                select book_id, sum(copies), on_hold_for_customer_id, ?
+                from inventory
+                where created_date < ?
+                group by book_id, on_hold_for_customer_id
+                having sum(copies) <> 0
+                """, rangeEnd, rangeEnd);
+
+        jdbcTemplate.update("delete from inventory where created_date < ?", rangeEnd);
+
+        if (!carriedBefore) {
+            jdbcTemplate.update("insert into inventory_partition_archive (partition_name, range_end, carried_rows) values (?, ?, ?)",
+                    partition.getName(), rangeEnd, carried);
+        }
+        return carried;
+    }
+
+    /**
+     * Drop a partition, a metadata-only change once rollUp has emptied it
+     */
+    public void dropPartition(String partitionName) {
+        jdbcTemplate.execute(String.format("ALTER TABLE inventory DROP PARTITION %s", partitionName));
+    }
+
+    private static LocalDateTime parseBound(String description) {
+        if (description == null || "MAXVALUE".equalsIgnoreCase(description)) {
+            return null;
+        }
+        String bound = description.replace("'", "").trim();
+        return bound.length() == 10 ? LocalDateTime.parse(bound + " 00:00:00", BOUND_FORMAT)
+                : LocalDateTime.parse(bound, BOUND_FORMAT);
+    }
+}
@@ -1,15 +1,21 @@
 package com.ucd.bookshop.repository;
 
+import com.ucd.bookshop.model.BookStockLevel;
 import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.model.InventoryCompactionGroup;
+import com.ucd.bookshop.model.InventoryLedgerTotal;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+public interface InventoryRepository extends JpaRepository<Inventory, Long>, InventoryBatchRepository {
         
     /**
      * Get total copies for a specific book
@@ -19,4 +25,98 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
 
 
     List<Inventory> findAllByBookId(Long bookId);
-} 
\ No newline at end of file
+
+    /**
+     * Net ledger copies on hold for a customer since a cart item was created, negative while copies are held
+     */
+    @Query("""
+        select coalesce(sum(i.copies), 0) from Inventory i
+        where i.book.id = :bookId and i.onHoldForCustomerId = :customerId and i.createdDate >= :since
+        """)
+    Long getHoldCopies(@Param("bookId") Long bookId, @Param("customerId") Integer customerId,
+            @Param("since") LocalDateTime since);
+
+    /**
+     * Ledger rows of a deleted book, the partitioned inventory table has no foreign key to cascade from
+     */
+    @Modifying
+    @Query("delete from Inventory i where i.book.id = :bookId")
+    int deleteByBookId(@Param("bookId") Long bookId);
+
+    /**
+     * Net ledger copies created in (after, upTo], a range scan of idx_inventory_book_created(book_id, created_date)
+     */
+    @Query("""
+        select coalesce(sum(i.copies), 0) from Inventory i
+        where i.book.id = :bookId and i.createdDate > :after and i.createdDate <= :upTo
+        """)
+    Long sumCopiesBetween(@Param("bookId") Long bookId, @Param("after") LocalDateTime after,
+            @Param("upTo") LocalDateTime upTo);
+
+    @Query("select coalesce(sum(i.copies), 0) from Inventory i where i.book.id = :bookId and i.createdDate <= :upTo")
+    Long sumCopiesUpTo(@Param("bookId") Long bookId, @Param("upTo") LocalDateTime upTo);
+
+    /**
+     * Ledger total up to a point in time for each book in the list that has ledger rows
+     */
+    @Query("""
+        select new com.ucd.bookshop.model.InventoryLedgerTotal(i.book.id, COALESCE(SUM(i.copies), 0), MAX(i.createdDate))
+        from Inventory i
+        where i.book.id in :bookIds and i.createdDate <= :upTo
+        group by i.book.id
+        """)
+    List<InventoryLedgerTotal> findLedgerTotals(@Param("bookIds") List<Long> bookIds,
+            @Param("upTo") LocalDateTime upTo);
+
+    /**
+     * Available and on hold copies for every book in the ledger
+     */
+    @Query("""
+        select new com.ucd.bookshop.model.BookStockLevel(
+            i.book.id,
+            COALESCE(SUM(i.copies), 0),
+            COALESCE(SUM(case when i.onHoldForCustomerId is not null then -i.copies else 0 end), 0)
+        )
+        from Inventory i
+        group by i.book.id
+        """)
+    List<BookStockLevel> findAllStockLevels();
+
+    /**
+     * Ledger rows older than the cutoff, per book and hold, where there is more than one row to fold
+     */
+    @Query("""
+        select new com.ucd.bookshop.model.InventoryCompactionGroup(
+            i.book.id, i.onHoldForCustomerId, COALESCE(SUM(i.copies), 0), COUNT(i), MAX(i.id), MAX(i.createdDate)
+        )
+        from Inventory i
+        where i.book.id in :bookIds and i.createdDate < :cutoff
+        group by i.book.id, i.onHoldForCustomerId
+        having COUNT(i) > 1
+        """)
+    List<InventoryCompactionGroup> findCompactionGroups(@Param("bookIds") List<Long> bookIds,
+            @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Insert a checkpoint row carrying the created date of the newest row it replaces
+     */
+    @Modifying
+    @Query(value = """
+        insert into inventory (book_id, copies, on_hold_for_customer_id, created_date)
+        values (:bookId, :copies, :customerId, :createdDate)
+        """, nativeQuery = true)
+    int insertCheckpoint(@Param("bookId") Long bookId, @Param("copies") Long copies,
+            @Param("customerId") Integer customerId, @Param("createdDate") LocalDateTime createdDate);
+
+    /**
+     * Delete the rows of a compaction group, bounded by id so rows added since the group was read are kept
+     */
+    @Modifying
+    @Query("""
+        delete from Inventory i
+        where i.book.id = :bookId and i.id <= :maxInventoryId and i.createdDate < :cutoff
+        and (i.onHoldForCustomerId = :customerId or (:customerId is null and i.onHoldForCustomerId is null))
+        """)
+    int deleteCompactedRows(@Param("bookId") Long bookId, @Param("customerId") Integer customerId,
+            @Param("maxInventoryId") Long maxInventoryId, @Param("cutoff") LocalDateTime cutoff);
+} 
@@ -3,6 +3,7 @@ package com.ucd.bookshop.repository;
 import com.ucd.bookshop.model.ShoppingCart;
 import com.ucd.bookshop.model.ShoppingCartWithInventory;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -10,12 +11,32 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ShoppingCartRepository extends JpaRepository<ShoppingCart, Long> {
 
+    /**
+     * Cart items with the copies each holds, summed from the customer's hold rows in the ledger since the item was
+     * added. Followed by a where clause on sc and GROUP_BY_CART_ITEM.
+     */
+    String CART_ITEMS_WITH_HOLDS = """
+        select new com.ucd.bookshop.model.ShoppingCartWithInventory(
+            sc.id, b.id, b.title, b.author, b.isbn, b.price, b.year,
+            COALESCE(SUM(i.copies), 0) * -1
+        )
+        from ShoppingCart sc
+        inner join sc.book b
+        inner join Inventory i on i.book.id = b.id and i.onHoldForCustomerId = sc.customer.id
+            and i.createdDate >= sc.createdDate
+        """;
+
+    String GROUP_BY_CART_ITEM = """
+        group by sc.id, b.id, b.title, b.author, b.isbn, b.price, b.year
+        """;
+
     @Modifying
     @Transactional
     void deleteByCustomerId(Integer customerId);
@@ -25,18 +46,45 @@ public interface ShoppingCartRepository extends JpaRepository<ShoppingCart, Long
     Optional<ShoppingCart> findByCustomerIdAndBookIdAndAbandonedFalse(Integer customerId, Long bookId);
 
     /**
-     * Get shopping cart items with inventory for  customer
+     * Get shopping cart items with inventory for  customer, as book columns rather than entities
+     *
+     * @Notes hold rows are never older than their cart item, bounding created_date prunes older ledger partitions.
+     * Read-only, so read on a replica unless the request or session has just written, @see ReplicaRoutingDataSource
      */
-    @Query("""
-        select new com.ucd.bookshop.model.ShoppingCartWithInventory(
-            sc.id, sc.book, sc.customer, sc.abandoned, 
-            COALESCE(SUM(i.copies), 0) * -1
-        )
-        from ShoppingCart sc 
-        inner join Inventory i on i.book.id = sc.book.id and i.onHoldForCustomerId = sc.customer.id
+    @Transactional(readOnly = true)
+    @Query(CART_ITEMS_WITH_HOLDS + """
         where sc.customer.id = :customerId and sc.abandoned = false
-        group by sc.id, sc.book, sc.customer, sc.abandoned
-        """)
+        """ + GROUP_BY_CART_ITEM)
     List<ShoppingCartWithInventory> findShoppingCartWithInventoryByCustomerId(@Param("customerId") Integer customerId);
 
+    /**
+     * Open cart items with no activity since the cutoff, least recently active first. Served by
+     * idx_shopping_cart_open(abandoned, last_activity_date)
+     */
+    @Query("""
+        select sc from ShoppingCart sc
+        where sc.abandoned = false and sc.lastActivityDate < :cutoff
+        order by sc.lastActivityDate
+        """)
+    List<ShoppingCart> findOpenInactiveSince(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    /**
+     * Copies held for each of the cart items, in one grouped read of the ledger. Items holding nothing are left out
+     */
+    @Query(CART_ITEMS_WITH_HOLDS + """
+        where sc.id in :ids
+        """ + GROUP_BY_CART_ITEM)
+    List<ShoppingCartWithInventory> findHoldsByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Mark the customer's open cart as active now, restarting the hold TTL of every item in it
+     */
+    @Modifying
+    @Query("update ShoppingCart sc set sc.lastActivityDate = :at where sc.customer.id = :customerId and sc.abandoned = false")
+    int touchOpenCart(@Param("customerId") Integer customerId, @Param("at") LocalDateTime at);
+
+    @Modifying
+    @Query("update ShoppingCart sc set sc.abandoned = true where sc.id in :ids")
+    int markAbandoned(@Param("ids") List<Long> ids);
+
 } 
\ No newline at end of file
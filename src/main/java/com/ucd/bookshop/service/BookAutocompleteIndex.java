@@ -0,0 +1,284 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.AutocompleteSuggestionDto;
+import com.ucd.bookshop.controllers.dto.AutocompleteSuggestionDto.Type;
+import com.ucd.bookshop.event.BookChangedEvent;
+import com.ucd.bookshop.event.BooksImportedEvent;
+import com.ucd.bookshop.event.ChangeListenerOrder;
+import com.ucd.bookshop.model.BookSearchDocument;
+import com.ucd.bookshop.repository.BookRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * In-process type-ahead over book titles and authors, no database round trip per keystroke.
+ *
+ * Every distinct title and author is a key of a sorted map, folded to lower case without accents, weighted by the
+ * number of books sharing it. The completions of a prefix are the keys from the prefix onwards that still start with
+ * it, one O(log n) seek then a walk of the range keeping the limit heaviest in a bounded heap, ties alphabetical.
+ *
+ * The range of a one or two letter prefix can hold a large part of the catalog, so its top max-limit completions
+ * are kept once found, until a book whose title or author starts with it changes.
+ *
+ * Seeded from the book table before the application takes traffic, then follows every committed BookChangedEvent
+ * and BooksImportedEvent.
+ *
+ * @Notes only sees changes made by this node, like the search index.
+ */
+@Component
+public class BookAutocompleteIndex implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookAutocompleteIndex.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final int SEED_CHUNK_SIZE = 10000;
+
+    /** Prefixes up to this length keep their top completions */
+    private static final int KEPT_PREFIX_LENGTH = 2;
+
+    /** Most books first, then alphabetical, then titles before authors */
+    private static final Comparator<Match> RANK = Comparator.<Match>comparingInt(match -> match.completion.books)
+            .reversed()
+            .thenComparing(match -> match.key)
+            .thenComparing(match -> match.type);
+
+    private final BookRepository bookRepository;
+
+    private final ConcurrentSkipListMap<String, Completion> titles = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentSkipListMap<String, Completion> authors = new ConcurrentSkipListMap<>();
+
+    /** Title and author key of each book, to count it out on update or delete */
+    private final ConcurrentHashMap<Long, String[]> bookKeys = new ConcurrentHashMap<>();
+
+    /** Top max-limit completions of the short prefixes looked up since their last change */
+    private final ConcurrentHashMap<String, List<Match>> keptTop = new ConcurrentHashMap<>();
+
+    private final AtomicLong changes = new AtomicLong();
+
+    @Value("${bookshop.autocomplete.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookshop.autocomplete.max-limit:20}")
+    private int maxLimit = 20;
+
+    @Autowired
+    public BookAutocompleteIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            seed();
+        }
+    }
+
+    /**
+     * Titles and authors starting with the prefix, the most books first
+     *
+     * @param limit capped at max-limit
+     */
+    public List<AutocompleteSuggestionDto> complete(String prefix, int limit) {
+        String key = prefix == null ? "" : normalize(prefix);
+        int wanted = Math.min(limit, maxLimit);
+        if (key.isEmpty() || wanted <= 0) {
+            return List.of();
+        }
+
+        List<Match> top = key.length() > KEPT_PREFIX_LENGTH ? top(key, wanted) : keptTop.get(key);
+        if (top == null) {
+            long readAt = changes.get();
+            top = top(key, maxLimit);
+            keptTop.put(key, top);
+            // Recheck, a change may have been dropping kept lists while this one was found
+            if (changes.get() != readAt) {
+                keptTop.remove(key);
+            }
+        }
+        return top.stream().limit(wanted).map(match -> match.completion.toDto(match.type)).toList();
+    }
+
+    /** The wanted heaviest completions of the prefix, in rank order */
+    private List<Match> top(String key, int wanted) {
+        // Lightest of the best so far at the head
+        PriorityQueue<Match> best = new PriorityQueue<>(wanted + 1, RANK.reversed());
+        collect(titles, key, Type.TITLE, best, wanted);
+        collect(authors, key, Type.AUTHOR, best, wanted);
+
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(RANK);
+        return List.copyOf(ranked);
+    }
+
+    private static void collect(ConcurrentSkipListMap<String, Completion> completions, String prefix, Type type,
+            PriorityQueue<Match> best, int wanted) {
+        for (Map.Entry<String, Completion> entry : completions.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                return;
+            }
+            best.add(new Match(entry.getKey(), type, entry.getValue()));
+            if (best.size() > wanted) {
+                best.poll();
+            }
+        }
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        if (event.getChangeType() == BookChangedEvent.ChangeType.DELETED) {
+            remove(event.getBookId());
+        } else {
+            index(new BookSearchDocument(event.getBook()));
+        }
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onBooksImported(BooksImportedEvent event) {
+        if (enabled) {
+            indexAll(event.getBooks().stream().map(BookSearchDocument::new).toList());
+        }
+    }
+
+    /**
+     * Add a book, or replace its title and author
+     */
+    synchronized void index(BookSearchDocument document) {
+        changed(put(document));
+    }
+
+    /**
+     * Add many books, e.g. a chunk of an import, dropping the kept lists once for all of them
+     */
+    synchronized void indexAll(List<BookSearchDocument> documents) {
+        List<String> keys = new ArrayList<>(documents.size() * 2);
+        for (BookSearchDocument document : documents) {
+            keys.addAll(Arrays.asList(put(document)));
+        }
+        changed(keys.toArray(new String[0]));
+    }
+
+    /** @return the title and author keys now indexed for the book */
+    private String[] put(BookSearchDocument document) {
+        remove(document.getId());
+
+        String[] keys = { add(titles, document.getTitle()), add(authors, document.getAuthor()) };
+        bookKeys.put(document.getId(), keys);
+        return keys;
+    }
+
+    synchronized void remove(Long bookId) {
+        String[] keys = bookKeys.remove(bookId);
+        if (keys != null) {
+            subtract(titles, keys[0]);
+            subtract(authors, keys[1]);
+            changed(keys);
+        }
+    }
+
+    /** Drop the kept lists of the short prefixes of the keys */
+    private void changed(String... keys) {
+        changes.incrementAndGet();
+        for (String key : keys) {
+            for (int length = 1; key != null && length <= Math.min(KEPT_PREFIX_LENGTH, key.length()); length++) {
+                keptTop.remove(key.substring(0, length));
+            }
+        }
+    }
+
+    private synchronized void seed() {
+        long afterId = 0;
+        List<BookSearchDocument> chunk;
+        do {
+            chunk = bookRepository.findSearchDocumentsAfter(afterId, Limit.of(SEED_CHUNK_SIZE));
+            for (BookSearchDocument document : chunk) {
+                index(document);
+                afterId = document.getId();
+            }
+        } while (chunk.size() == SEED_CHUNK_SIZE);
+
+        logger.info("Indexed {} titles and {} authors for autocomplete", titles.size(), authors.size());
+    }
+
+    /** @return the key, null when the text is blank */
+    private static String add(ConcurrentSkipListMap<String, Completion> completions, String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+
+        String key = normalize(text);
+        // Books sharing a title or author share one completion, shown as first written
+        completions.compute(key, (k, completion) ->
+                completion == null ? new Completion(text.strip(), 1) : completion.withBooks(completion.books + 1));
+        return key;
+    }
+
+    private static void subtract(ConcurrentSkipListMap<String, Completion> completions, String key) {
+        if (key != null) {
+            completions.computeIfPresent(key, (k, completion) ->
+                    completion.books == 1 ? null : completion.withBooks(completion.books - 1));
+        }
+    }
+
+    static String normalize(String text) {
+        return WHITESPACE.matcher(BookSearchIndex.fold(text).strip()).replaceAll(" ");
+    }
+
+    private static final class Match {
+
+        private final String key;
+        private final Type type;
+        private final Completion completion;
+
+        private Match(String key, Type type, Completion completion) {
+            this.key = key;
+            this.type = type;
+            this.completion = completion;
+        }
+    }
+
+    private static final class Completion {
+
+        private final String text;
+        private final int books;
+
+        private Completion(String text, int books) {
+            this.text = text;
+            this.books = books;
+        }
+
+        private Completion withBooks(int books) {
+            return new Completion(text, books);
+        }
+
+        private AutocompleteSuggestionDto toDto(Type type) {
+            return new AutocompleteSuggestionDto(text, type, books);
+        }
+    }
+}
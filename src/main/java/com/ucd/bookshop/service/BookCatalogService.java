@@ -0,0 +1,141 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.BookField;
+import com.ucd.bookshop.controllers.dto.BookFilterDto;
+import com.ucd.bookshop.controllers.dto.BookPageDto;
+import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.controllers.dto.CatalogFacetsDto;
+import com.ucd.bookshop.model.BookInventory;
+import com.ucd.bookshop.repository.BookCatalogRepository;
+import com.ucd.bookshop.repository.BookRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Browsing the catalog by price, year and author in a chosen order, with facet counts to narrow it down. The
+ * unfiltered newest first catalog is left to BookInventoryService and its cache.
+ */
+@Service
+public class BookCatalogService {
+
+    private final BookInventoryService bookInventoryService;
+
+    private final BookCatalogRepository bookCatalogRepository;
+
+    private final BookRepository bookRepository;
+
+    private final InventoryStockEngine inventoryStockEngine;
+
+    private final CatalogFacets catalogFacets;
+
+    @Value("${bookshop.catalog.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${bookshop.catalog.max-page-size:200}")
+    private int maxPageSize;
+
+    @Autowired
+    public BookCatalogService(BookInventoryService bookInventoryService, BookCatalogRepository bookCatalogRepository,
+            BookRepository bookRepository, InventoryStockEngine inventoryStockEngine, CatalogFacets catalogFacets) {
+        this.bookInventoryService = bookInventoryService;
+        this.bookCatalogRepository = bookCatalogRepository;
+        this.bookRepository = bookRepository;
+        this.inventoryStockEngine = inventoryStockEngine;
+        this.catalogFacets = catalogFacets;
+    }
+
+    /**
+     * Get one page of the books matching the filter, in its sort order
+     *
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param size books per page, null for the default, capped at max-page-size
+     * @throws IllegalArgumentException when the sort is not known
+     */
+    public BookPageDto getBooksPage(BookFilterDto filter, Long cursor, Integer size) {
+        return getBooksPage(filter, cursor, size, BookField.ALL);
+    }
+
+    /**
+     * Get one page of the books matching the filter, reading only the columns of the fields. Fields not asked for
+     * may be null, unless the page was already cached whole.
+     *
+     * @param fields fields to read, ALL for the whole book
+     * @throws IllegalArgumentException when the sort is not known
+     */
+    public BookPageDto getBooksPage(BookFilterDto filter, Long cursor, Integer size, Set<BookField> fields) {
+        boolean unfiltered = filter == null || filter.isUnfiltered();
+        if (unfiltered) {
+            if (fields.equals(BookField.ALL)) {
+                return bookInventoryService.getBooksPage(cursor, size);
+            }
+            // A cached page costs no read at all, a narrow read is not cached as it would not serve the whole book
+            BookPageDto cached = bookInventoryService.getCachedBooksPage(cursor, size);
+            if (cached != null) {
+                return cached;
+            }
+            filter = filter != null ? filter : new BookFilterDto();
+        }
+
+        BookFilterDto.Sort sort = filter.getSortOrder();
+        if (sort == null) {
+            throw new IllegalArgumentException("Unknown sort " + filter.getSort());
+        }
+
+        int pageSize = size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+        // One extra id tells whether there is a next page without a count query
+        List<Long> ids = bookCatalogRepository.findIds(filter, sort, cursor, pageSize + 1);
+        if (ids.size() <= pageSize) {
+            return new BookPageDto(load(ids, fields), null);
+        }
+        List<Long> pageIds = ids.subList(0, pageSize);
+        return new BookPageDto(load(pageIds, fields), pageIds.get(pageSize - 1));
+    }
+
+    /**
+     * Books per author, decade, price band and stock status across the catalog, from memory. Null when facets are
+     * disabled.
+     */
+    public CatalogFacetsDto getFacets() {
+        return catalogFacets.getFacets();
+    }
+
+    /**
+     * Version of the catalog, moves on with every book or stock change
+     */
+    public String getCatalogVersionTag() {
+        return bookInventoryService.getCatalogVersionTag();
+    }
+
+    /**
+     * Books for the ids in the order given
+     */
+    private List<BookWithInventoryDto> load(List<Long> bookIds, Set<BookField> fields) {
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<BookInventory> books = fields.equals(BookField.ALL)
+                ? bookRepository.findBooksWithStockByIds(bookIds)
+                : bookCatalogRepository.findBooksByIds(bookIds, fields, !inventoryStockEngine.isEnabled());
+        Map<Long, BookInventory> byId = books.stream()
+                .collect(Collectors.toMap(BookInventory::getId, Function.identity()));
+
+        boolean copies = inventoryStockEngine.isEnabled() && fields.contains(BookField.COPIES);
+        // A book deleted since its id was read is skipped
+        return bookIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(book -> copies ? book.withCopies(inventoryStockEngine.getAvailable(book.getId())) : book)
+                .map(BookWithInventoryDto::new)
+                .toList();
+    }
+}
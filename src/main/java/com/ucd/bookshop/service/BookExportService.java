@@ -0,0 +1,169 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.model.InventoryLedgerRow;
+import com.ucd.bookshop.repository.BookStreamRepository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes the whole catalog straight from a database cursor to an output stream. Each row becomes one DTO that is
+ * serialized and dropped before the next is read, so memory stays flat whatever the size of the catalog.
+ *
+ * The JSON stream and the book and ledger exports hold a pooled connection for as long as the client reads, so at most max-concurrent
+ * of them run at once, leaving the pool to the shop. The caller reserves a slot before it starts one and turns the
+ * request away when none is free, rather than holding a request thread while it waits.
+ */
+@Service
+public class BookExportService {
+
+    static final String[] BOOK_COLUMNS = { "id", "title", "author", "isbn", "price", "year", "copies" };
+
+    static final String[] LEDGER_COLUMNS = { "id", "bookId", "copies", "onHoldForCustomerId", "createdDate" };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BookStreamRepository bookStreamRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final Semaphore exports;
+
+    @Autowired
+    public BookExportService(BookStreamRepository bookStreamRepository, ObjectMapper objectMapper,
+            @Value("${bookshop.export.max-concurrent:2}") int maxConcurrent) {
+        this.bookStreamRepository = bookStreamRepository;
+        this.objectMapper = objectMapper;
+        this.exports = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Reserve one of the max-concurrent slots for writeJson, writeBooks or writeLedger, without waiting
+     *
+     * @return the slot, to release once the export is over, or null when every slot is taken
+     */
+    public ExportSlot tryReserve() {
+        return exports.tryAcquire() ? new ExportSlot(exports) : null;
+    }
+
+    /**
+     * Every book with its total copies as one JSON array, newest first, the same shape as GET /v1/api/books, in a
+     * slot from tryReserve
+     */
+    public void writeJson(OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartArray();
+            bookStreamRepository.forEachBookWithStock(book -> {
+                try {
+                    json.writeObject(new BookWithInventoryDto(book));
+                } catch (IOException e) {
+                    // Client went away, stops the cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Every book with its total copies after afterId, oldest first, in a slot from tryReserve. CSV has the columns the import reads plus id,
+     * NDJSON the shape of GET /v1/api/books/{id}. The stream is flushed, not closed.
+     */
+    public void writeBooks(OutputStream out, FileFormat format, long afterId) throws IOException {
+        this.<BookWithInventoryDto>export(out, format, BOOK_COLUMNS,
+                row -> bookStreamRepository.forEachBookWithStockAfter(afterId,
+                        book -> row.accept(new BookWithInventoryDto(book))),
+                book -> new Object[] { book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getPrice(),
+                        book.getYear(), book.getCopies() });
+    }
+
+    /**
+     * Every inventory ledger row after afterId, in id order, in a slot from tryReserve. The stream is flushed, not closed.
+     */
+    public void writeLedger(OutputStream out, FileFormat format, long afterId) throws IOException {
+        this.<InventoryLedgerRow>export(out, format, LEDGER_COLUMNS,
+                row -> bookStreamRepository.forEachLedgerRowAfter(afterId, row),
+                entry -> new Object[] { entry.getId(), entry.getBookId(), entry.getCopies(),
+                        entry.getOnHoldForCustomerId(), entry.getCreatedDate() });
+    }
+
+    /**
+     * Write each row the source hands over, as a CSV record of its fields or as a line of JSON
+     */
+    private <T> void export(OutputStream out, FileFormat format, String[] columns, Consumer<Consumer<T>> source,
+            Function<T, Object[]> fields) throws IOException {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            if (format == FileFormat.CSV) {
+                CsvRecordWriter csv = new CsvRecordWriter(writer);
+                csv.write((Object[]) columns);
+                source.accept(row -> write(() -> csv.write(fields.apply(row))));
+            } else {
+                JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+                // One value per line, without the space Jackson puts between root values
+                json.setRootValueSeparator(null);
+                source.accept(row -> write(() -> {
+                    json.writeObject(row);
+                    json.writeRaw('\n');
+                }));
+                json.flush();
+            }
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A reserved export slot. Released at most once, so the end of the body and the end of the request may both
+     * release it.
+     */
+    public static final class ExportSlot {
+
+        private final Semaphore exports;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ExportSlot(Semaphore exports) {
+            this.exports = exports;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                exports.release();
+            }
+        }
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static void write(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            // Client went away, stops the cursor
+            throw new UncheckedIOException(e);
+        }
+    }
+}
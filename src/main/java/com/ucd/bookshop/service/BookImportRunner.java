@@ -0,0 +1,61 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.BookImportErrorDto;
+import com.ucd.bookshop.controllers.dto.BookImportResultDto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Imports books from a file when the application is started with --import-books=<file>, CSV when the file name ends
+ * in .csv and NDJSON otherwise. @see BookImportService
+ *
+ * e.g. mvn spring-boot:run -Dspring-boot.run.arguments=--import-books=backlist.csv
+ */
+@Component
+public class BookImportRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportRunner.class);
+
+    static final String IMPORT_OPTION = "import-books";
+
+    private final BookImportService bookImportService;
+
+    @Autowired
+    public BookImportRunner(BookImportService bookImportService) {
+        this.bookImportService = bookImportService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!args.containsOption(IMPORT_OPTION)) {
+            return;
+        }
+
+        for (String file : args.getOptionValues(IMPORT_OPTION)) {
+            Path path = Path.of(file);
+            FileFormat format = path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")
+                    ? FileFormat.CSV : FileFormat.NDJSON;
+
+            BookImportResultDto result;
+            try (InputStream in = Files.newInputStream(path)) {
+                result = bookImportService.importBooks(in, format);
+            }
+            for (BookImportErrorDto error : result.getErrors()) {
+                logger.warn("{} line {}: {}", file, error.getLine(), error.getMessage());
+            }
+            logger.info("Imported {} of {} books from {}, {} rejected", result.getImported(), result.getRows(), file,
+                    result.getRejected());
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.BookImportErrorDto;
+import com.ucd.bookshop.controllers.dto.BookImportResultDto;
+import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.event.BooksImportedEvent;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.InventoryAdjustment;
+import com.ucd.bookshop.model.Isbn;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Creates books in bulk from CSV or NDJSON, e.g. a publisher's backlist.
+ *
+ * The input is read one row at a time and each row is validated like POST /v1/api/books. Valid rows are written
+ * chunk-size at a time, each chunk in its own transaction as JDBC batches of books, ledger rows and book_stock rows,
+ * so memory stays flat whatever the size of the file. A chunk the database rejects is split in halves and written
+ * again, until only the rows it rejects on their own are left out.
+ *
+ * A row is rejected when it does not parse, fails validation, or has the ISBN of a book already saved or of an
+ * earlier row. Rows with an ISBN that is not valid are imported without isbn13, as POST /v1/api/books does.
+ *
+ * Each chunk publishes one BooksImportedEvent once committed, rather than an event per book.
+ *
+ * @Notes chunks already written stay written when a later one fails, importing the same file again rejects them
+ * as duplicates.
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    /** Columns a CSV header must name, in any order. Other columns are ignored */
+    static final List<String> CSV_COLUMNS = List.of("title", "author", "isbn", "price", "year", "copies");
+
+    private static final String DUPLICATE = "Book already exists with isbn : '%s'";
+
+    private final BookRepository bookRepository;
+    private final InventoryRepository inventoryRepository;
+    private final BookStockService bookStockService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${bookshop.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    /** Rejected rows listed in the result, the rest are only counted */
+    @Value("${bookshop.import.max-errors:1000}")
+    private int maxErrors = 1000;
+
+    @Autowired
+    public BookImportService(BookRepository bookRepository, InventoryRepository inventoryRepository,
+            BookStockService bookStockService, ApplicationEventPublisher eventPublisher, Validator validator,
+            ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.bookStockService = bookStockService;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Create a book with its copies for every valid row of the input, read as UTF-8. NDJSON lines are books in the
+     * shape of GET /v1/api/books/{id}, CSV years may be yyyy or yyyy-MM-dd.
+     *
+     * @throws IllegalArgumentException when the CSV header does not name every column
+     */
+    public BookImportResultDto importBooks(InputStream in, FileFormat format) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowSource rows = format == FileFormat.CSV ? new CsvRows(new CsvRecordReader(reader)) : new NdjsonRows(reader);
+
+        BookImportResultDto result = new BookImportResultDto();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        ImportRow row;
+        while ((row = rows.next()) != null) {
+            result.setRows(result.getRows() + 1);
+            String error = row.error != null ? row.error : validate(row.book);
+            if (error != null) {
+                reject(result, row, error);
+                continue;
+            }
+
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                write(chunk, result);
+                chunk.clear();
+            }
+        }
+        write(chunk, result);
+
+        logger.info("Imported {} of {} books, {} rejected", result.getImported(), result.getRows(),
+                result.getRejected());
+        return result;
+    }
+
+    private String validate(BookWithInventoryDto book) {
+        Set<ConstraintViolation<BookWithInventoryDto>> violations = validator.validate(book);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+        }
+        // Ledger rows hold an int
+        if (book.getCopies() < Integer.MIN_VALUE || book.getCopies() > Integer.MAX_VALUE) {
+            return "Copies must be between " + Integer.MIN_VALUE + " and " + Integer.MAX_VALUE;
+        }
+        return null;
+    }
+
+    private void write(List<ImportRow> chunk, BookImportResultDto result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<ImportRow> duplicates;
+        try {
+            duplicates = transactionTemplate.execute(status -> writeChunk(chunk));
+        } catch (DataAccessException e) {
+            // e.g. a book with the same ISBN saved meanwhile, nothing of the chunk was written
+            if (chunk.size() > 1) {
+                // Write each half on its own until the rows that fail are found, the rest still import
+                logger.info("Import chunk from line {} failed, retrying it in halves", chunk.get(0).line);
+                int half = chunk.size() / 2;
+                write(new ArrayList<>(chunk.subList(0, half)), result);
+                write(new ArrayList<>(chunk.subList(half, chunk.size())), result);
+                return;
+            }
+            logger.warn("Import of line {} failed", chunk.get(0).line, e);
+            reject(result, chunk.get(0), "Not imported: " + e.getMostSpecificCause().getMessage());
+            return;
+        }
+
+        duplicates.forEach(row -> reject(result, row, String.format(DUPLICATE, row.book.getIsbn())));
+        result.setImported(result.getImported() + chunk.size() - duplicates.size());
+    }
+
+    /**
+     * Insert the books of the chunk that are not duplicates, with a ledger row and stock row each
+     *
+     * @return the duplicates
+     */
+    private List<ImportRow> writeChunk(List<ImportRow> chunk) {
+        Set<String> isbn13s = new HashSet<>();
+        for (ImportRow row : chunk) {
+            String isbn13 = Isbn.toIsbn13(row.book.getIsbn());
+            if (isbn13 != null) {
+                isbn13s.add(isbn13);
+            }
+        }
+        // Earlier chunks are already committed, so this also finds duplicates across chunks
+        Set<String> taken = isbn13s.isEmpty() ? new HashSet<>()
+                : new HashSet<>(bookRepository.findExistingIsbn13s(isbn13s));
+
+        List<ImportRow> duplicates = new ArrayList<>();
+        List<Book> books = new ArrayList<>(chunk.size());
+        List<Long> copies = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            BookWithInventoryDto dto = row.book;
+            String isbn13 = Isbn.toIsbn13(dto.getIsbn());
+            if (isbn13 != null && !taken.add(isbn13)) {
+                duplicates.add(row);
+                continue;
+            }
+            books.add(new Book(null, dto.getTitle(), dto.getAuthor(), dto.getIsbn(), dto.getPrice(), dto.getYear()));
+            copies.add(dto.getCopies());
+        }
+        if (books.isEmpty()) {
+            return duplicates;
+        }
+
+        bookRepository.insertAllInBatch(books);
+
+        // Every book gets a ledger row, even with no copies, as createBookInventory does
+        List<InventoryAdjustment> ledger = new ArrayList<>(books.size());
+        Map<Long, Long> copiesByBookId = new LinkedHashMap<>();
+        for (int i = 0; i < books.size(); i++) {
+            ledger.add(new InventoryAdjustment(books.get(i).getId(), copies.get(i)));
+            copiesByBookId.put(books.get(i).getId(), copies.get(i));
+        }
+        inventoryRepository.insertAllInBatch(ledger, LocalDateTime.now());
+        bookStockService.applyDeltas(copiesByBookId);
+
+        // One event for the chunk, the indexes merge it in one pass rather than a book at a time
+        eventPublisher.publishEvent(new BooksImportedEvent(books, copiesByBookId));
+        return duplicates;
+    }
+
+    private void reject(BookImportResultDto result, ImportRow row, String error) {
+        result.setRejected(result.getRejected() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new BookImportErrorDto(row.line, row.book != null ? row.book.getIsbn() : null, error));
+        }
+    }
+
+    /** A parsed row, or the reason it did not parse */
+    private static final class ImportRow {
+
+        private final long line;
+        private final BookWithInventoryDto book;
+        private final String error;
+
+        private ImportRow(long line, BookWithInventoryDto book, String error) {
+            this.line = line;
+            this.book = book;
+            this.error = error;
+        }
+    }
+
+    private interface RowSource {
+
+        /** The next row, null at the end of the input */
+        ImportRow next() throws IOException;
+    }
+
+    private static final class CsvRows implements RowSource {
+
+        private final CsvRecordReader records;
+
+        /** Index of each column in a record */
+        private Map<String, Integer> columns;
+
+        /** Fields in the header, every record must have as many */
+        private int width;
+
+        private CsvRows(CsvRecordReader records) {
+            this.records = records;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            if (columns == null) {
+                List<String> header = records.next();
+                columns = header(header);
+                width = header.size();
+            }
+
+            List<String> fields = records.next();
+            if (fields == null) {
+                return null;
+            }
+            long line = records.getRecordLine();
+            if (fields.size() != width) {
+                return new ImportRow(line, null, "Expected " + width + " columns, found " + fields.size());
+            }
+
+            BookWithInventoryDto book = new BookWithInventoryDto();
+            book.setTitle(field(fields, "title"));
+            book.setAuthor(field(fields, "author"));
+            book.setIsbn(field(fields, "isbn"));
+            String price = field(fields, "price");
+            String year = field(fields, "year");
+            String copies = field(fields, "copies");
+            try {
+                book.setPrice(price != null ? new BigDecimal(price) : null);
+            } catch (NumberFormatException e) {
+                return new ImportRow(line, book, "Price is not a number: '" + price + "'");
+            }
+            try {
+                // A backlist often only gives the year
+                book.setYear(year == null ? null
+                        : year.length() == 4 ? LocalDate.of(Integer.parseInt(year), 1, 1)
+                        : LocalDate.parse(year));
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return new ImportRow(line, book, "Year is not yyyy or yyyy-MM-dd: '" + year + "'");
+            }
+            try {
+                if (copies != null) {
+                    book.setCopies(Long.valueOf(copies));
+                }
+            } catch (NumberFormatException e) {
+                return new ImportRow(line, book, "Copies is not a whole number: '" + copies + "'");
+            }
+            return new ImportRow(line, book, null);
+        }
+
+        private static Map<String, Integer> header(List<String> fields) {
+            Map<String, Integer> columns = new HashMap<>();
+            if (fields != null) {
+                for (int i = 0; i < fields.size(); i++) {
+                    columns.put(fields.get(i).strip().toLowerCase(Locale.ROOT), i);
+                }
+            }
+            if (!columns.keySet().containsAll(CSV_COLUMNS)) {
+                throw new IllegalArgumentException("CSV header must name the columns " + String.join(", ", CSV_COLUMNS));
+            }
+            return columns;
+        }
+
+        /** The stripped value of the column, null when blank */
+        private String field(List<String> fields, String column) {
+            String value = fields.get(columns.get(column)).strip();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    private final class NdjsonRows implements RowSource {
+
+        private final BufferedReader reader;
+
+        private long line;
+
+        private NdjsonRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String json;
+            do {
+                json = reader.readLine();
+                line++;
+            } while (json != null && json.isBlank());
+            if (json == null) {
+                return null;
+            }
+
+            try {
+                BookWithInventoryDto book = objectMapper.readValue(json, BookWithInventoryDto.class);
+                // Ids of another catalog, e.g. an export, mean nothing here
+                book.setId(null);
+                return new ImportRow(line, book, null);
+            } catch (JsonProcessingException e) {
+                return new ImportRow(line, null, "Not a book: " + e.getOriginalMessage());
+            }
+        }
+    }
+}
@@ -1,20 +1,37 @@
 package com.ucd.bookshop.service;
 
+import com.ucd.bookshop.controllers.dto.BookPageDto;
 import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.controllers.dto.IsbnLookupResultDto;
+import com.ucd.bookshop.event.BookChangedEvent;
+import com.ucd.bookshop.event.BookChangedEvent.ChangeType;
+import com.ucd.bookshop.event.InventoryChangedEvent;
 import com.ucd.bookshop.exception.BookAlreadyExistsException;
 import com.ucd.bookshop.exception.BookNotFoundException;
+import com.ucd.bookshop.exception.OutOfStockException;
 import com.ucd.bookshop.model.Book;
 import com.ucd.bookshop.model.BookInventory;
 import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.model.Isbn;
 import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.CatalogVersionRepository;
 import com.ucd.bookshop.repository.InventoryRepository;
 
 import jakarta.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class BookInventoryService {
@@ -23,27 +40,112 @@ public class BookInventoryService {
 
     private final InventoryRepository inventoryRepository;
 
+    private final BookStockService bookStockService;
+
+    private final InventoryStockEngine inventoryStockEngine;
+
+    private final InventoryLedgerAppender inventoryLedgerAppender;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final CatalogCache catalogCache;
+
+    private final CatalogVersionRepository catalogVersionRepository;
+
+    @Value("${bookshop.catalog.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${bookshop.catalog.max-page-size:200}")
+    private int maxPageSize;
+
     @Autowired
-    public BookInventoryService(BookRepository bookRepository, InventoryRepository inventoryRepository) {
+    public BookInventoryService(BookRepository bookRepository, InventoryRepository inventoryRepository,
+            BookStockService bookStockService, InventoryStockEngine inventoryStockEngine,
+            InventoryLedgerAppender inventoryLedgerAppender, ApplicationEventPublisher eventPublisher,
+            CatalogCache catalogCache, CatalogVersionRepository catalogVersionRepository) {
         this.bookRepository = bookRepository;
         this.inventoryRepository = inventoryRepository;
+        this.bookStockService = bookStockService;
+        this.inventoryStockEngine = inventoryStockEngine;
+        this.inventoryLedgerAppender = inventoryLedgerAppender;
+        this.eventPublisher = eventPublisher;
+        this.catalogCache = catalogCache;
+        this.catalogVersionRepository = catalogVersionRepository;
     }
 
     /**
-     * Get all books with their total copies
+     * Get one page of books with their total copies, newest first. Served from the catalog cache until a
+     * change to a book on the page commits, @see CatalogCache
+     *
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param size books per page, null for the default, capped at max-page-size
      */
-    public List<BookWithInventoryDto> getAllBooksWithInventory() {
-        List<BookInventory> results = bookRepository.findAllBooksWithInventory();
-        return results.stream()
-                .map(BookWithInventoryDto::new)
-                .toList();
+    public BookPageDto getBooksPage(Long cursor, Integer size) {
+        int pageSize = pageSize(size);
+        long beforeId = cursor == null ? Long.MAX_VALUE : cursor;
+
+        return catalogCache.get(beforeId, pageSize, () -> loadBooksPage(beforeId, pageSize));
+    }
+
+    /**
+     * The page as getBooksPage would serve it from the catalog cache, null when it is not cached
+     */
+    public BookPageDto getCachedBooksPage(Long cursor, Integer size) {
+        return catalogCache.getIfCached(cursor == null ? Long.MAX_VALUE : cursor, pageSize(size));
+    }
+
+    private CatalogCache.LoadedPage loadBooksPage(long beforeId, int pageSize) {
+        // One extra row tells whether there is a next page without a count query
+        Limit limit = Limit.of(pageSize + 1);
+        List<BookWithInventoryDto> books;
+        if (inventoryStockEngine.isEnabled()) {
+            // Stock comes from memory, only the book rows are read
+            books = bookRepository.findByIdLessThanOrderByIdDesc(beforeId, limit).stream()
+                    .map(book -> new BookWithInventoryDto(
+                            new BookInventory(book, inventoryStockEngine.getAvailable(book.getId()))))
+                    .toList();
+        } else {
+            books = bookRepository.findBooksWithStockBefore(beforeId, limit).stream()
+                    .map(BookWithInventoryDto::new)
+                    .toList();
+        }
+
+        if (books.size() <= pageSize) {
+            return new CatalogCache.LoadedPage(new BookPageDto(books, null), null);
+        }
+        List<BookWithInventoryDto> page = books.subList(0, pageSize);
+        return new CatalogCache.LoadedPage(new BookPageDto(page, page.get(pageSize - 1).getId()),
+                books.get(pageSize).getId());
+    }
+
+    /**
+     * Tag of the current catalog state, for ETags. Taken before reading, a change committed while reading
+     * only makes the next request miss.
+     *
+     * @Notes read from the database, so it follows changes made anywhere. Changes by other nodes show once the
+     * bookshop.catalog.version-tag-ttl is up, changes by this node at once.
+     */
+    public String getCatalogVersionTag() {
+        return catalogCache.getVersionTag(() -> bookRepository.findCatalogState().toTag());
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null || size < 1) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
     }
 
     /**
      * Get a specific book with its total copies
      */
     public BookWithInventoryDto getBookWithInventoryById(Long bookId) throws BookNotFoundException {
-        BookInventory result = bookRepository.findBookWithInventoryById(bookId);
+        if (inventoryStockEngine.isEnabled()) {
+            Book book = getBookById(bookId);
+            return new BookWithInventoryDto(new BookInventory(book, inventoryStockEngine.getAvailable(bookId)));
+        }
+
+        BookInventory result = bookRepository.findBookWithStockById(bookId);
         if (result == null) {
             throw new BookNotFoundException(bookId);
         }
@@ -51,6 +153,41 @@ public class BookInventoryService {
         return new BookWithInventoryDto(result);
     }
 
+    /**
+     * Look up scanned ISBNs, ISBN-10 or ISBN-13 with or without hyphens, in one query
+     *
+     * @return a result per ISBN in the order given
+     */
+    public List<IsbnLookupResultDto> getBooksWithInventoryByIsbn(List<String> isbns) {
+        Set<String> isbn13s = isbns.stream()
+                .map(Isbn::toIsbn13)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<String, BookWithInventoryDto> byIsbn13 = new HashMap<>();
+        if (!isbn13s.isEmpty()) {
+            if (inventoryStockEngine.isEnabled()) {
+                bookRepository.findByIsbn13In(isbn13s).forEach(book -> byIsbn13.put(book.getIsbn13(),
+                        new BookWithInventoryDto(new BookInventory(book, inventoryStockEngine.getAvailable(book.getId())))));
+            } else {
+                // isbn13 is derived from isbn, so the key can be recomputed from the row
+                bookRepository.findBooksWithStockByIsbn13In(isbn13s).forEach(bookInventory ->
+                        byIsbn13.put(Isbn.toIsbn13(bookInventory.getIsbn()), new BookWithInventoryDto(bookInventory)));
+            }
+        }
+
+        List<IsbnLookupResultDto> results = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            String isbn13 = Isbn.toIsbn13(isbn);
+            BookWithInventoryDto book = isbn13 != null ? byIsbn13.get(isbn13) : null;
+            IsbnLookupResultDto.Status status = isbn13 == null ? IsbnLookupResultDto.Status.INVALID
+                    : book == null ? IsbnLookupResultDto.Status.NOT_FOUND
+                    : IsbnLookupResultDto.Status.FOUND;
+            results.add(new IsbnLookupResultDto(isbn, isbn13, status, book));
+        }
+        return results;
+    }
+
     /**
      * Update the inventory for a book.
      * 
@@ -60,12 +197,18 @@ public class BookInventoryService {
      */
     @Transactional
     public BookWithInventoryDto updateBookInventory(BookWithInventoryDto bookWithInventoryDto, Integer customerId)
-            throws BookNotFoundException {
-        BookInventory bookInventory = bookRepository.findBookWithInventoryById(bookWithInventoryDto.getId());
+            throws BookNotFoundException, BookAlreadyExistsException {
+        BookInventory bookInventory = bookRepository.findBookWithStockById(bookWithInventoryDto.getId());
         if (bookInventory == null) {
             throw new BookNotFoundException(bookWithInventoryDto.getId());
         }
 
+        // Another book with the ISBN, checked before writing anything
+        String isbn13 = Isbn.toIsbn13(bookWithInventoryDto.getIsbn());
+        if (isbn13 != null && bookRepository.existsByIsbn13AndIdNot(isbn13, bookWithInventoryDto.getId())) {
+            throw new BookAlreadyExistsException(bookWithInventoryDto.getIsbn());
+        }
+
         // Update the book inventory
         Long currentCopies = bookInventory.getCopies();
         Long copies = bookWithInventoryDto.getCopies();
@@ -85,20 +228,18 @@ public class BookInventoryService {
         
         // Save the the details
         bookRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(book.getId(), ChangeType.UPDATED, book));
         
         // Create inventory change 
-        Inventory inventory = new Inventory(book, (int) difference, customerId);
-        inventoryRepository.save(inventory);
+        recordInventoryChange(book, (int) difference, customerId);
 
-        bookInventory.setCopies(copies);
-
-        return new BookWithInventoryDto(bookInventory);
+        return new BookWithInventoryDto(bookInventory.withCopies(copies));
     }
 
     @Transactional
     public BookWithInventoryDto updateBookInventory(Book book, Integer quantity, Integer customerId)
             throws BookNotFoundException {
-        BookInventory bookInventory = bookRepository.findBookWithInventoryById(book.getId());
+        BookInventory bookInventory = bookRepository.findBookWithStockById(book.getId());
         if (bookInventory == null) {
             throw new BookNotFoundException(book.getId());
         }
@@ -110,20 +251,28 @@ public class BookInventoryService {
         long difference = copies - currentCopies;
        
         // Create inventory change 
-        Inventory inventory = new Inventory(book, (int) difference, customerId);
-        inventoryRepository.save(inventory);
-
-        bookInventory.setCopies(copies);
+        recordInventoryChange(book, (int) difference, customerId);
 
-        return new BookWithInventoryDto(bookInventory);
+        return new BookWithInventoryDto(bookInventory.withCopies(copies));
     }
 
+    /**
+     * Put copies on hold for a customer, or release them when quantity is negative.
+     *
+     * @throws OutOfStockException when holding more copies than are available
+     */
     @Transactional
     public void updateBookInventoryForCustomer(Book book, Integer quantity, Integer customerId){
-       
+
+        if (quantity > 0) {
+            // Check and take the copies first, fails without writing to the ledger
+            bookStockService.reserve(book.getId(), quantity);
+            appendInventoryChange(book, quantity * -1, customerId);
+            return;
+        }
+
         // Create inventory change 
-        Inventory inventory = new Inventory(book,  quantity * -1, customerId);
-        inventoryRepository.save(inventory);
+        recordInventoryChange(book, quantity * -1, customerId);
     }
 
     @Transactional
@@ -135,13 +284,18 @@ public class BookInventoryService {
             throw new BookAlreadyExistsException(bookWithInventoryDto.getId());
         }
 
+        String isbn13 = Isbn.toIsbn13(bookWithInventoryDto.getIsbn());
+        if (isbn13 != null && bookRepository.existsByIsbn13(isbn13)) {
+            throw new BookAlreadyExistsException(bookWithInventoryDto.getIsbn());
+        }
+
         Book book = new Book(null, bookWithInventoryDto.getTitle(), bookWithInventoryDto.getAuthor(),
                 bookWithInventoryDto.getIsbn(), bookWithInventoryDto.getPrice(), bookWithInventoryDto.getYear());
         bookRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(book.getId(), ChangeType.CREATED, book));
 
-        Inventory inventory = new Inventory(book,
+        recordInventoryChange(book,
                 bookWithInventoryDto.getCopies() != null ? bookWithInventoryDto.getCopies().intValue() : 0, customerId);
-        inventoryRepository.save(inventory);
 
         return new BookWithInventoryDto(new BookInventory(book, bookWithInventoryDto.getCopies()));
     }
@@ -150,11 +304,38 @@ public class BookInventoryService {
     public void deleteBookInventory(Long bookId) throws BookNotFoundException {
         Book book = bookRepository.findById(bookId).orElseThrow(() -> new BookNotFoundException(bookId));
 
-        // Cascaded at database level
+        // Cascaded at database level, except the partitioned ledger
+        bookStockService.deleteStock(bookId);
+        inventoryRepository.deleteByBookId(bookId);
         bookRepository.delete(book);
+        // Moves the catalog ETag, no high-water mark of the remaining books does
+        catalogVersionRepository.bookDeleted();
+        eventPublisher.publishEvent(new BookChangedEvent(bookId, ChangeType.DELETED, null));
     }
 
     public Book getBookById(Long bookId) throws BookNotFoundException {
         return bookRepository.findById(bookId).orElseThrow(() -> new BookNotFoundException(bookId));
     }
+
+    /**
+     * Append a change to the inventory ledger and keep book_stock in step within the same transaction.
+     */
+    private void recordInventoryChange(Book book, int copies, Integer customerId) {
+        bookStockService.applyDelta(book.getId(), copies);
+        appendInventoryChange(book, copies, customerId);
+    }
+
+    /**
+     * Append to the ledger once book_stock has already been adjusted
+     *
+     * @Notes with write-behind enabled the row is written after commit, @see InventoryLedgerAppender
+     */
+    private void appendInventoryChange(Book book, int copies, Integer customerId) {
+        if (inventoryLedgerAppender.isEnabled()) {
+            inventoryLedgerAppender.appendAfterCommit(new Inventory(book, copies, customerId));
+        } else {
+            inventoryRepository.save(new Inventory(book, copies, customerId));
+        }
+        eventPublisher.publishEvent(new InventoryChangedEvent(book.getId(), copies, customerId));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,428 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.event.BookChangedEvent;
+import com.ucd.bookshop.event.BooksImportedEvent;
+import com.ucd.bookshop.event.ChangeListenerOrder;
+import com.ucd.bookshop.model.BookSearchDocument;
+import com.ucd.bookshop.model.Isbn;
+import com.ucd.bookshop.repository.BookRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over book title, author and ISBN, so search never scans the book table.
+ *
+ * Each term maps to a posting list of book ids sorted ascending, with the weight of the term in that book. A query
+ * walks the shortest posting list of its terms and binary searches the others, so the cost follows the rarest term
+ * rather than the size of the catalog. Every term must match, hits are ranked by summed weight then newest first.
+ *
+ * Posting lists are immutable and replaced on change, so searches read without locking. Seeded from the book table
+ * before the application takes traffic, then follows every committed BookChangedEvent and
+ * BooksImportedEvent.
+ *
+ * @Notes only sees changes made by this node, like the stock engine.
+ */
+@Component
+public class BookSearchIndex implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern ISBN = Pattern.compile("\\d{9}[\\dx]|\\d{13}");
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int ISBN_WEIGHT = 4;
+
+    private static final int SEED_CHUNK_SIZE = 10000;
+
+    private final BookRepository bookRepository;
+
+    private final ConcurrentHashMap<String, PostingList> postings = new ConcurrentHashMap<>();
+
+    /** Terms of each indexed book, to take it out of their posting lists on update or delete */
+    private final ConcurrentHashMap<Long, String[]> documentTerms = new ConcurrentHashMap<>();
+
+    @Value("${bookshop.search.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    public BookSearchIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            seed();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Books matching every term of the query, best first.
+     *
+     * @param offset hits to skip
+     * @param limit hits to return after offset
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return SearchHits.EMPTY;
+        }
+
+        List<PostingList> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                return SearchHits.EMPTY;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        // Worst kept hit on top, so it is the one pushed out
+        int wanted = offset + Math.max(limit, 0);
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(wanted, 1024) + 1, Hit.RANKING.reversed());
+        int[] from = new int[lists.size()];
+        long total = 0;
+
+        PostingList rarest = lists.get(0);
+        candidates:
+        for (int i = 0; i < rarest.size(); i++) {
+            long bookId = rarest.ids[i];
+            int score = rarest.weights[i];
+            for (int j = 1; j < lists.size(); j++) {
+                // Candidates come in ascending id order, so each search can start where the last one ended
+                PostingList other = lists.get(j);
+                int found = Arrays.binarySearch(other.ids, from[j], other.size(), bookId);
+                if (found < 0) {
+                    from[j] = -found - 1;
+                    continue candidates;
+                }
+                from[j] = found + 1;
+                score += other.weights[found];
+            }
+
+            total++;
+            Hit hit = new Hit(bookId, score);
+            if (best.size() < wanted) {
+                best.add(hit);
+            } else if (wanted > 0 && Hit.RANKING.compare(hit, best.peek()) < 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+
+        List<Hit> ranked = new ArrayList<>(best);
+        ranked.sort(Hit.RANKING);
+        List<Long> bookIds = ranked.stream()
+                .skip(offset)
+                .map(hit -> hit.bookId)
+                .toList();
+        return new SearchHits(total, bookIds);
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        if (event.getChangeType() == BookChangedEvent.ChangeType.DELETED) {
+            remove(event.getBookId());
+        } else {
+            index(new BookSearchDocument(event.getBook()));
+        }
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onBooksImported(BooksImportedEvent event) {
+        if (enabled) {
+            indexAll(event.getBooks().stream().map(BookSearchDocument::new).toList());
+        }
+    }
+
+    /**
+     * Add a book, or replace what was indexed for it
+     */
+    synchronized void index(BookSearchDocument document) {
+        remove(document.getId());
+
+        Map<String, Integer> weights = weigh(document);
+        for (Map.Entry<String, Integer> term : weights.entrySet()) {
+            byte weight = (byte) Math.min(term.getValue(), Byte.MAX_VALUE);
+            postings.compute(term.getKey(), (key, list) ->
+                    (list == null ? PostingList.EMPTY : list).with(document.getId(), weight));
+        }
+        documentTerms.put(document.getId(), weights.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * Add many books, e.g. a chunk of an import. The new postings of each term are built like seed() does and
+     * merged into its list in one copy, rather than one copy of the list per book.
+     */
+    synchronized void indexAll(List<BookSearchDocument> documents) {
+        List<BookSearchDocument> byId = new ArrayList<>(documents);
+        byId.sort(Comparator.comparing(BookSearchDocument::getId));
+
+        Map<String, PostingListBuilder> builders = new HashMap<>();
+        for (BookSearchDocument document : byId) {
+            remove(document.getId());
+            // Ascending ids, so appending keeps every built list sorted
+            Map<String, Integer> weights = weigh(document);
+            weights.forEach((term, weight) -> builders.computeIfAbsent(term, key -> new PostingListBuilder())
+                    .add(document.getId(), (byte) Math.min(weight, Byte.MAX_VALUE)));
+            documentTerms.put(document.getId(), weights.keySet().toArray(new String[0]));
+        }
+
+        builders.forEach((term, builder) -> postings.compute(term, (key, list) ->
+                list == null ? builder.build() : list.merge(builder.build())));
+    }
+
+    synchronized void remove(Long bookId) {
+        String[] terms = documentTerms.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            postings.computeIfPresent(term, (key, list) -> list.without(bookId));
+        }
+    }
+
+    /** Number of books in the index */
+    int size() {
+        return documentTerms.size();
+    }
+
+    private synchronized void seed() {
+        Map<String, PostingListBuilder> builders = new HashMap<>();
+        long afterId = 0;
+        List<BookSearchDocument> chunk;
+        do {
+            chunk = bookRepository.findSearchDocumentsAfter(afterId, Limit.of(SEED_CHUNK_SIZE));
+            for (BookSearchDocument document : chunk) {
+                // Ascending ids, so appending keeps every posting list sorted
+                Map<String, Integer> weights = weigh(document);
+                weights.forEach((term, weight) -> builders.computeIfAbsent(term, key -> new PostingListBuilder())
+                        .add(document.getId(), (byte) Math.min(weight, Byte.MAX_VALUE)));
+                documentTerms.put(document.getId(), weights.keySet().toArray(new String[0]));
+                afterId = document.getId();
+            }
+        } while (chunk.size() == SEED_CHUNK_SIZE);
+
+        builders.forEach((term, builder) -> postings.put(term, builder.build()));
+        logger.info("Indexed {} books with {} search terms", documentTerms.size(), postings.size());
+    }
+
+    private static Map<String, Integer> weigh(BookSearchDocument document) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(document.getTitle()).forEach(term -> weights.merge(term, TITLE_WEIGHT, Integer::sum));
+        tokenize(document.getAuthor()).forEach(term -> weights.merge(term, AUTHOR_WEIGHT, Integer::sum));
+        tokenize(document.getIsbn()).forEach(term -> weights.merge(term, ISBN_WEIGHT, Integer::sum));
+        return weights;
+    }
+
+    /**
+     * Lower case, accent free terms. An ISBN is kept as one term without its hyphens, so 978-1-60309-452-8,
+     * 9781603094528 and the ISBN-10 1-60309-452-0 find the same book.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        List<String> terms = new ArrayList<>();
+        for (String word : WHITESPACE.split(fold(text).strip())) {
+            String isbn = word.replace("-", "");
+            if (ISBN.matcher(isbn).matches()) {
+                // An ISBN-10 finds the book by its ISBN-13
+                String isbn13 = Isbn.toIsbn13(isbn);
+                terms.add(isbn13 != null ? isbn13 : isbn);
+                continue;
+            }
+            for (String part : NON_ALPHANUMERIC.split(word)) {
+                if (!part.isEmpty()) {
+                    terms.add(part);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Lower case without accents, how text is compared for search and autocomplete
+     */
+    static String fold(String text) {
+        return COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Total number of matches and the ids of the requested page, best first
+     */
+    public static final class SearchHits {
+
+        static final SearchHits EMPTY = new SearchHits(0, List.of());
+
+        private final long total;
+        private final List<Long> bookIds;
+
+        SearchHits(long total, List<Long> bookIds) {
+            this.total = total;
+            this.bookIds = bookIds;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public List<Long> getBookIds() {
+            return bookIds;
+        }
+    }
+
+    private static final class Hit {
+
+        /** Best first, higher score then newer book */
+        private static final Comparator<Hit> RANKING = Comparator.<Hit>comparingInt(hit -> hit.score).reversed()
+                .thenComparing(Comparator.<Hit>comparingLong(hit -> hit.bookId).reversed());
+
+        private final long bookId;
+        private final int score;
+
+        private Hit(long bookId, int score) {
+            this.bookId = bookId;
+            this.score = score;
+        }
+    }
+
+    private static final class PostingList {
+
+        private static final PostingList EMPTY = new PostingList(new long[0], new byte[0]);
+
+        private final long[] ids;
+        private final byte[] weights;
+
+        private PostingList(long[] ids, byte[] weights) {
+            this.ids = ids;
+            this.weights = weights;
+        }
+
+        private int size() {
+            return ids.length;
+        }
+
+        private PostingList with(long bookId, byte weight) {
+            int found = Arrays.binarySearch(ids, bookId);
+            if (found >= 0) {
+                byte[] reweighted = weights.clone();
+                reweighted[found] = weight;
+                return new PostingList(ids, reweighted);
+            }
+
+            int at = -found - 1;
+            long[] newIds = new long[ids.length + 1];
+            byte[] newWeights = new byte[ids.length + 1];
+            System.arraycopy(ids, 0, newIds, 0, at);
+            System.arraycopy(weights, 0, newWeights, 0, at);
+            newIds[at] = bookId;
+            newWeights[at] = weight;
+            System.arraycopy(ids, at, newIds, at + 1, ids.length - at);
+            System.arraycopy(weights, at, newWeights, at + 1, ids.length - at);
+            return new PostingList(newIds, newWeights);
+        }
+
+        /** Both lists in one, the weight in added winning for a book in both */
+        private PostingList merge(PostingList added) {
+            long[] newIds = new long[ids.length + added.ids.length];
+            byte[] newWeights = new byte[newIds.length];
+            int i = 0;
+            int j = 0;
+            int size = 0;
+            while (i < ids.length || j < added.ids.length) {
+                if (j == added.ids.length || (i < ids.length && ids[i] < added.ids[j])) {
+                    newIds[size] = ids[i];
+                    newWeights[size++] = weights[i++];
+                } else {
+                    if (i < ids.length && ids[i] == added.ids[j]) {
+                        i++;
+                    }
+                    newIds[size] = added.ids[j];
+                    newWeights[size++] = added.weights[j++];
+                }
+            }
+            return size == newIds.length ? new PostingList(newIds, newWeights)
+                    : new PostingList(Arrays.copyOf(newIds, size), Arrays.copyOf(newWeights, size));
+        }
+
+        /** null when the last book is removed, which drops the term */
+        private PostingList without(long bookId) {
+            int at = Arrays.binarySearch(ids, bookId);
+            if (at < 0) {
+                return this;
+            }
+            if (ids.length == 1) {
+                return null;
+            }
+
+            long[] newIds = new long[ids.length - 1];
+            byte[] newWeights = new byte[ids.length - 1];
+            System.arraycopy(ids, 0, newIds, 0, at);
+            System.arraycopy(weights, 0, newWeights, 0, at);
+            System.arraycopy(ids, at + 1, newIds, at, ids.length - at - 1);
+            System.arraycopy(weights, at + 1, newWeights, at, ids.length - at - 1);
+            return new PostingList(newIds, newWeights);
+        }
+    }
+
+    private static final class PostingListBuilder {
+
+        private long[] ids = new long[4];
+        private byte[] weights = new byte[4];
+        private int size;
+
+        private void add(long bookId, byte weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ids[size] = bookId;
+            weights[size] = weight;
+            size++;
+        }
+
+        private PostingList build() {
+            return new PostingList(Arrays.copyOf(ids, size), Arrays.copyOf(weights, size));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.BookSearchResultDto;
+import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.model.BookInventory;
+import com.ucd.bookshop.repository.BookCatalogRepository;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.service.BookSearchIndex.SearchHits;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search of the catalog. Matching and ranking come from the in-memory BookSearchIndex, only the books
+ * of the requested page are read from the database. With the index off (bookshop.search.enabled=false) books are
+ * matched in the database instead, newest first rather than ranked.
+ */
+@Service
+public class BookSearchService {
+
+    private final BookSearchIndex bookSearchIndex;
+
+    private final BookRepository bookRepository;
+
+    private final BookCatalogRepository bookCatalogRepository;
+
+    private final InventoryStockEngine inventoryStockEngine;
+
+    @Value("${bookshop.catalog.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${bookshop.catalog.max-page-size:200}")
+    private int maxPageSize;
+
+    /** Deepest hit a page may reach, keeps the ranking heap small */
+    @Value("${bookshop.search.max-results:10000}")
+    private int maxResults;
+
+    @Autowired
+    public BookSearchService(BookSearchIndex bookSearchIndex, BookRepository bookRepository,
+            BookCatalogRepository bookCatalogRepository, InventoryStockEngine inventoryStockEngine) {
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookRepository = bookRepository;
+        this.bookCatalogRepository = bookCatalogRepository;
+        this.inventoryStockEngine = inventoryStockEngine;
+    }
+
+    /**
+     * Books matching every word of the query with their total copies
+     *
+     * @param page zero based
+     * @param size books per page, null for the default, capped at max-page-size
+     * @return the page, with a total of at most max-results as no page reaches further
+     */
+    public BookSearchResultDto search(String query, int page, Integer size) {
+        int pageSize = size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+        int pageNumber = Math.max(page, 0);
+        int offset = (int) Math.min((long) pageNumber * pageSize, maxResults);
+        int limit = Math.min(pageSize, maxResults - offset);
+
+        SearchHits hits = bookSearchIndex.isEnabled()
+                ? bookSearchIndex.search(query, offset, limit)
+                : searchDatabase(query, offset, limit);
+        long total = Math.min(hits.getTotal(), maxResults);
+        return new BookSearchResultDto(query, pageNumber, pageSize, total, load(hits.getBookIds()));
+    }
+
+    private SearchHits searchDatabase(String query, int offset, int limit) {
+        List<String> terms = List.copyOf(new LinkedHashSet<>(BookSearchIndex.tokenize(query)));
+        if (terms.isEmpty()) {
+            return SearchHits.EMPTY;
+        }
+
+        List<Long> bookIds = limit > 0 ? bookCatalogRepository.findIdsMatching(terms, offset, limit) : List.of();
+        return new SearchHits(bookCatalogRepository.countMatching(terms), bookIds);
+    }
+
+    /**
+     * Books for the ids in the order given
+     */
+    private List<BookWithInventoryDto> load(List<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, BookWithInventoryDto> byId;
+        if (inventoryStockEngine.isEnabled()) {
+            byId = bookRepository.findAllById(bookIds).stream()
+                    .collect(Collectors.toMap(book -> book.getId(), book -> new BookWithInventoryDto(
+                            new BookInventory(book, inventoryStockEngine.getAvailable(book.getId())))));
+        } else {
+            byId = bookRepository.findBooksWithStockByIds(bookIds).stream()
+                    .map(BookWithInventoryDto::new)
+                    .collect(Collectors.toMap(BookWithInventoryDto::getId, Function.identity()));
+        }
+
+        // A book deleted since it was matched is skipped
+        return bookIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,31 @@
+package com.ucd.bookshop.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds book_stock from the inventory ledger when the application is started with --rebuild-book-stock
+ *
+ * e.g. mvn spring-boot:run -Dspring-boot.run.arguments=--rebuild-book-stock
+ */
+@Component
+public class BookStockRebuildRunner implements ApplicationRunner {
+
+    static final String REBUILD_OPTION = "rebuild-book-stock";
+
+    private final BookStockService bookStockService;
+
+    @Autowired
+    public BookStockRebuildRunner(BookStockService bookStockService) {
+        this.bookStockService = bookStockService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(REBUILD_OPTION)) {
+            bookStockService.rebuild();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.exception.OutOfStockException;
+import com.ucd.bookshop.model.BookStock;
+import com.ucd.bookshop.repository.BookStockRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains the book_stock projection of the inventory ledger.
+ */
+@Service
+public class BookStockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookStockService.class);
+
+    private final BookStockRepository bookStockRepository;
+    private final InventoryRepository inventoryRepository;
+
+    @Autowired
+    public BookStockService(BookStockRepository bookStockRepository, InventoryRepository inventoryRepository) {
+        this.bookStockRepository = bookStockRepository;
+        this.inventoryRepository = inventoryRepository;
+    }
+
+    /**
+     * Apply a ledger delta to the stock of a book.
+     *
+     * @Notes must join the transaction that inserts the matching inventory row so both commit or roll back together.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyDelta(Long bookId, long delta) {
+        if (bookStockRepository.addCopies(bookId, delta) == 0) {
+            // First ledger row for the book
+            bookStockRepository.save(new BookStock(bookId, delta));
+        }
+    }
+
+    /**
+     * Apply the net ledger delta of many books at once, as JDBC batches.
+     *
+     * @Notes must join the transaction that inserts the matching inventory rows.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyDeltas(Map<Long, Long> deltaByBookId) {
+        if (deltaByBookId.isEmpty()) {
+            return;
+        }
+
+        Set<Long> stocked = new HashSet<>(bookStockRepository.findBookIdsIn(deltaByBookId.keySet()));
+        Map<Long, Long> existing = new HashMap<>();
+        Map<Long, Long> missing = new HashMap<>();
+        deltaByBookId.forEach((bookId, delta) -> (stocked.contains(bookId) ? existing : missing).put(bookId, delta));
+
+        bookStockRepository.addCopiesInBatch(existing);
+        bookStockRepository.insertAllInBatch(missing);
+    }
+
+    /**
+     * Copies in stock of each book, locked until the transaction ends. Books without a stock row yet are read from
+     * the ledger.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Long> getCopiesForUpdate(Collection<Long> bookIds) {
+        Map<Long, Long> copies = new HashMap<>();
+        if (bookIds.isEmpty()) {
+            return copies;
+        }
+        for (BookStock stock : bookStockRepository.findAllByBookIdInForUpdate(bookIds)) {
+            copies.put(stock.getBookId(), stock.getCopies());
+        }
+        for (Long bookId : bookIds) {
+            if (!copies.containsKey(bookId)) {
+                copies.put(bookId, inventoryRepository.getTotalCopiesByBookId(bookId));
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * Atomically check and take copies for a hold, without locking the row up front.
+     *
+     * @throws OutOfStockException when fewer copies are available than requested
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Long bookId, long copies) {
+        if (bookStockRepository.reserveCopies(bookId, copies) == 0) {
+            throw new OutOfStockException(bookId, copies);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteStock(Long bookId) {
+        bookStockRepository.deleteById(bookId);
+    }
+
+    /**
+     * Throw away the projection and recompute it from the inventory ledger.
+     *
+     * @Notes intended for a quiet period, writes to book_stock wait on the rebuild transaction.
+     * @return number of books with a stock row after the rebuild
+     */
+    @Transactional
+    public int rebuild() {
+        bookStockRepository.deleteAllInBatch();
+        int books = bookStockRepository.insertAllFromLedger();
+
+        logger.info("Rebuilt book_stock from the inventory ledger for {} books", books);
+        return books;
+    }
+}
@@ -0,0 +1,299 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.BookPageDto;
+import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.event.BookChangedEvent;
+import com.ucd.bookshop.event.BooksImportedEvent;
+import com.ucd.bookshop.event.ChangeListenerOrder;
+import com.ucd.bookshop.event.InventoryChangedEvent;
+import com.ucd.bookshop.model.Book;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of catalog pages for BookInventoryService.getBooksPage.
+ *
+ * A keyset page holds the highest ids below its cursor, so a change to a book only affects the pages whose id range
+ * takes in that book, from the probe row read past the page up to the cursor. A created book falls in the range of
+ * the first page, an updated or deleted one in the page that lists it. Only those pages are evicted.
+ *
+ * Every committed change also bumps the catalog version. A page is only stored when the version did not move while
+ * it was read, so a read racing a commit is never cached.
+ *
+ * Changes made by other nodes, the import CLI or manual SQL send no event, so a page is also read again once it is
+ * older than ttl. The version tag for ETags is read from the database, so those changes move it too. It is kept for
+ * version-tag-ttl, or until this node commits a change.
+ *
+ * Each get hands out its own copy of the page, in an unmodifiable list, so a caller changing a book e.g. binding a
+ * form to it never changes what the next caller is served.
+ *
+ * Metrics: bookshop.catalog.cache.gets{result=hit|miss}, bookshop.catalog.cache.evictions{cause=change|size|expired},
+ * bookshop.catalog.cache.size, bookshop.catalog.cache.hit.ratio and bookshop.catalog.version
+ */
+@Component
+public class CatalogCache {
+
+    private static final class PageKey {
+        private final long beforeId;
+        private final int size;
+
+        private PageKey(long beforeId, int size) {
+            this.beforeId = beforeId;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PageKey key && key.beforeId == beforeId && key.size == size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(beforeId, size);
+        }
+    }
+
+    private static final class CachedPage {
+        private final BookPageDto page;
+        /** Lowest id whose change affects the page, 0 on the last page */
+        private final long fromId;
+        private final long loadedAt = System.nanoTime();
+
+        private CachedPage(BookPageDto page, long fromId) {
+            this.page = copyOf(page);
+            this.fromId = fromId;
+        }
+    }
+
+    private final ConcurrentHashMap<PageKey, CachedPage> pages = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    /** Last tag read from the database, with the local version it was read at */
+    private volatile VersionTag versionTag;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter changeEvictions;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    @Value("${bookshop.catalog.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${bookshop.catalog.cache.max-entries:1000}")
+    private int maxEntries = 1000;
+
+    @Value("${bookshop.catalog.cache.ttl:PT1M}")
+    private Duration ttl = Duration.ofMinutes(1);
+
+    @Value("${bookshop.catalog.version-tag-ttl:PT1S}")
+    private Duration versionTagTtl = Duration.ofSeconds(1);
+
+    @Autowired
+    public CatalogCache(ObjectProvider<MeterRegistry> meterRegistry) {
+        this(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    CatalogCache(MeterRegistry meterRegistry) {
+        hits = meterRegistry.counter("bookshop.catalog.cache.gets", "result", "hit");
+        misses = meterRegistry.counter("bookshop.catalog.cache.gets", "result", "miss");
+        changeEvictions = meterRegistry.counter("bookshop.catalog.cache.evictions", "cause", "change");
+        sizeEvictions = meterRegistry.counter("bookshop.catalog.cache.evictions", "cause", "size");
+        expiredEvictions = meterRegistry.counter("bookshop.catalog.cache.evictions", "cause", "expired");
+
+        Gauge.builder("bookshop.catalog.cache.size", pages, Map::size).register(meterRegistry);
+        Gauge.builder("bookshop.catalog.cache.hit.ratio", this, CatalogCache::hitRatio).register(meterRegistry);
+        Gauge.builder("bookshop.catalog.version", version, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * The cached page, or the page read by loader and cached when no change committed while it was read.
+     *
+     * @param loader reads the page and the id of the probe row past it, null on the last page
+     */
+    BookPageDto get(long beforeId, int size, Supplier<LoadedPage> loader) {
+        if (!enabled) {
+            return loader.get().page;
+        }
+
+        PageKey key = new PageKey(beforeId, size);
+        CachedPage cached = live(key);
+        if (cached != null) {
+            hits.increment();
+            return copyOf(cached.page);
+        }
+
+        misses.increment();
+        long readAt = version.get();
+        LoadedPage loaded = loader.get();
+        if (version.get() == readAt) {
+            makeRoom();
+            pages.put(key, new CachedPage(loaded.page, loaded.probeId != null ? loaded.probeId : 0));
+            // Recheck, a change may have been evicting while this page was stored
+            if (version.get() != readAt) {
+                pages.remove(key);
+            }
+        }
+        return loaded.page;
+    }
+
+    /**
+     * The cached page, null when it is not cached. Nothing is read or stored on a miss.
+     */
+    BookPageDto getIfCached(long beforeId, int size) {
+        CachedPage cached = enabled ? live(new PageKey(beforeId, size)) : null;
+        if (cached == null) {
+            return null;
+        }
+        hits.increment();
+        return copyOf(cached.page);
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.INVALIDATION)
+    public void onBookChanged(BookChangedEvent event) {
+        changed(event.getBookId());
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.INVALIDATION)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        changed(event.getBookId());
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.INVALIDATION)
+    public void onBooksImported(BooksImportedEvent event) {
+        changed(event.getBooks().stream().mapToLong(Book::getId).sorted().toArray());
+    }
+
+    long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Identifies the state of the catalog, read again once the TTL is up or this node has committed a change
+     *
+     * @param reader reads the tag from the database
+     */
+    String getVersionTag(Supplier<String> reader) {
+        long now = System.nanoTime();
+        long readAt = version.get();
+        VersionTag cached = versionTag;
+        if (cached != null && cached.version == readAt && now - cached.readAt < versionTagTtl.toNanos()) {
+            return cached.value;
+        }
+
+        String value = reader.get();
+        versionTag = new VersionTag(value, readAt, now);
+        return value;
+    }
+
+    int size() {
+        return pages.size();
+    }
+
+    /** The cached page, dropped and null once older than the TTL */
+    private CachedPage live(PageKey key) {
+        CachedPage cached = pages.get(key);
+        if (cached != null && System.nanoTime() - cached.loadedAt >= ttl.toNanos()) {
+            if (pages.remove(key, cached)) {
+                expiredEvictions.increment();
+            }
+            return null;
+        }
+        return cached;
+    }
+
+    private static BookPageDto copyOf(BookPageDto page) {
+        List<BookWithInventoryDto> books = page.getBooks().stream().map(BookWithInventoryDto::new).toList();
+        return new BookPageDto(books, page.getNextCursor());
+    }
+
+    private void changed(long bookId) {
+        changed(new long[] { bookId });
+    }
+
+    /**
+     * One version bump and one pass over the pages however many books changed
+     *
+     * @param bookIds ascending
+     */
+    private void changed(long[] bookIds) {
+        version.incrementAndGet();
+        pages.entrySet().removeIf(entry -> {
+            // The lowest changed id in or above the page's range
+            int found = Arrays.binarySearch(bookIds, entry.getValue().fromId);
+            int first = found >= 0 ? found : -found - 1;
+            boolean affected = first < bookIds.length && bookIds[first] < entry.getKey().beforeId;
+            if (affected) {
+                changeEvictions.increment();
+            }
+            return affected;
+        });
+    }
+
+    /** Drop the oldest pages once full, only runs on a miss */
+    private void makeRoom() {
+        while (pages.size() >= maxEntries && !pages.isEmpty()) {
+            pages.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().loadedAt))
+                    .ifPresent(oldest -> {
+                        if (pages.remove(oldest.getKey(), oldest.getValue())) {
+                            sizeEvictions.increment();
+                        }
+                    });
+        }
+    }
+
+    private double hitRatio() {
+        double gets = hits.count() + misses.count();
+        return gets == 0 ? 0 : hits.count() / gets;
+    }
+
+    private static final class VersionTag {
+        private final String value;
+        private final long version;
+        private final long readAt;
+
+        private VersionTag(String value, long version, long readAt) {
+            this.value = value;
+            this.version = version;
+            this.readAt = readAt;
+        }
+    }
+
+    /**
+     * A page as read from the database, with the id of the row read past it
+     */
+    static final class LoadedPage {
+        private final BookPageDto page;
+        private final Long probeId;
+
+        LoadedPage(BookPageDto page, Long probeId) {
+            this.page = page;
+            this.probeId = probeId;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.CatalogFacetsDto;
+import com.ucd.bookshop.controllers.dto.FacetCountDto;
+import com.ucd.bookshop.event.BookChangedEvent;
+import com.ucd.bookshop.event.BooksImportedEvent;
+import com.ucd.bookshop.event.ChangeListenerOrder;
+import com.ucd.bookshop.event.InventoryChangedEvent;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookInventory;
+import com.ucd.bookshop.repository.BookRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Book counts per author, publication decade, price band and stock status, kept in memory so a page view never
+ * runs a GROUP BY over the catalog.
+ *
+ * The facets of every book are held by id. A committed BookChangedEvent moves the book from its old counts to its
+ * new ones, a committed InventoryChangedEvent adds the ledger delta to its copies and only touches the stock counts
+ * when the book goes in or out of stock. A BooksImportedEvent does both for each book of the chunk under one lock. Seeded from book and book_stock before the application takes traffic.
+ *
+ * The author, decade and price lists are built once after a book change and shared until the next one, stock
+ * counts are read live.
+ *
+ * @Notes only sees changes made by this node, like the search index.
+ */
+@Component
+public class CatalogFacets implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogFacets.class);
+
+    private static final int SEED_CHUNK_SIZE = 10000;
+
+    private static final BigDecimal CENT = new BigDecimal("0.01");
+
+    private final BookRepository bookRepository;
+
+    // Guarded by this
+    private final Map<Long, BookFacets> books = new HashMap<>();
+    private final Map<String, AuthorCount> authors = new HashMap<>();
+    private final Map<Integer, Long> decades = new HashMap<>();
+    private final Map<Integer, Long> priceBands = new HashMap<>();
+
+    private final AtomicLong inStock = new AtomicLong();
+    private final AtomicLong outOfStock = new AtomicLong();
+
+    /** Author, decade and price lists, null after a book change until next asked for */
+    private volatile CatalogFacetsDto counts;
+
+    @Value("${bookshop.facets.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${bookshop.facets.max-authors:20}")
+    private int maxAuthors = 20;
+
+    /** Lower bounds of the price bands above the first, ascending */
+    @Value("${bookshop.facets.price-bands:10,20,50}")
+    private BigDecimal[] priceBandBounds = { BigDecimal.TEN, BigDecimal.valueOf(20), BigDecimal.valueOf(50) };
+
+    @Autowired
+    public CatalogFacets(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            seed();
+        }
+    }
+
+    /**
+     * Facet counts of the whole catalog, null when disabled
+     */
+    public CatalogFacetsDto getFacets() {
+        if (!enabled) {
+            return null;
+        }
+
+        CatalogFacetsDto current = counts;
+        if (current == null) {
+            current = buildCounts();
+        }
+        return new CatalogFacetsDto(current.getAuthors(), current.getDecades(), current.getPriceBands(),
+                inStock.get(), outOfStock.get());
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        if (event.getChangeType() == BookChangedEvent.ChangeType.DELETED) {
+            remove(event.getBookId());
+        } else {
+            Book book = event.getBook();
+            put(book.getId(), book.getAuthor(), book.getYear(), book.getPrice());
+        }
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (enabled) {
+            addCopies(event.getBookId(), event.getCopies());
+        }
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onBooksImported(BooksImportedEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        synchronized (this) {
+            for (Book book : event.getBooks()) {
+                put(book.getId(), book.getAuthor(), book.getYear(), book.getPrice());
+                addCopies(book.getId(), event.getCopiesByBookId().getOrDefault(book.getId(), 0L));
+            }
+        }
+    }
+
+    /**
+     * Add a book, or move it to the counts of its new author, year and price. Its copies are kept.
+     */
+    synchronized void put(Long bookId, String author, LocalDate year, BigDecimal price) {
+        BookFacets previous = books.get(bookId);
+        if (previous != null) {
+            count(previous, -1);
+        }
+
+        BookFacets facets = new BookFacets(author, year != null ? year.getYear() / 10 * 10 : null, priceBand(price),
+                previous != null ? previous.copies : 0);
+        books.put(bookId, facets);
+        count(facets, 1);
+        counts = null;
+    }
+
+    synchronized void remove(Long bookId) {
+        BookFacets facets = books.remove(bookId);
+        if (facets != null) {
+            count(facets, -1);
+            counts = null;
+        }
+    }
+
+    synchronized void addCopies(Long bookId, long delta) {
+        BookFacets facets = books.get(bookId);
+        if (facets == null) {
+            return;
+        }
+
+        boolean wasInStock = facets.copies > 0;
+        facets.copies += delta;
+        if (wasInStock != facets.copies > 0) {
+            (wasInStock ? inStock : outOfStock).decrementAndGet();
+            (wasInStock ? outOfStock : inStock).incrementAndGet();
+        }
+    }
+
+    private void seed() {
+        long beforeId = Long.MAX_VALUE;
+        List<BookInventory> chunk;
+        do {
+            chunk = bookRepository.findBooksWithStockBefore(beforeId, Limit.of(SEED_CHUNK_SIZE));
+            for (BookInventory book : chunk) {
+                put(book.getId(), book.getAuthor(), book.getYear(), book.getPrice());
+                addCopies(book.getId(), book.getCopies());
+                beforeId = book.getId();
+            }
+        } while (chunk.size() == SEED_CHUNK_SIZE);
+
+        logger.info("Counted facets of {} books by {} authors", books.size(), authors.size());
+    }
+
+    private void count(BookFacets facets, int sign) {
+        if (facets.author != null) {
+            // Books sharing an author share one count, shown as first written
+            authors.compute(facets.authorKey(), (key, author) -> {
+                long books = (author != null ? author.books : 0) + sign;
+                return books <= 0 ? null : new AuthorCount(author != null ? author.name : facets.author, books);
+            });
+        }
+        if (facets.decade != null) {
+            decades.merge(facets.decade, (long) sign, (a, b) -> a + b == 0 ? null : a + b);
+        }
+        priceBands.merge(facets.priceBand, (long) sign, (a, b) -> a + b == 0 ? null : a + b);
+        (facets.copies > 0 ? inStock : outOfStock).addAndGet(sign);
+    }
+
+    private synchronized CatalogFacetsDto buildCounts() {
+        if (counts != null) {
+            return counts;
+        }
+
+        List<FacetCountDto> topAuthors = authors.values().stream()
+                .sorted(Comparator.comparingLong((AuthorCount author) -> author.books).reversed()
+                        .thenComparing(author -> author.name))
+                .limit(maxAuthors)
+                .map(author -> new FacetCountDto(author.name, null, null, author.books))
+                .toList();
+
+        List<FacetCountDto> decadeCounts = decades.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByKey().reversed())
+                .map(decade -> new FacetCountDto(decade.getKey() + "s", Integer.toString(decade.getKey()),
+                        Integer.toString(decade.getKey() + 9), decade.getValue()))
+                .toList();
+
+        List<FacetCountDto> priceCounts = new ArrayList<>();
+        for (int band = 0; band <= priceBandBounds.length; band++) {
+            Long books = priceBands.get(band);
+            if (books != null) {
+                priceCounts.add(priceBandCount(band, books));
+            }
+        }
+
+        counts = new CatalogFacetsDto(topAuthors, decadeCounts, priceCounts, 0, 0);
+        return counts;
+    }
+
+    /** Band 0 is below the first bound, band i from bound i - 1 up to bound i */
+    private int priceBand(BigDecimal price) {
+        int band = 0;
+        while (price != null && band < priceBandBounds.length && price.compareTo(priceBandBounds[band]) >= 0) {
+            band++;
+        }
+        return band;
+    }
+
+    /** The filter takes an inclusive maxPrice, prices have two decimals */
+    private FacetCountDto priceBandCount(int band, long books) {
+        BigDecimal from = band > 0 ? priceBandBounds[band - 1] : null;
+        BigDecimal to = band < priceBandBounds.length ? priceBandBounds[band].subtract(CENT) : null;
+        String value = from == null ? "Under " + priceBandBounds[0].toPlainString()
+                : to == null ? from.toPlainString() + " and over"
+                : from.toPlainString() + " to " + to.toPlainString();
+        return new FacetCountDto(value, from != null ? from.toPlainString() : null,
+                to != null ? to.toPlainString() : null, books);
+    }
+
+    private static final class BookFacets {
+
+        private final String author;
+        private final Integer decade;
+        private final int priceBand;
+        private long copies;
+
+        private BookFacets(String author, Integer decade, int priceBand, long copies) {
+            this.author = author;
+            this.decade = decade;
+            this.priceBand = priceBand;
+            this.copies = copies;
+        }
+
+        /** Same as the catalog author filter, @see BookCatalogRepository */
+        private String authorKey() {
+            return author.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final class AuthorCount {
+
+        private final String name;
+        private final long books;
+
+        private AuthorCount(String name, long books) {
+            this.name = name;
+            this.books = books;
+        }
+    }
+}
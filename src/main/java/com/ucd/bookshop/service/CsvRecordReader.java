@@ -0,0 +1,117 @@
+package com.ucd.bookshop.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV one record at a time: comma separated, a field in double quotes may hold commas, line breaks and doubled
+ * quotes. Blank lines are skipped.
+ *
+ * @Notes fields are cut at MAX_FIELD_LENGTH characters, so a stray quote cannot pull the rest of the file into memory.
+ */
+final class CsvRecordReader {
+
+    static final int MAX_FIELD_LENGTH = 4096;
+
+    private static final int NONE = -2;
+
+    private final Reader in;
+
+    /** Character read ahead after a \r, NONE when there is none */
+    private int pending = NONE;
+
+    /** Line the next character is on */
+    private long line = 1;
+
+    /** Line the last record started on */
+    private long recordLine;
+
+    CsvRecordReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * The fields of the next record, null at the end of the input
+     */
+    List<String> next() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            newLine(c);
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    // Unterminated quote, the field runs to the end
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                if (c == '\n') {
+                    line++;
+                }
+                append(field, c);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                fields.add(field.toString());
+                if (c != -1) {
+                    newLine(c);
+                }
+                return fields;
+            } else {
+                append(field, c);
+            }
+            c = read();
+        }
+    }
+
+    long getRecordLine() {
+        return recordLine;
+    }
+
+    /** Count the line break at c, a \r\n counting once */
+    private void newLine(int c) throws IOException {
+        line++;
+        if (c == '\r') {
+            int next = read();
+            if (next != '\n') {
+                pending = next;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pending == NONE) {
+            return in.read();
+        }
+        int c = pending;
+        pending = NONE;
+        return c;
+    }
+
+    private static void append(StringBuilder field, int c) {
+        if (field.length() < MAX_FIELD_LENGTH) {
+            field.append((char) c);
+        }
+    }
+}
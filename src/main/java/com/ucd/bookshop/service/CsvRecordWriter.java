@@ -0,0 +1,56 @@
+package com.ucd.bookshop.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes CSV records as CsvRecordReader reads them: a field with a comma, quote or line break is quoted, with its
+ * quotes doubled. Null is written as an empty field.
+ */
+final class CsvRecordWriter {
+
+    private final Writer out;
+
+    CsvRecordWriter(Writer out) {
+        this.out = out;
+    }
+
+    void write(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeField(format(fields[i]));
+        }
+        out.write('\n');
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0;
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /** Numbers in plain notation and dates in ISO-8601, as the JSON of the same rows */
+    private static String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof BigDecimal number) {
+            return number.toPlainString();
+        }
+        if (value instanceof LocalDateTime time) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(time);
+        }
+        return value.toString();
+    }
+}
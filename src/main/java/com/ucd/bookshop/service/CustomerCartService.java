@@ -13,6 +13,7 @@ import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,15 +23,29 @@ public class CustomerCartService {
     private final ShoppingCartRepository shoppingCartRepository;
     private final CustomerRepository customerRepository;
     private final BookInventoryService bookInventoryService;
+    private final InventoryLedgerAppender inventoryLedgerAppender;
 
     @Autowired
     public CustomerCartService(ShoppingCartRepository shoppingCartRepository,
             CustomerRepository customerRepository,
-            BookInventoryService bookInventoryService) {
+            BookInventoryService bookInventoryService,
+            InventoryLedgerAppender inventoryLedgerAppender) {
 
         this.shoppingCartRepository = shoppingCartRepository;
         this.customerRepository = customerRepository;
         this.bookInventoryService = bookInventoryService;
+        this.inventoryLedgerAppender = inventoryLedgerAppender;
+    }
+
+    /**
+     * The customer's cart with the copies held for each item
+     *
+     * @Notes with write-behind the holds reach the ledger after commit, waits for the customer's queued holds
+     * first, @see InventoryLedgerAppender#awaitFlushed
+     */
+    public List<ShoppingCartWithInventory> getCart(Integer customerId) {
+        inventoryLedgerAppender.awaitFlushed(customerId);
+        return shoppingCartRepository.findShoppingCartWithInventoryByCustomerId(customerId);
     }
 
     @Transactional
@@ -55,6 +70,7 @@ public class CustomerCartService {
 
         // Update the inventory
         bookInventoryService.updateBookInventoryForCustomer(book, quantity.intValue(), customerId);
+        shoppingCartRepository.touchOpenCart(customerId, LocalDateTime.now());
 
         return shoppingCartRepository.findShoppingCartWithInventoryByCustomerId(customerId);
     }
@@ -63,11 +79,13 @@ public class CustomerCartService {
     public List<ShoppingCartWithInventory> removeBookFromCart(Integer customerId, Long bookId)
             throws BookNotFoundException {
 
+        // Before the first read, so the items whose holds are still queued are found
+        inventoryLedgerAppender.awaitFlushed(customerId);
         List<ShoppingCartWithInventory> cartItems = shoppingCartRepository
                 .findShoppingCartWithInventoryByCustomerId(customerId);
 
         ShoppingCartWithInventory shoppingCart = cartItems.stream()
-                .filter(item -> item.getBook().getId().equals(bookId))
+                .filter(item -> item.getBookId().equals(bookId))
                 .findFirst()
                 .orElseThrow(() -> new BookNotFoundException(bookId));
 
@@ -76,17 +94,28 @@ public class CustomerCartService {
 
         shoppingCartRepository.delete(shoppingCartItem);
 
-        bookInventoryService.updateBookInventoryForCustomer(shoppingCart.getBook(),
+        bookInventoryService.updateBookInventoryForCustomer(shoppingCartItem.getBook(),
                 shoppingCart.getCopies().intValue() * -1, customerId);
 
+        shoppingCartRepository.touchOpenCart(customerId, LocalDateTime.now());
+
         cartItems.remove(shoppingCart);
 
         return cartItems;
     }
 
+    /**
+     * Restart the hold TTL of the customer's cart e.g. on going to checkout, @see HoldExpiryJob
+     */
+    @Transactional
+    public void touchCart(Integer customerId) {
+        shoppingCartRepository.touchOpenCart(customerId, LocalDateTime.now());
+    }
+
     @Transactional
     public List<ShoppingCartWithInventory> removeCart(Integer customerId) {
 
+        inventoryLedgerAppender.awaitFlushed(customerId);
         List<ShoppingCartWithInventory> cartItems = shoppingCartRepository
                 .findShoppingCartWithInventoryByCustomerId(customerId);
 
@@ -0,0 +1,24 @@
+package com.ucd.bookshop.service;
+
+import java.util.Locale;
+
+/**
+ * Line based formats of catalog imports and exports, read and written one row at a time.
+ */
+public enum FileFormat {
+    /** Comma separated, with a header row naming the columns */
+    CSV,
+    /** Newline delimited JSON, one object per line */
+    NDJSON;
+
+    /**
+     * The format of the name in any case, null when unknown
+     */
+    public static FileFormat parse(String name) {
+        try {
+            return name == null ? null : valueOf(name.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.ucd.bookshop.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Time-bounded cart holds. Carts left untouched for longer than the hold TTL are abandoned and their copies go
+ * back on sale. Adding, removing and going to checkout all count as activity, so a customer paying is not expired
+ * until the TTL has passed since the PaymentIntent was created.
+ *
+ * Expired items are found through idx_shopping_cart_open(abandoned, last_activity_date), so each run only reads
+ * the items it expires, in batches of its own transaction.
+ *
+ * @Notes off unless bookshop.cart.hold-expiry.enabled=true, the TTL must be longer than a checkout takes
+ */
+@Component
+public class HoldExpiryJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldExpiryJob.class);
+
+    private final HoldExpiryService holdExpiryService;
+
+    @Value("${bookshop.cart.hold-expiry.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bookshop.cart.hold-ttl:PT2H}")
+    private Duration holdTtl;
+
+    @Value("${bookshop.cart.hold-expiry.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public HoldExpiryJob(HoldExpiryService holdExpiryService) {
+        this.holdExpiryService = holdExpiryService;
+    }
+
+    @Scheduled(fixedDelayString = "${bookshop.cart.hold-expiry.interval:PT1M}")
+    public void scheduledExpiry() {
+        if (enabled) {
+            expireHolds();
+        }
+    }
+
+    /**
+     * @return number of cart items expired
+     */
+    public long expireHolds() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(holdTtl);
+
+        long expired = 0;
+        int batch;
+        do {
+            batch = holdExpiryService.expireBatch(cutoff, batchSize);
+            expired += batch;
+        } while (batch == batchSize);
+
+        if (expired > 0) {
+            logger.info("Expired {} cart holds inactive since {}", expired, cutoff);
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.ShoppingCart;
+import com.ucd.bookshop.model.ShoppingCartWithInventory;
+import com.ucd.bookshop.repository.ShoppingCartRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Releases the stock held by abandoned carts. @see HoldExpiryJob
+ */
+@Service
+public class HoldExpiryService {
+
+    private final ShoppingCartRepository shoppingCartRepository;
+    private final BookInventoryService bookInventoryService;
+
+    @Autowired
+    public HoldExpiryService(ShoppingCartRepository shoppingCartRepository,
+            BookInventoryService bookInventoryService) {
+        this.shoppingCartRepository = shoppingCartRepository;
+        this.bookInventoryService = bookInventoryService;
+    }
+
+    /**
+     * Expire one batch of the least recently active open cart items with no activity since the cutoff. Each item
+     * gets a compensating ledger row that returns its held copies to stock, and is marked abandoned.
+     *
+     * @return number of cart items expired, less than batchSize once there is nothing left to expire
+     */
+    @Transactional
+    public int expireBatch(LocalDateTime cutoff, int batchSize) {
+        List<ShoppingCart> expired = shoppingCartRepository.findOpenInactiveSince(cutoff, Limit.of(batchSize));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(expired.size());
+        for (ShoppingCart item : expired) {
+            ids.add(item.getId());
+        }
+
+        Map<Long, Long> held = new HashMap<>();
+        for (ShoppingCartWithInventory hold : shoppingCartRepository.findHoldsByIds(ids)) {
+            held.put(hold.getId(), hold.getCopies());
+        }
+
+        for (ShoppingCart item : expired) {
+            long copies = held.getOrDefault(item.getId(), 0L);
+            if (copies > 0) {
+                // Negative quantity releases the hold
+                bookInventoryService.updateBookInventoryForCustomer(item.getBook(), (int) -copies,
+                        item.getCustomer().getId());
+            }
+        }
+
+        shoppingCartRepository.markAbandoned(ids);
+        return expired.size();
+    }
+}
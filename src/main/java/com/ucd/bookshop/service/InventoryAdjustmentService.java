@@ -0,0 +1,114 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.InventoryAdjustmentDto;
+import com.ucd.bookshop.controllers.dto.InventoryAdjustmentResultDto;
+import com.ucd.bookshop.controllers.dto.InventoryAdjustmentResultDto.Status;
+import com.ucd.bookshop.event.InventoryChangedEvent;
+import com.ucd.bookshop.model.InventoryAdjustment;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies many stock adjustments, e.g. a delivery or the nightly restock, in one transaction.
+ */
+@Service
+public class InventoryAdjustmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryAdjustmentService.class);
+
+    private final BookRepository bookRepository;
+    private final InventoryRepository inventoryRepository;
+    private final BookStockService bookStockService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public InventoryAdjustmentService(BookRepository bookRepository, InventoryRepository inventoryRepository,
+            BookStockService bookStockService, ApplicationEventPublisher eventPublisher) {
+        this.bookRepository = bookRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.bookStockService = bookStockService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Write one ledger row per valid line and refresh book_stock once per book with the net delta.
+     * Lines for unknown books, without a non-zero delta, with a delta the ledger cannot hold or that would take the
+     * stock of the book below zero are reported and skipped, the rest still apply. Lines apply in order, so a
+     * delivery ahead of a write-off in the same batch covers it.
+     *
+     * @return a result per line, in the order of the lines
+     */
+    @Transactional
+    public List<InventoryAdjustmentResultDto> applyAdjustments(List<InventoryAdjustmentDto> lines) {
+        Set<Long> requestedIds = new HashSet<>();
+        for (InventoryAdjustmentDto line : lines) {
+            if (line != null && line.getBookId() != null) {
+                requestedIds.add(line.getBookId());
+            }
+        }
+        Set<Long> knownIds = requestedIds.isEmpty() ? Set.of()
+                : new HashSet<>(bookRepository.findExistingIds(requestedIds));
+        // Stock as of the lines applied so far, locked so a concurrent batch cannot take the same copies
+        Map<Long, Long> stockByBookId = bookStockService.getCopiesForUpdate(knownIds);
+
+        List<InventoryAdjustmentResultDto> results = new ArrayList<>(lines.size());
+        List<InventoryAdjustment> adjustments = new ArrayList<>(lines.size());
+        Map<Long, Long> deltaByBookId = new LinkedHashMap<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            InventoryAdjustmentDto line = lines.get(i);
+            Long bookId = line != null ? line.getBookId() : null;
+            Long delta = line != null ? line.getDelta() : null;
+
+            if (bookId == null || delta == null || delta == 0) {
+                results.add(new InventoryAdjustmentResultDto(i, bookId, delta, Status.INVALID,
+                        "bookId and a non-zero delta are required"));
+            } else if (!knownIds.contains(bookId)) {
+                results.add(new InventoryAdjustmentResultDto(i, bookId, delta, Status.BOOK_NOT_FOUND,
+                        String.format("Book is not found with id : '%s'", bookId)));
+            } else if (!fitsInt(delta) || !fitsInt(deltaByBookId.getOrDefault(bookId, 0L) + delta)) {
+                results.add(new InventoryAdjustmentResultDto(i, bookId, delta, Status.INVALID,
+                        String.format("delta must be between %d and %d for each book", Integer.MIN_VALUE,
+                                Integer.MAX_VALUE)));
+            } else if (stockByBookId.get(bookId) + delta < 0) {
+                results.add(new InventoryAdjustmentResultDto(i, bookId, delta, Status.INVALID,
+                        String.format("Only %d copies in stock", stockByBookId.get(bookId))));
+            } else {
+                stockByBookId.merge(bookId, delta, Long::sum);
+                adjustments.add(new InventoryAdjustment(bookId, delta));
+                deltaByBookId.merge(bookId, delta, Long::sum);
+                results.add(new InventoryAdjustmentResultDto(i, bookId, delta, Status.APPLIED, null));
+            }
+        }
+
+        if (!adjustments.isEmpty()) {
+            inventoryRepository.insertAllInBatch(adjustments, LocalDateTime.now());
+            bookStockService.applyDeltas(deltaByBookId);
+            deltaByBookId.forEach((bookId, delta) ->
+                    eventPublisher.publishEvent(new InventoryChangedEvent(bookId, Math.toIntExact(delta), null)));
+        }
+
+        logger.info("Applied {} of {} inventory adjustments to {} books", adjustments.size(), lines.size(),
+                deltaByBookId.size());
+        return results;
+    }
+
+    private static boolean fitsInt(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+}
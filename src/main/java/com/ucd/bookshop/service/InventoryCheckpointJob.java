@@ -0,0 +1,69 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.repository.BookRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Periodic inventory checkpoints, so an as-of lookup reads one checkpoint plus at most a period of ledger rows.
+ * Walks the catalog in chunks of books, each checkpointed in its own transaction.
+ */
+@Component
+public class InventoryCheckpointJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryCheckpointJob.class);
+
+    private final BookRepository bookRepository;
+    private final InventoryCheckpointService inventoryCheckpointService;
+
+    @Value("${bookshop.inventory.checkpoint.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookshop.inventory.checkpoint.chunk-size:500}")
+    private int chunkSize;
+
+    /** Ledger rows younger than this may still be in flight in uncommitted transactions */
+    @Value("${bookshop.inventory.checkpoint.settle:PT1M}")
+    private Duration settle;
+
+    @Autowired
+    public InventoryCheckpointJob(BookRepository bookRepository, InventoryCheckpointService inventoryCheckpointService) {
+        this.bookRepository = bookRepository;
+        this.inventoryCheckpointService = inventoryCheckpointService;
+    }
+
+    // Before the compaction run, so compacted ledger rows are already covered by a checkpoint
+    @Scheduled(cron = "${bookshop.inventory.checkpoint.cron:0 0 2 * * *}")
+    public void scheduledCheckpoint() {
+        if (enabled) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * @return number of checkpoints written
+     */
+    public long checkpoint() {
+        LocalDateTime asOf = LocalDateTime.now().minus(settle);
+
+        long written = 0;
+        List<Long> bookIds = bookRepository.findIdsAfter(0L, Limit.of(chunkSize));
+        while (!bookIds.isEmpty()) {
+            written += inventoryCheckpointService.checkpointChunk(bookIds, asOf);
+            bookIds = bookRepository.findIdsAfter(bookIds.get(bookIds.size() - 1), Limit.of(chunkSize));
+        }
+
+        logger.info("Wrote {} inventory checkpoints as of {}", written, asOf);
+        return written;
+    }
+}
@@ -0,0 +1,116 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.InventoryAsOfDto;
+import com.ucd.bookshop.exception.BookNotFoundException;
+import com.ucd.bookshop.model.InventoryCheckpoint;
+import com.ucd.bookshop.model.InventoryLedgerTotal;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.InventoryCheckpointRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Per-book checkpoints of the inventory ledger and the as-of-time stock lookups they serve.
+ */
+@Service
+public class InventoryCheckpointService {
+
+    private final BookRepository bookRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryCheckpointRepository inventoryCheckpointRepository;
+
+    @Value("${bookshop.inventory.compaction.enabled:false}")
+    private boolean compactionEnabled;
+
+    @Value("${bookshop.inventory.compaction.horizon:P90D}")
+    private Duration compactionHorizon;
+
+    @Value("${bookshop.inventory.partitions.retention-months:0}")
+    private int partitionRetentionMonths;
+
+    @Autowired
+    public InventoryCheckpointService(BookRepository bookRepository, InventoryRepository inventoryRepository,
+            InventoryCheckpointRepository inventoryCheckpointRepository) {
+        this.bookRepository = bookRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryCheckpointRepository = inventoryCheckpointRepository;
+    }
+
+    /**
+     * Write a checkpoint at asOf for each book in the chunk with ledger rows since its last checkpoint.
+     *
+     * @Notes the total is summed from the whole ledger rather than the previous checkpoint, compaction can move
+     * rows across an earlier checkpoint but never past asOf.
+     * @return number of checkpoints written
+     */
+    @Transactional
+    public int checkpointChunk(List<Long> bookIds, LocalDateTime asOf) {
+        if (bookIds.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, InventoryCheckpoint> latest = inventoryCheckpointRepository.findLatestByBookIds(bookIds).stream()
+                .collect(Collectors.toMap(InventoryCheckpoint::getBookId, Function.identity(), (a, b) -> a));
+
+        List<InventoryCheckpoint> checkpoints = new ArrayList<>();
+        for (InventoryLedgerTotal total : inventoryRepository.findLedgerTotals(bookIds, asOf)) {
+            InventoryCheckpoint previous = latest.get(total.getBookId());
+
+            // Nothing new in the ledger since the last checkpoint
+            if (previous != null && !total.getLastCreatedDate().isAfter(previous.getAsOf())) {
+                continue;
+            }
+            checkpoints.add(new InventoryCheckpoint(total.getBookId(), total.getCopies(), asOf));
+        }
+
+        inventoryCheckpointRepository.saveAll(checkpoints);
+        return checkpoints.size();
+    }
+
+    /**
+     * Stock of a book at a point in time, from the newest checkpoint at or before it plus the ledger rows since.
+     */
+    @Transactional(readOnly = true)
+    public InventoryAsOfDto getCopiesAsOf(Long bookId, LocalDateTime asOf) throws BookNotFoundException {
+        if (!bookRepository.existsById(bookId)) {
+            throw new BookNotFoundException(bookId);
+        }
+
+        // Older rows may have been folded together or carried forward out of a dropped partition,
+        // only checkpoints taken before that are still exact
+        boolean compacted = (compactionEnabled && asOf.isBefore(LocalDateTime.now().minus(compactionHorizon)))
+                || (partitionRetentionMonths > 0 && asOf.isBefore(
+                        InventoryPartitionManager.retainedFrom(YearMonth.now(), partitionRetentionMonths)));
+
+        Optional<InventoryCheckpoint> checkpoint = inventoryCheckpointRepository
+                .findFirstByBookIdAndAsOfLessThanEqualOrderByAsOfDesc(bookId, asOf);
+
+        if (checkpoint.isEmpty()) {
+            return new InventoryAsOfDto(bookId, asOf, inventoryRepository.sumCopiesUpTo(bookId, asOf), null,
+                    !compacted);
+        }
+
+        InventoryCheckpoint nearest = checkpoint.get();
+        if (compacted) {
+            return new InventoryAsOfDto(bookId, asOf, nearest.getCopies(), nearest.getAsOf(),
+                    nearest.getAsOf().equals(asOf));
+        }
+
+        long copies = nearest.getCopies() + inventoryRepository.sumCopiesBetween(bookId, nearest.getAsOf(), asOf);
+        return new InventoryAsOfDto(bookId, asOf, copies, nearest.getAsOf(), true);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.repository.BookRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Background ledger compaction. Walks the catalog in chunks of books, each compacted in its own short
+ * transaction with a pause in between, so locks are never held for long.
+ *
+ * Off by default, enable with bookshop.inventory.compaction.enabled=true
+ */
+@Component
+public class InventoryCompactionJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryCompactionJob.class);
+
+    private final BookRepository bookRepository;
+    private final InventoryCompactionService inventoryCompactionService;
+
+    @Value("${bookshop.inventory.compaction.enabled:false}")
+    private boolean enabled;
+
+    /** Deltas younger than this are left as they are */
+    @Value("${bookshop.inventory.compaction.horizon:P90D}")
+    private Duration horizon;
+
+    @Value("${bookshop.inventory.compaction.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${bookshop.inventory.compaction.pause:PT0.1S}")
+    private Duration pause;
+
+    @Autowired
+    public InventoryCompactionJob(BookRepository bookRepository, InventoryCompactionService inventoryCompactionService) {
+        this.bookRepository = bookRepository;
+        this.inventoryCompactionService = inventoryCompactionService;
+    }
+
+    // Outside trading hours by default
+    @Scheduled(cron = "${bookshop.inventory.compaction.cron:0 30 3 * * *}")
+    public void scheduledCompaction() {
+        if (enabled) {
+            compact();
+        }
+    }
+
+    /**
+     * Compact every book's ledger up to now minus the horizon.
+     *
+     * @return number of ledger rows removed
+     */
+    public long compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(horizon);
+        logger.info("Compacting inventory ledger rows created before {}", cutoff);
+
+        long removed = 0;
+        long afterId = 0;
+        List<Long> bookIds = bookRepository.findIdsAfter(afterId, Limit.of(chunkSize));
+        while (!bookIds.isEmpty()) {
+            removed += inventoryCompactionService.compactChunk(bookIds, cutoff);
+
+            afterId = bookIds.get(bookIds.size() - 1);
+            bookIds = bookRepository.findIdsAfter(afterId, Limit.of(chunkSize));
+
+            if (!bookIds.isEmpty() && !pause()) {
+                logger.warn("Inventory compaction interrupted after book {}", afterId);
+                break;
+            }
+        }
+
+        logger.info("Inventory compaction removed {} ledger rows", removed);
+        return removed;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
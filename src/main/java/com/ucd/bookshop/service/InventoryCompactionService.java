@@ -0,0 +1,56 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.InventoryCompactionGroup;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Folds old inventory ledger deltas into one checkpoint row per (book_id, on_hold_for_customer_id).
+ *
+ * @Notes every SUM over the ledger is unchanged, so book_stock is untouched. @see InventoryCompactionJob
+ */
+@Service
+public class InventoryCompactionService {
+
+    private final InventoryRepository inventoryRepository;
+
+    @Autowired
+    public InventoryCompactionService(InventoryRepository inventoryRepository) {
+        this.inventoryRepository = inventoryRepository;
+    }
+
+    /**
+     * Compact the ledger rows older than the cutoff for a chunk of books in a single transaction.
+     *
+     * @return number of ledger rows removed
+     */
+    @Transactional
+    public long compactChunk(List<Long> bookIds, LocalDateTime cutoff) {
+        if (bookIds.isEmpty()) {
+            return 0;
+        }
+
+        long removed = 0;
+        for (InventoryCompactionGroup group : inventoryRepository.findCompactionGroups(bookIds, cutoff)) {
+
+            // A group that nets to zero, e.g. a hold that was released, needs no checkpoint
+            if (group.getCopies() != 0) {
+                inventoryRepository.insertCheckpoint(group.getBookId(), group.getCopies(),
+                        group.getOnHoldForCustomerId(), group.getMaxCreatedDate());
+            }
+
+            int deleted = inventoryRepository.deleteCompactedRows(group.getBookId(), group.getOnHoldForCustomerId(),
+                    group.getMaxInventoryId(), cutoff);
+
+            removed += deleted - (group.getCopies() != 0 ? 1 : 0);
+        }
+
+        return removed;
+    }
+}
@@ -0,0 +1,154 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.InventoryFeedEventDto;
+import com.ucd.bookshop.event.BooksImportedEvent;
+import com.ucd.bookshop.event.ChangeListenerOrder;
+import com.ucd.bookshop.event.InventoryChangedEvent;
+import com.ucd.bookshop.model.BookStock;
+import com.ucd.bookshop.repository.BookStockRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes stock changes to browsers over Server-Sent Events.
+ *
+ * Committed ledger changes are summed per book and sent once per interval, so a burst of cart activity on one
+ * title is one event. Each event carries the current stock, read for all changed books in one query.
+ *
+ * @Notes only sees changes made by this node, like InventoryStockEngine.
+ */
+@Service
+public class InventoryFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryFeedService.class);
+
+    static final String EVENT_NAME = "stock";
+
+    private final BookStockRepository bookStockRepository;
+    private final InventoryStockEngine inventoryStockEngine;
+
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    private final ConcurrentHashMap<Long, Long> pending = new ConcurrentHashMap<>();
+
+    @Value("${bookshop.inventory.feed.timeout:PT30M}")
+    private Duration timeout;
+
+    @Value("${bookshop.inventory.feed.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    @Autowired
+    public InventoryFeedService(BookStockRepository bookStockRepository, InventoryStockEngine inventoryStockEngine) {
+        this.bookStockRepository = bookStockRepository;
+        this.inventoryStockEngine = inventoryStockEngine;
+    }
+
+    /**
+     * @return the new subscription, or null when the feed is full
+     */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+
+        // Browsers reconnect on their own when the timeout closes the stream
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.NOTIFICATION)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        pending.merge(event.getBookId(), (long) event.getCopies(), Long::sum);
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.NOTIFICATION)
+    public void onBooksImported(BooksImportedEvent event) {
+        event.getCopiesByBookId().forEach((bookId, copies) -> pending.merge(bookId, copies, Long::sum));
+    }
+
+    @Scheduled(fixedRateString = "${bookshop.inventory.feed.interval:PT1S}")
+    public void publishPending() {
+        Map<Long, Long> deltas = drainPending();
+        if (deltas.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+
+        for (InventoryFeedEventDto change : toEvents(deltas)) {
+            for (SseEmitter emitter : subscribers) {
+                send(emitter, change);
+            }
+        }
+    }
+
+    /**
+     * Take the net change per book since the last call, a change arriving meanwhile goes into the next interval
+     */
+    Map<Long, Long> drainPending() {
+        Map<Long, Long> deltas = new HashMap<>();
+        for (Long bookId : pending.keySet()) {
+            Long delta = pending.remove(bookId);
+            if (delta != null && delta != 0) {
+                deltas.put(bookId, delta);
+            }
+        }
+        return deltas;
+    }
+
+    private List<InventoryFeedEventDto> toEvents(Map<Long, Long> deltas) {
+        Map<Long, Long> copies = new HashMap<>();
+        if (inventoryStockEngine.isEnabled()) {
+            deltas.keySet().forEach(bookId -> copies.put(bookId, inventoryStockEngine.getAvailable(bookId)));
+        } else {
+            for (BookStock stock : bookStockRepository.findAllById(deltas.keySet())) {
+                copies.put(stock.getBookId(), stock.getCopies());
+            }
+        }
+
+        List<InventoryFeedEventDto> events = new ArrayList<>(deltas.size());
+        deltas.forEach((bookId, delta) -> {
+            // No stock row means the book was deleted
+            if (copies.containsKey(bookId)) {
+                events.add(new InventoryFeedEventDto(bookId, delta, copies.get(bookId)));
+            }
+        });
+        return events;
+    }
+
+    private void send(SseEmitter emitter, InventoryFeedEventDto change) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(change));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away
+            logger.debug("Dropping inventory feed subscriber", e);
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+}
@@ -0,0 +1,332 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.repository.InventoryLedgerWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind appender for the inventory ledger. Rows are queued once the business transaction commits and a
+ * single flusher thread writes them as JDBC batches, one commit per group, every interval or batch-size rows.
+ *
+ * Off by default, enable with bookshop.inventory.write-behind.enabled=true
+ *
+ * Crash safety, book_stock and the stock engine are updated in the business transaction as before, only the
+ * ledger row is deferred:
+ * - durable=true (default), the request thread waits for the group its row was flushed in, so a request that
+ *   returned has its ledger row committed. A crash between the business commit and the flush, at most interval
+ *   plus one write, loses the rows of that group while book_stock keeps the change.
+ * - durable=false, nothing waits on commit. A crash loses every queued row, at most capacity rows. Reads of the
+ *   ledger lag by up to interval, except the cart which waits for the customer's own holds, @see #awaitFlushed
+ * After a crash the ledger is the record, restarting with --rebuild-book-stock brings book_stock back in line.
+ * On a clean shutdown the queue is drained before the datasource closes.
+ */
+@Component
+public class InventoryLedgerAppender implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedgerAppender.class);
+
+    /** Writes and commits one group of rows */
+    interface LedgerSink {
+        void write(List<Inventory> rows);
+    }
+
+    private static class PendingRow {
+        private final Inventory row;
+        private final CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+        private PendingRow(Inventory row) {
+            this.row = row;
+        }
+    }
+
+    private final LedgerSink sink;
+    private final boolean enabled;
+    private final boolean durable;
+    private final int batchSize;
+    private final Duration interval;
+    private final Duration durableTimeout;
+    private final BlockingQueue<PendingRow> queue;
+    /** Holds queued and not yet flushed, by customer */
+    private final Map<Integer, Set<CompletableFuture<Void>>> pendingHolds = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    @Autowired
+    public InventoryLedgerAppender(InventoryLedgerWriter inventoryLedgerWriter,
+            @Value("${bookshop.inventory.write-behind.enabled:false}") boolean enabled,
+            @Value("${bookshop.inventory.write-behind.durable:true}") boolean durable,
+            @Value("${bookshop.inventory.write-behind.capacity:10000}") int capacity,
+            @Value("${bookshop.inventory.write-behind.batch-size:500}") int batchSize,
+            @Value("${bookshop.inventory.write-behind.interval:PT0.005S}") Duration interval,
+            @Value("${bookshop.inventory.write-behind.durable-timeout:PT5S}") Duration durableTimeout) {
+        this(inventoryLedgerWriter::write, enabled, durable, capacity, batchSize, interval, durableTimeout);
+    }
+
+    InventoryLedgerAppender(LedgerSink sink, boolean enabled, boolean durable, int capacity, int batchSize,
+            Duration interval, Duration durableTimeout) {
+        this.sink = sink;
+        this.enabled = enabled;
+        this.durable = durable;
+        this.batchSize = batchSize;
+        this.interval = interval;
+        this.durableTimeout = durableTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a ledger row once the current transaction commits, nothing is written if it rolls back.
+     * In durable mode the committing thread then waits for the row's group to be flushed.
+     */
+    public void appendAfterCommit(Inventory row) {
+        // Time of the change, not of the flush
+        row.setCreatedDate(LocalDateTime.now());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            awaitIfDurable(append(row));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                awaitIfDurable(append(row));
+            }
+        });
+    }
+
+    /**
+     * Queue a row for the next group. When the queue is full the caller flushes it inline, so a slow
+     * database pushes back on requests rather than growing memory.
+     *
+     * @return completed once the row is committed to the ledger
+     */
+    CompletableFuture<Void> append(Inventory row) {
+        PendingRow pending = new PendingRow(row);
+        if (!running) {
+            // Not started or already stopped, nothing would flush the queue
+            writeNow(List.of(pending));
+            return pending.flushed;
+        }
+
+        if (row.getOnHoldForCustomerId() != null) {
+            trackHold(row.getOnHoldForCustomerId(), pending.flushed);
+        }
+
+        while (!queue.offer(pending)) {
+            List<PendingRow> overflow = new ArrayList<>(batchSize);
+            queue.drainTo(overflow, batchSize);
+            writeNow(overflow);
+        }
+
+        if (!running) {
+            // Stopped while queueing, the flusher may already have drained for the last time
+            drainNow();
+        }
+        return pending.flushed;
+    }
+
+    private void trackHold(Integer customerId, CompletableFuture<Void> flushed) {
+        pendingHolds.compute(customerId, (id, holds) -> {
+            Set<CompletableFuture<Void>> tracked = holds != null ? holds : ConcurrentHashMap.newKeySet();
+            tracked.add(flushed);
+            return tracked;
+        });
+        flushed.whenComplete((ignored, failure) -> pendingHolds.computeIfPresent(customerId, (id, holds) -> {
+            holds.remove(flushed);
+            return holds.isEmpty() ? null : holds;
+        }));
+    }
+
+    /**
+     * Wait for the customer's queued holds to reach the ledger, so a cart read straight after adding to it
+     * sees the item. Call before the first read of the transaction, the rows are committed by the flusher.
+     *
+     * @Notes returns at once with nothing queued for the customer, e.g. when disabled or durable
+     */
+    public void awaitFlushed(Integer customerId) {
+        Set<CompletableFuture<Void>> holds = pendingHolds.get(customerId);
+        if (holds == null) {
+            return;
+        }
+        await(CompletableFuture.allOf(holds.toArray(new CompletableFuture<?>[0])));
+    }
+
+    private void awaitIfDurable(CompletableFuture<Void> flushed) {
+        if (durable) {
+            await(flushed);
+        }
+    }
+
+    private void await(CompletableFuture<Void> flushed) {
+        try {
+            flushed.get(durableTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Inventory ledger row not flushed within {}, continuing", durableTimeout);
+        } catch (ExecutionException e) {
+            logger.error("Inventory ledger row could not be written", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingRow> group = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !group.isEmpty()) {
+            try {
+                if (group.isEmpty()) {
+                    PendingRow first = queue.poll(interval.toNanos(), TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    group.add(first);
+                }
+
+                // Gather the rows arriving within one interval of the first into the same commit
+                long deadline = System.nanoTime() + interval.toNanos();
+                while (group.size() < batchSize) {
+                    queue.drainTo(group, batchSize - group.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (group.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    PendingRow next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        group.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Treat as a stop, keep going until the queue is drained
+                running = false;
+            }
+
+            if (group.isEmpty()) {
+                continue;
+            }
+
+            if (write(group)) {
+                group.clear();
+            } else if (!running) {
+                abandon(group);
+                group.clear();
+            } else {
+                // Keep the group and retry it on the next pass
+                sleepQuietly(interval);
+            }
+        }
+    }
+
+    private void drainNow() {
+        List<PendingRow> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            writeNow(leftover);
+        }
+    }
+
+    private void writeNow(List<PendingRow> group) {
+        if (!write(group)) {
+            abandon(group);
+        }
+    }
+
+    private boolean write(List<PendingRow> group) {
+        try {
+            sink.write(group.stream().map(pending -> pending.row).toList());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to flush {} inventory ledger rows", group.size(), e);
+            return false;
+        }
+
+        group.forEach(pending -> pending.flushed.complete(null));
+        return true;
+    }
+
+    /**
+     * Give up on rows that cannot be written, logging each so it can be replayed by hand.
+     */
+    private void abandon(List<PendingRow> group) {
+        IllegalStateException failure = new IllegalStateException("Inventory ledger rows were not written");
+        for (PendingRow pending : group) {
+            logger.error("Lost inventory ledger row book_id={} copies={} on_hold_for_customer_id={} created_date={}",
+                    pending.row.getBook().getId(), pending.row.getCopies(), pending.row.getOnHoldForCustomerId(),
+                    pending.row.getCreatedDate());
+            pending.flushed.completeExceptionally(failure);
+        }
+    }
+
+    private static void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Rows queued but not yet flushed */
+    int pendingCount() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "inventory-ledger-appender");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Inventory ledger write-behind started, durable={}, batch-size={}, interval={}",
+                durable, batchSize, interval);
+    }
+
+    /**
+     * Stop accepting new groups and drain what is queued before the datasource is closed.
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Rows queued while the flusher was finishing
+        drainNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,147 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.InventoryPartition;
+import com.ucd.bookshop.repository.InventoryPartitionRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the month partitions of the inventory ledger on MySQL. Keeps months-ahead empty partitions in front of
+ * p_future, and when a retention is set drops the months older than it.
+ *
+ * Before a month is dropped its rows are moved forward, replaced by their net copies per (book_id,
+ * on_hold_for_customer_id) at the start of the next month in the same transaction, so every SUM over the ledger is
+ * unchanged at any time. The drop then only removes an empty partition, and a drop that fails loses nothing. Older
+ * as-of lookups are answered from checkpoints only.
+ *
+ * Off unless bookshop.inventory.partitions.enabled=true. A no-op on databases without partitioning, e.g. H2 in
+ * the tests, or when inventory is not partitioned.
+ */
+@Component
+public class InventoryPartitionManager implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryPartitionManager.class);
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final InventoryPartitionRepository inventoryPartitionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${bookshop.inventory.partitions.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bookshop.inventory.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    /** Months of ledger kept in their own partitions, 0 keeps everything */
+    @Value("${bookshop.inventory.partitions.retention-months:0}")
+    private int retentionMonths;
+
+    @Autowired
+    public InventoryPartitionManager(InventoryPartitionRepository inventoryPartitionRepository,
+            PlatformTransactionManager transactionManager) {
+        this.inventoryPartitionRepository = inventoryPartitionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        scheduledMaintenance();
+    }
+
+    @Scheduled(cron = "${bookshop.inventory.partitions.cron:0 15 1 * * *}")
+    public void scheduledMaintenance() {
+        if (enabled && inventoryPartitionRepository.isSupported()) {
+            maintain(YearMonth.now());
+        }
+    }
+
+    void maintain(YearMonth current) {
+        List<InventoryPartition> partitions = inventoryPartitionRepository.findPartitions();
+        if (partitions.isEmpty()) {
+            logger.info("Inventory table is not partitioned, see schema.sql");
+            return;
+        }
+
+        List<InventoryPartition> added = planNewPartitions(partitions, current, monthsAhead);
+        if (!added.isEmpty()) {
+            inventoryPartitionRepository.addPartitions(added);
+            logger.info("Added inventory partitions {}", added.stream().map(InventoryPartition::getName).toList());
+        }
+
+        if (retentionMonths > 0) {
+            for (InventoryPartition partition : planDroppedPartitions(partitions, retainedFrom(current, retentionMonths))) {
+                dropPartition(partition);
+            }
+        }
+    }
+
+    private void dropPartition(InventoryPartition partition) {
+        // Empties the partition, a retry after a failed drop finds nothing left to carry
+        Integer carried = transactionTemplate.execute(status -> inventoryPartitionRepository.rollUp(partition));
+        logger.info("Carried {} rows of inventory partition {} forward", carried, partition.getName());
+
+        inventoryPartitionRepository.dropPartition(partition.getName());
+        logger.info("Dropped inventory partition {}", partition.getName());
+    }
+
+    /**
+     * Month partitions missing from now up to monthsAhead, after the last bounded partition
+     */
+    static List<InventoryPartition> planNewPartitions(List<InventoryPartition> existing, YearMonth current,
+            int monthsAhead) {
+        Set<String> names = existing.stream().map(InventoryPartition::getName).collect(Collectors.toSet());
+        LocalDateTime lastBound = existing.stream()
+                .filter(p -> !p.isMaxValue())
+                .map(InventoryPartition::getLessThan)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+
+        List<InventoryPartition> planned = new ArrayList<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            LocalDateTime lessThan = month.plusMonths(1).atDay(1).atStartOfDay();
+
+            // Ranges must keep increasing, months before the last bound already live in an existing partition
+            if (names.contains(month.format(NAME_FORMAT)) || (lastBound != null && !lessThan.isAfter(lastBound))) {
+                continue;
+            }
+            planned.add(new InventoryPartition(month.format(NAME_FORMAT), lessThan));
+        }
+        return planned;
+    }
+
+    /**
+     * Bounded partitions whose every row is older than retainedFrom, oldest first
+     */
+    static List<InventoryPartition> planDroppedPartitions(List<InventoryPartition> existing,
+            LocalDateTime retainedFrom) {
+        return existing.stream()
+                .filter(p -> !p.isMaxValue() && !p.getLessThan().isAfter(retainedFrom))
+                .toList();
+    }
+
+    /**
+     * Start of the oldest month still kept in its own partition
+     */
+    static LocalDateTime retainedFrom(YearMonth current, int retentionMonths) {
+        return current.minusMonths(retentionMonths).atDay(1).atStartOfDay();
+    }
+}
@@ -0,0 +1,124 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.event.BookChangedEvent;
+import com.ucd.bookshop.event.BooksImportedEvent;
+import com.ucd.bookshop.event.ChangeListenerOrder;
+import com.ucd.bookshop.event.InventoryChangedEvent;
+import com.ucd.bookshop.model.BookStockLevel;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional in-process stock counters so catalog reads never run the stock query.
+ *
+ * Counters are seeded from the inventory ledger before the application takes traffic and then follow every
+ * committed ledger change. The map is a ConcurrentHashMap, so updates to different books never contend, and each
+ * counter is lock free.
+ *
+ * @Notes only sees changes made by this node, leave disabled when more than one node writes to the ledger.
+ * Off by default, enable with bookshop.stock.engine.enabled=true
+ */
+@Component
+public class InventoryStockEngine implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryStockEngine.class);
+
+    private final InventoryRepository inventoryRepository;
+
+    private final ConcurrentHashMap<Long, StockCounter> counters = new ConcurrentHashMap<>();
+
+    @Value("${bookshop.stock.engine.enabled:false}")
+    private boolean enabled;
+
+    @Autowired
+    public InventoryStockEngine(InventoryRepository inventoryRepository) {
+        this.inventoryRepository = inventoryRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            seed();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Copies available to sell, holds already deducted
+     */
+    public long getAvailable(Long bookId) {
+        StockCounter counter = counters.get(bookId);
+        return counter != null ? counter.available.get() : 0;
+    }
+
+    /**
+     * Copies on hold in customer carts
+     */
+    public long getOnHold(Long bookId) {
+        StockCounter counter = counters.get(bookId);
+        return counter != null ? counter.onHold.get() : 0;
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        StockCounter counter = counters.computeIfAbsent(event.getBookId(), id -> new StockCounter());
+        counter.available.addAndGet(event.getCopies());
+        if (event.isHold()) {
+            counter.onHold.addAndGet(-event.getCopies());
+        }
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onBookChanged(BookChangedEvent event) {
+        if (enabled && event.getChangeType() == BookChangedEvent.ChangeType.DELETED) {
+            counters.remove(event.getBookId());
+        }
+    }
+
+    @TransactionalEventListener
+    @Order(ChangeListenerOrder.STATE)
+    public void onBooksImported(BooksImportedEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        event.getCopiesByBookId().forEach((bookId, copies) ->
+                counters.computeIfAbsent(bookId, id -> new StockCounter()).available.addAndGet(copies));
+    }
+
+    private void seed() {
+        for (BookStockLevel level : inventoryRepository.findAllStockLevels()) {
+            StockCounter counter = new StockCounter();
+            counter.available.set(level.getAvailable());
+            counter.onHold.set(level.getOnHold());
+            counters.put(level.getBookId(), counter);
+        }
+
+        logger.info("Seeded in-memory stock for {} books from the inventory ledger", counters.size());
+    }
+
+    private static final class StockCounter {
+        private final AtomicLong available = new AtomicLong();
+        private final AtomicLong onHold = new AtomicLong();
+    }
+}
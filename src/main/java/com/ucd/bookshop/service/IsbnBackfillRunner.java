@@ -0,0 +1,87 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.Isbn;
+import com.ucd.bookshop.repository.BookRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fills book.isbn13 for books saved before the column existed, when the application is started with
+ * --backfill-isbn13
+ *
+ * e.g. mvn spring-boot:run -Dspring-boot.run.arguments=--backfill-isbn13
+ *
+ * @Notes books with an invalid ISBN, or one already used by another book, are logged and left without isbn13.
+ */
+@Component
+public class IsbnBackfillRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IsbnBackfillRunner.class);
+
+    static final String BACKFILL_OPTION = "backfill-isbn13";
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public IsbnBackfillRunner(BookRepository bookRepository, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(BACKFILL_OPTION)) {
+            backfill();
+        }
+    }
+
+    int backfill() {
+        int filled = 0;
+        long afterId = 0;
+        List<Book> chunk;
+        do {
+            chunk = bookRepository.findWithoutIsbn13After(afterId, Limit.of(CHUNK_SIZE));
+            if (!chunk.isEmpty()) {
+                List<Book> books = chunk;
+                filled += transactionTemplate.execute(status -> backfillChunk(books));
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == CHUNK_SIZE);
+
+        logger.info("Filled isbn13 for {} books", filled);
+        return filled;
+    }
+
+    private int backfillChunk(List<Book> books) {
+        int filled = 0;
+        Set<String> claimed = new HashSet<>();
+        for (Book book : books) {
+            String isbn13 = Isbn.toIsbn13(book.getIsbn());
+            if (isbn13 == null) {
+                logger.warn("Book {} has no valid ISBN: '{}'", book.getId(), book.getIsbn());
+            } else if (!claimed.add(isbn13) || bookRepository.existsByIsbn13(isbn13)) {
+                // The unique index would reject it
+                logger.warn("Book {} has ISBN {} of another book, left without isbn13", book.getId(), isbn13);
+            } else {
+                filled += bookRepository.updateIsbn13(book.getId(), isbn13);
+            }
+        }
+        return filled;
+    }
+}
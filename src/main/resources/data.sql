@@ -21,16 +21,16 @@ WHERE u.user_id IS NULL;
 
 
 
-INSERT INTO book (title, isbn, author, `year`, price)
-    SELECT tmp.title, tmp.isbn, tmp.author, tmp.yr, tmp.price
+INSERT INTO book (title, isbn, isbn13, author, `year`, price)
+    SELECT tmp.title, tmp.isbn, tmp.isbn13, tmp.author, tmp.yr, tmp.price
     FROM (
-         SELECT 'The Clockmaker of Meridiem' title, '978-1-60309-452-8' isbn, 'Elora Finch' author, '2017-10-15' yr, 14.99 price
+         SELECT 'The Clockmaker of Meridiem' title, '978-1-60309-452-8' isbn, '9781603094528' isbn13, 'Elora Finch' author, '2017-10-15' yr, 14.99 price
          UNION
-         SELECT 'Quantum Espresso for Beginners', '978-0-262-03384-8', 'Dr. C. Maxwell Nguyen', '2020-03-09', 35.50
+         SELECT 'Quantum Espresso for Beginners', '978-0-262-03384-8', '9780262033848', 'Dr. C. Maxwell Nguyen', '2020-03-09', 35.50
          UNION
-         SELECT 'Through the Velvet Door', '978-1-4028-9462-6', 'J. R. Kessler', '2023-08-21', 21.75
+         SELECT 'Through the Velvet Door', '978-1-4028-9462-6', '9781402894626', 'J. R. Kessler', '2023-08-21', 21.75
          UNION
-         SELECT 'Sketches from the Hollow Earth', '978-0-14-017739-8', 'Imani Osei', '2019-05-02', 18.00
+         SELECT 'Sketches from the Hollow Earth', '978-0-14-017739-8', '9780140177398', 'Imani Osei', '2019-05-02', 18.00
      ) tmp
      LEFT JOIN book r on r.title = tmp.title
 WHERE r.title IS NULL;
@@ -54,3 +54,12 @@ INSERT INTO inventory(book_id, copies, on_hold_for_customer_id)
          )  as tmp
              LEFT JOIN inventory i on i.book_id = tmp.book_id and i.copies = tmp.copies -- and COALESCE(i.on_hold_for_customer_id, 0) = and COALESCE(tmp.on_hold_for_customer_id, 0)
     WHERE i.inventory_id IS NULL;
+
+-- Seed the stock projection for books without one (rebuild with --rebuild-book-stock)
+INSERT INTO book_stock(book_id, copies)
+    SELECT b.book_id, COALESCE(SUM(i.copies), 0)
+    FROM book b
+             LEFT JOIN inventory i on i.book_id = b.book_id
+             LEFT JOIN book_stock s on s.book_id = b.book_id
+    WHERE s.book_id IS NULL
+    GROUP BY b.book_id;
@@ -44,25 +44,101 @@ CREATE TABLE IF NOT EXISTS book
     book_id 		BIGINT AUTO_INCREMENT PRIMARY KEY,
     title			VARCHAR(2048) NOT NULL,
     isbn			VARCHAR(512) NOT NULL,
+    isbn13			CHAR(13),
     author			VARCHAR(1024) NOT NULL,
     `year`			DATE,
     price			DECIMAL(5,2) DEFAULT 0 NOT NULL,
-    last_modified_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP()
+    -- Moved by any update, including manual SQL, so the catalog ETag sees it
+    last_modified_date TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+    -- title and author are too long to index whole, the catalog sorts and filters on these lower case prefixes
+    title_sort		VARCHAR(191) AS (LEFT(LOWER(title), 191)),
+    author_key		VARCHAR(191) AS (LEFT(LOWER(author), 191)),
+    UNIQUE INDEX ux_book_isbn13(isbn13),
+    -- One index per sort, book_id last so a page continues from the cursor in index order
+    INDEX idx_book_price(price, book_id),
+    INDEX idx_book_year(`year`, book_id),
+    INDEX idx_book_title_sort(title_sort, book_id),
+    INDEX idx_book_author(author_key, book_id),
+    INDEX idx_book_author_price(author_key, price, book_id),
+    INDEX idx_book_author_year(author_key, `year`, book_id),
+    INDEX idx_book_author_title(author_key, title_sort, book_id),
+    INDEX idx_book_last_modified(last_modified_date)
 );
+-- Existing databases, then start once with --backfill-isbn13 to fill isbn13 from isbn:
+-- ALTER TABLE book ADD COLUMN isbn13 CHAR(13) AFTER isbn, ADD UNIQUE INDEX ux_book_isbn13(isbn13);
+-- ALTER TABLE book ADD COLUMN title_sort VARCHAR(191) AS (LEFT(LOWER(title), 191)),
+--     ADD COLUMN author_key VARCHAR(191) AS (LEFT(LOWER(author), 191)),
+--     ADD INDEX idx_book_price(price, book_id), ADD INDEX idx_book_year(`year`, book_id),
+--     ADD INDEX idx_book_title_sort(title_sort, book_id), ADD INDEX idx_book_author(author_key, book_id),
+--     ADD INDEX idx_book_author_price(author_key, price, book_id),
+--     ADD INDEX idx_book_author_year(author_key, `year`, book_id),
+--     ADD INDEX idx_book_author_title(author_key, title_sort, book_id);
+-- ALTER TABLE book MODIFY last_modified_date TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+--     ADD INDEX idx_book_last_modified(last_modified_date);
 
+-- Partitioned by month of created_date, partitions are added and dropped by InventoryPartitionManager.
+-- Partitioned tables cannot have foreign keys, ledger rows of a deleted book are removed by the application.
 CREATE TABLE IF NOT EXISTS inventory
 (
-    inventory_id 	            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    inventory_id 	            BIGINT AUTO_INCREMENT,
     book_id			            BIGINT NOT NULL,
     copies			            INT NOT NULL DEFAULT 0,
     on_hold_for_customer_id		CHAR(36),
-    created_date 	            TIMESTAMP DEFAULT CURRENT_TIMESTAMP(),
+    created_date 	            DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP(),
     created_by		            INT,
-    CONSTRAINT FK_Inventory_Book FOREIGN KEY (book_id) REFERENCES `book`(book_id) ON DELETE CASCADE,
-    INDEX idx_inventory_book(book_id, copies, on_hold_for_customer_id)
+    PRIMARY KEY (inventory_id, created_date),
+    INDEX idx_inventory_book(book_id, copies, on_hold_for_customer_id),
+    INDEX idx_inventory_book_created(book_id, created_date)
+)
+PARTITION BY RANGE COLUMNS(created_date)
+(
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
 );
 
 -- ALTER TABLE inventory ADD INDEX idx_inventory_book(book_id, copies, on_hold_for_customer_id);
+-- ALTER TABLE inventory ADD INDEX idx_inventory_book_created(book_id, created_date);
+
+-- Partition an existing ledger, takes a copy of the table so run it in a quiet period
+-- ALTER TABLE inventory DROP FOREIGN KEY FK_Inventory_Book;
+-- ALTER TABLE inventory MODIFY created_date DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP(), DROP PRIMARY KEY, ADD PRIMARY KEY (inventory_id, created_date);
+-- ALTER TABLE inventory PARTITION BY RANGE COLUMNS(created_date) (PARTITION p_future VALUES LESS THAN (MAXVALUE));
+
+-- Ledger partitions that have been rolled up into the next partition before being dropped
+CREATE TABLE IF NOT EXISTS inventory_partition_archive
+(
+    partition_name      VARCHAR(64) NOT NULL PRIMARY KEY,
+    range_end           DATETIME NOT NULL,
+    carried_rows        INT NOT NULL,
+    archived_date       TIMESTAMP DEFAULT CURRENT_TIMESTAMP()
+);
+
+-- Running total of the inventory ledger per book, maintained with each inventory insert
+CREATE TABLE IF NOT EXISTS book_stock
+(
+    book_id             BIGINT NOT NULL PRIMARY KEY,
+    copies              BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT FK_BookStock_Book FOREIGN KEY (book_id) REFERENCES `book`(book_id) ON DELETE CASCADE
+);
+
+-- Deleted book count for the catalog ETag, one row. Bump deleted_books when deleting books by hand
+CREATE TABLE IF NOT EXISTS catalog_version
+(
+    catalog_version_id  INT NOT NULL PRIMARY KEY,
+    deleted_books       BIGINT NOT NULL DEFAULT 0
+);
+
+INSERT IGNORE INTO catalog_version (catalog_version_id, deleted_books) VALUES (1, 0);
+
+-- Stock per book at a point in time, written periodically to answer as-of-time queries
+CREATE TABLE IF NOT EXISTS inventory_checkpoint
+(
+    checkpoint_id       BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_id             BIGINT NOT NULL,
+    copies              BIGINT NOT NULL DEFAULT 0,
+    as_of               TIMESTAMP NOT NULL,
+    CONSTRAINT FK_InventoryCheckpoint_Book FOREIGN KEY (book_id) REFERENCES `book`(book_id) ON DELETE CASCADE,
+    INDEX idx_inventory_checkpoint_book(book_id, as_of)
+);
 
 CREATE TABLE IF NOT EXISTS shopping_cart
 (
@@ -70,11 +146,17 @@ CREATE TABLE IF NOT EXISTS shopping_cart
 	book_id			    BIGINT NOT NULL,
 	customer_id			INT NOT NULL,
     created_date 	    TIMESTAMP DEFAULT CURRENT_TIMESTAMP(),
+    last_activity_date  TIMESTAMP DEFAULT CURRENT_TIMESTAMP(),
     abandoned			TINYINT(1) DEFAULT 0,
     CONSTRAINT FK_ShoppingCart_Book FOREIGN KEY (book_id) REFERENCES `book`(book_id) ON DELETE CASCADE,
-    CONSTRAINT FK_ShoppingCart_Customer FOREIGN KEY (customer_id) REFERENCES `customer`(customer_id)
+    CONSTRAINT FK_ShoppingCart_Customer FOREIGN KEY (customer_id) REFERENCES `customer`(customer_id),
+    INDEX idx_shopping_cart_open(abandoned, last_activity_date)
 );
 
+-- ALTER TABLE shopping_cart ADD COLUMN last_activity_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP() AFTER created_date;
+-- UPDATE shopping_cart SET last_activity_date = created_date;
+-- ALTER TABLE shopping_cart DROP INDEX idx_shopping_cart_open, ADD INDEX idx_shopping_cart_open(abandoned, last_activity_date);
+
 CREATE TABLE IF NOT EXISTS `order`
 (
     order_id	        BIGINT AUTO_INCREMENT PRIMARY KEY,
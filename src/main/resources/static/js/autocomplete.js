@@ -0,0 +1,48 @@
+/*
+ * Type-ahead for inputs with data-autocomplete-url, suggestions come from /v1/web/autocomplete
+ * and are offered through a datalist.
+ */
+(function () {
+    var DELAY_MS = 100;
+
+    document.querySelectorAll('input[data-autocomplete-url]').forEach(function (input) {
+        var list = document.createElement('datalist');
+        list.id = input.name + '-suggestions';
+        input.setAttribute('list', list.id);
+        input.setAttribute('autocomplete', 'off');
+        input.after(list);
+
+        var timer = null;
+        var pending = null;
+
+        input.addEventListener('input', function () {
+            clearTimeout(timer);
+            var prefix = input.value.trim();
+            if (!prefix) {
+                list.replaceChildren();
+                return;
+            }
+
+            timer = setTimeout(function () {
+                // Only the latest keystroke matters
+                if (pending) {
+                    pending.abort();
+                }
+                pending = new AbortController();
+
+                var url = input.dataset.autocompleteUrl + '?prefix=' + encodeURIComponent(prefix);
+                fetch(url, { signal: pending.signal })
+                    .then(function (response) { return response.ok ? response.json() : []; })
+                    .then(function (suggestions) {
+                        list.replaceChildren.apply(list, suggestions.map(function (suggestion) {
+                            var option = document.createElement('option');
+                            option.value = suggestion.text;
+                            option.label = suggestion.type === 'AUTHOR' ? 'Author' : 'Title';
+                            return option;
+                        }));
+                    })
+                    .catch(function () { });
+            }, DELAY_MS);
+        });
+    });
+})();
@@ -0,0 +1,25 @@
+/*
+ * Live stock updates for the book lists, pushed by /v1/web/inventory/stream.
+ * Elements with data-stock-book-id show the copies, elements with data-availability-book-id
+ * get the out-of-stock class when none are left.
+ */
+(function () {
+    var script = document.currentScript;
+    if (!window.EventSource || !script) {
+        return;
+    }
+
+    var source = new EventSource(script.dataset.streamUrl);
+
+    source.addEventListener('stock', function (event) {
+        var change = JSON.parse(event.data);
+
+        document.querySelectorAll('[data-stock-book-id="' + change.bookId + '"]').forEach(function (element) {
+            element.textContent = change.copies;
+        });
+
+        document.querySelectorAll('[data-availability-book-id="' + change.bookId + '"]').forEach(function (element) {
+            element.classList.toggle('out-of-stock', change.copies <= 0);
+        });
+    });
+})();
@@ -0,0 +1,71 @@
+package com.ucd.bookshop;
+
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.Customer;
+import com.ucd.bookshop.model.User;
+
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Books and customers for repository and service tests.
+ */
+public final class TestFixtures {
+
+    private static final AtomicLong nextIsbn = new AtomicLong();
+
+    private TestFixtures() {
+    }
+
+    /**
+     * An unsaved book with an ISBN no other fixture book has
+     */
+    public static Book newBook(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setIsbn(uniqueIsbn());
+        book.setAuthor("Jane Writer");
+        book.setYear(LocalDate.of(2020, 1, 1));
+        book.setPrice(new BigDecimal("19.99"));
+        return book;
+    }
+
+    /**
+     * A saved customer with its user
+     */
+    public static Customer newCustomer(TestEntityManager entityManager, String userName) {
+        User user = new User();
+        user.setUserId(UUID.randomUUID());
+        user.setUserName(userName);
+        user.setPassword("hashedpassword");
+        user.setSalt("salt123");
+        user.setRoleId(2);
+        user.setIsUsing2FA(false);
+        user.setSecret("secret");
+        entityManager.persistAndFlush(user);
+
+        Customer customer = new Customer();
+        customer.setUser(user);
+        customer.setName("John");
+        customer.setSurname("Doe");
+        customer.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        customer.setAddress("123 Main Street");
+        customer.setPhoneNumber("1324567890");
+        customer.setEmail(userName + "@test.com");
+        return entityManager.persistAndFlush(customer);
+    }
+
+    /** A valid ISBN-13 in the 979 range, counted up per call */
+    private static String uniqueIsbn() {
+        String digits = "979" + String.format("%09d", nextIsbn.incrementAndGet());
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+}
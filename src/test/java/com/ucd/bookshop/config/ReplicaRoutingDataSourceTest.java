@@ -0,0 +1,156 @@
+package com.ucd.bookshop.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing between two H2 databases standing in for a primary and a replica, each naming itself in a table.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final SwitchableDataSource replica = new SwitchableDataSource(database("replica"));
+
+    private ReplicaRoutingDataSource routing;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        routing = new ReplicaRoutingDataSource(database("primary"), List.of(replica), Duration.ofSeconds(1));
+        routing.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.endRequest();
+    }
+
+    @Test
+    void testReadOnlyTransactionsReadTheReplica() {
+        assertThat(nodeIn(readOnly)).isEqualTo("replica");
+        assertThat(nodeIn(readWrite)).isEqualTo("primary");
+        // No transaction e.g. a plain JdbcTemplate write
+        assertThat(node()).isEqualTo("primary");
+    }
+
+    @Test
+    void testReplicaDownFallsBackToThePrimary() {
+        replica.down = true;
+        routing.checkReplicas();
+
+        assertThat(routing.getUsableReplicas()).isEmpty();
+        assertThat(nodeIn(readOnly)).isEqualTo("primary");
+
+        replica.down = false;
+        routing.checkReplicas();
+
+        assertThat(nodeIn(readOnly)).isEqualTo("replica");
+    }
+
+    @Test
+    void testReadsAfterAWriteInTheRequestStayOnThePrimary() {
+        ReplicaRoutingDataSource.startRequest(false);
+        assertThat(nodeIn(readOnly)).isEqualTo("replica");
+
+        readWrite.executeWithoutResult(status -> node());
+
+        assertThat(nodeIn(readOnly)).isEqualTo("primary");
+        assertThat(ReplicaRoutingDataSource.endRequest()).isTrue();
+
+        // Outside a request only onPrimary keeps reads there
+        assertThat(nodeIn(readOnly)).isEqualTo("replica");
+        assertThat(ReplicaRoutingDataSource.onPrimary(() -> nodeIn(readOnly))).isEqualTo("primary");
+    }
+
+    @Test
+    void testSessionReadsOnThePrimaryForAWhileAfterItWrites() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofMinutes(1));
+        MockHttpSession session = new MockHttpSession();
+        AtomicReference<String> read = new AtomicReference<>();
+
+        filter.doFilter(request(session), new MockHttpServletResponse(),
+                (request, response) -> readWrite.executeWithoutResult(status -> node()));
+        assertThat(session.getAttribute(ReadYourWritesFilter.LAST_WRITE)).isNotNull();
+
+        filter.doFilter(request(session), new MockHttpServletResponse(),
+                (request, response) -> read.set(nodeIn(readOnly)));
+        assertThat(read.get()).isEqualTo("primary");
+
+        // Another visitor reads the replica
+        filter.doFilter(request(new MockHttpSession()), new MockHttpServletResponse(),
+                (request, response) -> read.set(nodeIn(readOnly)));
+        assertThat(read.get()).isEqualTo("replica");
+    }
+
+    private String nodeIn(TransactionTemplate transaction) {
+        return transaction.execute(status -> node());
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static MockHttpServletRequest request(MockHttpSession session) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/web/customers/checkout");
+        request.setSession(session);
+        return request;
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-routing;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists node (name varchar(20))");
+        jdbcTemplate.update("delete from node");
+        jdbcTemplate.update("insert into node (name) values (?)", name);
+        return dataSource;
+    }
+
+    /** A replica that can be taken down */
+    private static final class SwitchableDataSource extends DelegatingDataSource {
+
+        private volatile boolean down;
+
+        private SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("replica down");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.ucd.bookshop.config;
+
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.BookStreamRepository;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing through the JPA transaction manager the application runs with, the primary holding the schema from the
+ * entities and the replica one book of its own.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ BookStreamRepository.class, ReplicaRoutingJpaTest.Databases.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaRoutingJpaTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-jpa-primary;DB_CLOSE_DELAY=-1";
+
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-jpa-replica;DB_CLOSE_DELAY=-1";
+
+    @TestConfiguration
+    static class Databases {
+
+        @Bean
+        ReplicaRoutingDataSource replicaRoutingDataSource() {
+            return new ReplicaRoutingDataSource(database(PRIMARY_URL), List.of(database(REPLICA_URL)),
+                    Duration.ofSeconds(1));
+        }
+
+        @Bean
+        @Primary
+        DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+            return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+        }
+    }
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookStreamRepository bookStreamRepository;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate replica = new JdbcTemplate(database(REPLICA_URL));
+        replica.execute("""
+                create table if not exists book (book_id bigint primary key, title varchar(255), author varchar(255),
+                isbn varchar(255), price decimal(5,2), "year" date)
+                """);
+        replica.execute("create table if not exists book_stock (book_id bigint primary key, copies bigint)");
+        replica.update("merge into book key (book_id) values (1, 'On the Replica', 'Jane Writer', '0000000000', 9.99, null)");
+    }
+
+    @Test
+    void testReadOnlyJpaTransactionReadsTheReplica() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Long onReplica = readOnly.execute(status -> bookRepository.count());
+        Long onPrimary = new TransactionTemplate(transactionManager).execute(status -> bookRepository.count());
+
+        assertThat(onReplica).isEqualTo(1);
+        assertThat(onPrimary).isZero();
+    }
+
+    @Test
+    void testStreamOutsideATransactionReadsTheReplica() {
+        List<String> titles = new ArrayList<>();
+        bookStreamRepository.forEachBookWithStock(book -> titles.add(book.getTitle()));
+
+        assertThat(titles).containsExactly("On the Replica");
+    }
+
+    private static JdbcDataSource database(String url) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url);
+        return dataSource;
+    }
+}
@@ -0,0 +1,158 @@
+package com.ucd.bookshop.controllers;
+
+import com.ucd.bookshop.controllers.dto.BookField;
+import com.ucd.bookshop.controllers.dto.BookPageDto;
+import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.controllers.v1.BookApiController;
+import com.ucd.bookshop.exception.BookAlreadyExistsException;
+import com.ucd.bookshop.model.BookInventory;
+import com.ucd.bookshop.service.BookCatalogService;
+import com.ucd.bookshop.service.BookExportService;
+import com.ucd.bookshop.service.BookImportService;
+import com.ucd.bookshop.service.BookInventoryService;
+import com.ucd.bookshop.service.BookSearchService;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = BookApiController.class, excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class })
+class BookApiControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean()
+    private BookInventoryService bookInventoryService;
+
+    @MockitoBean()
+    private BookSearchService bookSearchService;
+
+    @MockitoBean()
+    private BookExportService bookExportService;
+
+    @MockitoBean()
+    private BookCatalogService bookCatalogService;
+
+    @MockitoBean()
+    private BookImportService bookImportService;
+
+    @Test
+    void testStreamIsTurnedAwayWhileEverySlotIsTaken() throws Exception {
+        Mockito.when(bookInventoryService.getCatalogVersionTag()).thenReturn("abc-7");
+        Mockito.when(bookExportService.tryReserve()).thenReturn(null);
+
+        mockMvc.perform(get("/v1/api/books/stream"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "60"));
+
+        verify(bookExportService, never()).writeJson(any());
+    }
+
+    @Test
+    void testUnchangedCatalogIsNotModified() throws Exception {
+        Mockito.when(bookInventoryService.getCatalogVersionTag()).thenReturn("abc-7");
+        Mockito.when(bookCatalogService.getBooksPage(any(), any(), any(), any())).thenReturn(new BookPageDto(List.of(), null));
+
+        mockMvc.perform(get("/v1/api/books"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-7\""));
+
+        mockMvc.perform(get("/v1/api/books").header(HttpHeaders.IF_NONE_MATCH, "\"abc-7\""))
+                .andExpect(status().isNotModified());
+
+        // Only the first request read the catalog
+        verify(bookCatalogService, Mockito.times(1)).getBooksPage(any(), any(), any(), any());
+    }
+
+    @Test
+    void testChangedCatalogIsSentAgain() throws Exception {
+        Mockito.when(bookInventoryService.getCatalogVersionTag()).thenReturn("abc-8");
+        Mockito.when(bookCatalogService.getBooksPage(any(), any(), any(), any())).thenReturn(new BookPageDto(List.of(), null));
+
+        mockMvc.perform(get("/v1/api/books").header(HttpHeaders.IF_NONE_MATCH, "\"abc-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-8\""));
+    }
+
+    @Test
+    void testUnknownSortIsRejected() throws Exception {
+        mockMvc.perform(get("/v1/api/books").param("sort", "popularity"))
+                .andExpect(status().isBadRequest());
+
+        verify(bookCatalogService, never()).getBooksPage(any(), any(), any(), any());
+    }
+
+    @Test
+    void testFieldsNarrowTheBooks() throws Exception {
+        Mockito.when(bookInventoryService.getCatalogVersionTag()).thenReturn("abc-7");
+        Mockito.when(bookCatalogService.getBooksPage(any(), any(), any(),
+                eq(EnumSet.of(BookField.ID, BookField.ISBN, BookField.COPIES))))
+                .thenReturn(new BookPageDto(List.of(new BookWithInventoryDto(new BookInventory(7L, null, null,
+                        "isbn-7", null, null, 3L))), null));
+
+        mockMvc.perform(get("/v1/api/books").param("fields", "isbn, copies"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[0].isbn").value("isbn-7"))
+                .andExpect(jsonPath("$[0].copies").value(3))
+                .andExpect(jsonPath("$[0].title").doesNotExist());
+
+        mockMvc.perform(get("/v1/api/books").param("fields", "isbn,popularity"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testFacetsShareTheCatalogETag() throws Exception {
+        Mockito.when(bookInventoryService.getCatalogVersionTag()).thenReturn("abc-7");
+
+        mockMvc.perform(get("/v1/api/books/facets").header(HttpHeaders.IF_NONE_MATCH, "\"abc-7\""))
+                .andExpect(status().isNotModified());
+
+        verify(bookCatalogService, never()).getFacets();
+    }
+
+    @Test
+    void testUnchangedBookIsNotModified() throws Exception {
+        Mockito.when(bookInventoryService.getCatalogVersionTag()).thenReturn("abc-7");
+
+        mockMvc.perform(get("/v1/api/books/1").header(HttpHeaders.IF_NONE_MATCH, "\"abc-7\""))
+                .andExpect(status().isNotModified());
+
+        verify(bookInventoryService, never()).getBookWithInventoryById(any());
+    }
+
+    @Test
+    void testUpdateWithTheIsbnOfAnotherBookIsAConflict() throws Exception {
+        Mockito.when(bookInventoryService.updateBookInventory(any(BookWithInventoryDto.class), any()))
+                .thenThrow(new BookAlreadyExistsException("9781603094528"));
+
+        mockMvc.perform(put("/v1/api/books/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"id":1,"title":"Test Book","author":"Test Author","isbn":"9781603094528",
+                        "price":19.99,"year":"2020-01-01","copies":10}
+                        """))
+                .andExpect(status().isConflict());
+    }
+}
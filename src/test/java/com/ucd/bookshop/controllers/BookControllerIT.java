@@ -1,7 +1,9 @@
 package com.ucd.bookshop.controllers;
 
+import com.ucd.bookshop.controllers.dto.BookPageDto;
 import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
 import com.ucd.bookshop.controllers.web.BookController;
+import com.ucd.bookshop.exception.BookAlreadyExistsException;
 import com.ucd.bookshop.repository.BookRepository;
 import com.ucd.bookshop.service.BookInventoryService;
 
@@ -15,14 +17,19 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
 @WebMvcTest(controllers = BookController.class, excludeAutoConfiguration = {
         org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration.class })
@@ -67,4 +74,65 @@ class BookControllerIT {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/v1/web/books/"));
     }
+
+    @Test
+    void testUpdateBookWithTheIsbnOfAnotherBookShowsTheFormAgain() throws Exception {
+        BookWithInventoryDto bookDto = new BookWithInventoryDto();
+        bookDto.setId(1L);
+        Mockito.when(bookInventoryService.getBookWithInventoryById(anyLong()))
+                .thenReturn(bookDto);
+        Mockito.when(bookInventoryService.updateBookInventory(any(BookWithInventoryDto.class), isNull()))
+                .thenThrow(new BookAlreadyExistsException("9781603094528"));
+        Mockito.when(bookInventoryService.getBooksPage(any(), any()))
+                .thenReturn(new BookPageDto(List.of(), null));
+
+        mockMvc.perform(put("/v1/web/books/save")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("id", "1")
+                .param("title", "Test Book")
+                .param("author", "Test Author")
+                .param("isbn", "9781603094528")
+                .param("price", "19.99")
+                .param("year", "2020-01-01")
+                .param("copies", "10")
+                .param("source", "home"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin/home"))
+                .andExpect(model().attributeHasFieldErrorCode("book", "isbn", "duplicate"));
+    }
+
+    @Test
+    void testEditFormKeepsTheListPageItCameFrom() throws Exception {
+        BookWithInventoryDto bookDto = new BookWithInventoryDto();
+        bookDto.setId(1L);
+        Mockito.when(bookInventoryService.getBookWithInventoryById(anyLong()))
+                .thenReturn(bookDto);
+        Mockito.when(bookInventoryService.getBooksPage(any(), any()))
+                .thenReturn(new BookPageDto(List.of(), 30L));
+
+        // A validation error shows the same page behind the form
+        mockMvc.perform(put("/v1/web/books/save")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("id", "1")
+                .param("source", "home")
+                .param("cursor", "42"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin/home"))
+                .andExpect(model().attribute("cursor", 42L));
+        Mockito.verify(bookInventoryService).getBooksPage(eq(42L), isNull());
+
+        mockMvc.perform(put("/v1/web/books/save")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("id", "1")
+                .param("title", "Test Book")
+                .param("author", "Test Author")
+                .param("isbn", "123456789")
+                .param("price", "19.99")
+                .param("year", "2020-01-01")
+                .param("copies", "10")
+                .param("source", "home")
+                .param("cursor", "42"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/v1/web/books/?cursor=42"));
+    }
 }
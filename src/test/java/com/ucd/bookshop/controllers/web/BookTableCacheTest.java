@@ -0,0 +1,108 @@
+package com.ucd.bookshop.controllers.web;
+
+import com.ucd.bookshop.controllers.dto.BookFilterDto;
+import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.model.BookInventory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The cached book table, rendered from the real fragment.
+ */
+class BookTableCacheTest {
+
+    private final BookTableCache bookTableCache = new BookTableCache(templateEngine());
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testSameVersionAndQueryIsServedFromCache() {
+        String first = bookTableCache.get("1-1", "cursor=5", request(), new MockHttpServletResponse(), table("First"));
+        String second = bookTableCache.get("1-1", "cursor=5", request(), new MockHttpServletResponse(), table("Second"));
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(second).isSameAs(first).contains("First").contains("data-availability-book-id=\"7\"");
+
+        // Another page is its own entry
+        bookTableCache.get("1-1", "cursor=9", request(), new MockHttpServletResponse(), table("Other"));
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testNewCatalogVersionRendersAgain() {
+        bookTableCache.get("1-1", "", request(), new MockHttpServletResponse(), table("Before"));
+        String after = bookTableCache.get("1-2", "", request(), new MockHttpServletResponse(), table("After"));
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(after).contains("After").doesNotContain("Before");
+    }
+
+    @Test
+    void testLinksDoNotCarryTheSessionId() {
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public String encodeURL(String url) {
+                return url + ";jsessionid=visitor";
+            }
+        };
+
+        String html = bookTableCache.get("1-1", "", request(), response, table("Book"));
+
+        assertThat(html).contains("addItemToCart?bookId=7").doesNotContain("jsessionid");
+    }
+
+    @Test
+    void testEquivalentQueryStringsShareOneKey() {
+        String key = HomeController.catalogUrl(request(), filter("10.50", " Ann AUTHOR ", "-price"), 5L);
+
+        assertThat(key).isEqualTo("/v1/web/home?minPrice=10.5&author=ann%20author&sort=-price&cursor=5");
+        assertThat(HomeController.catalogUrl(request(), filter("10.5", "ann author", "-PRICE"), 5L)).isEqualTo(key);
+        // The default sort is left out, as when no sort is given
+        assertThat(HomeController.catalogUrl(request(), filter(null, null, "newest"), null)).isEqualTo("/v1/web/home");
+    }
+
+    private static BookFilterDto filter(String minPrice, String author, String sort) {
+        BookFilterDto filter = new BookFilterDto();
+        filter.setMinPrice(minPrice != null ? new BigDecimal(minPrice) : null);
+        filter.setAuthor(author);
+        filter.setSort(sort);
+        return filter;
+    }
+
+    private Supplier<Map<String, Object>> table(String title) {
+        return () -> {
+            loads.incrementAndGet();
+            Map<String, Object> table = new HashMap<>();
+            table.put("listBooks", List.of(new BookWithInventoryDto(new BookInventory(7L, title, "Ann Author",
+                    "isbn-7", new BigDecimal("9.99"), LocalDate.of(2001, 1, 1), 3L))));
+            return table;
+        };
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/v1/web/home");
+    }
+
+    private static SpringTemplateEngine templateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+}
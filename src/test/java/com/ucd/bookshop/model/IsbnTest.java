@@ -0,0 +1,29 @@
+package com.ucd.bookshop.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IsbnTest {
+
+    @Test
+    void testIsbn13IsStrippedOfSeparators() {
+        assertThat(Isbn.toIsbn13("978-1-60309-452-8")).isEqualTo("9781603094528");
+        assertThat(Isbn.toIsbn13("ISBN: 978 1 60309 452 8")).isEqualTo("9781603094528");
+    }
+
+    @Test
+    void testIsbn10IsConverted() {
+        assertThat(Isbn.toIsbn13("1-60309-452-0")).isEqualTo("9781603094528");
+        assertThat(Isbn.toIsbn13("0-8044-2957-x")).isEqualTo("9780804429573");
+    }
+
+    @Test
+    void testInvalidIsbnIsRejected() {
+        // Wrong check digits
+        assertThat(Isbn.toIsbn13("978-1-60309-452-9")).isNull();
+        assertThat(Isbn.toIsbn13("1234567890")).isNull();
+        assertThat(Isbn.toIsbn13("123-456-789")).isNull();
+        assertThat(Isbn.toIsbn13(null)).isNull();
+    }
+}
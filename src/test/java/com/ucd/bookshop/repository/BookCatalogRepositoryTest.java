@@ -0,0 +1,304 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.controllers.dto.BookField;
+import com.ucd.bookshop.controllers.dto.BookFilterDto;
+import com.ucd.bookshop.controllers.dto.BookFilterDto.Sort;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookInventory;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@Import(BookCatalogRepository.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.ucd.bookshop.repository.BookCatalogRepositoryTest$SqlRecorder",
+        // Values in the SQL rather than parameters, to EXPLAIN ANALYZE it as sent
+        "spring.jpa.properties.hibernate.criteria.value_handling_mode=inline"
+})
+class BookCatalogRepositoryTest {
+
+    @Autowired
+    private BookCatalogRepository bookCatalogRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Repeated prices and years, and books without a year, so ties and NULL cross page boundaries
+        for (int i = 0; i < 12; i++) {
+            LocalDate year = i % 4 == 3 ? null : LocalDate.of(2000 + i % 3, 1, 1);
+            books.add(bookRepository.save(new Book(null, "Title " + (char) ('A' + i), i % 2 == 0 ? "Ann Author" : "Bob Writer",
+                    "isbn-" + i, BigDecimal.valueOf(10 + i % 5), year)));
+        }
+        bookRepository.flush();
+    }
+
+    @Test
+    void testEverySortPagesThroughAllBooksInOrder() {
+        BookFilterDto filter = new BookFilterDto();
+        Map<Long, Book> byId = books.stream().collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        for (Sort sort : Sort.values()) {
+            List<Long> ids = readAll(filter, sort, 5);
+
+            assertThat(ids).as(sort.name()).doesNotHaveDuplicates().hasSize(books.size());
+            assertThat(ids.stream().map(byId::get).toList()).as(sort.name()).isSortedAccordingTo(order(sort));
+        }
+    }
+
+    @Test
+    void testFiltersCombineWithSort() {
+        BookFilterDto filter = new BookFilterDto();
+        filter.setMinPrice(BigDecimal.valueOf(11));
+        filter.setMaxPrice(BigDecimal.valueOf(13));
+        filter.setFromYear(2001);
+        filter.setToYear(2002);
+        filter.setAuthor(" ann AUTHOR ");
+
+        List<Long> expected = books.stream()
+                .filter(book -> book.getAuthor().equals("Ann Author"))
+                .filter(book -> book.getPrice().intValue() >= 11 && book.getPrice().intValue() <= 13)
+                .filter(book -> book.getYear() != null && book.getYear().getYear() >= 2001)
+                .sorted(order(Sort.PRICE_DESC))
+                .map(Book::getId)
+                .toList();
+
+        assertThat(expected).isNotEmpty();
+        assertThat(readAll(filter, Sort.PRICE_DESC, 1)).containsExactlyElementsOf(expected);
+    }
+
+    /**
+     * Index H2 picks and rows it reads for each filter and sort, first page and after a cursor, with 100 books no
+     * filter matches so a walk of the whole index shows in the rows read.
+     *
+     * A filter on the sort column, or none, reads a page from the sort index. Any other filter reads every book it
+     * matches from the index leading with the filter column and sorts them; H2 does not take the author_price,
+     * author_year and author_title indexes for the order as MySQL does. A price or year range with a different sort,
+     * after a cursor, may still walk the sort index from the cursor through books outside the range; for those only
+     * the index is checked.
+     */
+    @Test
+    void testEachFilterAndSortReadsItsIndex() {
+        for (int i = 0; i < 100; i++) {
+            books.add(bookRepository.save(new Book(null, "Filler " + i, "Filler Author", "filler-" + i,
+                    BigDecimal.valueOf(50), LocalDate.of(1990, 1, 1))));
+        }
+        bookRepository.flush();
+
+        BookFilterDto byAuthor = new BookFilterDto();
+        byAuthor.setAuthor("Ann Author");
+        BookFilterDto byPrice = new BookFilterDto();
+        byPrice.setMinPrice(BigDecimal.valueOf(11));
+        byPrice.setMaxPrice(BigDecimal.valueOf(13));
+        BookFilterDto byYear = new BookFilterDto();
+        byYear.setFromYear(2001);
+        List<FilterCase> filters = List.of(
+                new FilterCase("none", new BookFilterDto(), null, null, book -> true),
+                new FilterCase("author", byAuthor, "IDX_BOOK_AUTHOR", null,
+                        book -> book.getAuthor().equals("Ann Author")),
+                new FilterCase("price", byPrice, "IDX_BOOK_PRICE", "PRICE",
+                        book -> book.getPrice().intValue() >= 11 && book.getPrice().intValue() <= 13),
+                new FilterCase("year", byYear, "IDX_BOOK_YEAR", "YEAR",
+                        book -> book.getYear() != null && book.getYear().getYear() >= 2001));
+
+        int limit = 3;
+        for (FilterCase filterCase : filters) {
+            long matches = books.stream().filter(filterCase.matches()).count();
+            for (Sort sort : Sort.values()) {
+                String sortIndex = sortIndex(sort);
+                boolean sortServesFilter = filterCase.index() == null
+                        || (filterCase.column() != null && sort.name().startsWith(filterCase.column()));
+
+                Plan first = plan(filterCase.filter(), sort, null, limit);
+                String pair = filterCase.name() + " " + sort;
+                if (sortServesFilter) {
+                    assertThat(first.index()).as(pair).isEqualTo(sortIndex);
+                    assertThat(first.rowsRead()).as(pair).isLessThanOrEqualTo(limit);
+                } else {
+                    assertThat(first.index()).as(pair).isEqualTo(filterCase.index());
+                    assertThat(first.rowsRead()).as(pair).isLessThanOrEqualTo(matches + 1);
+                }
+
+                for (Long cursor : List.of(books.get(3).getId(), books.get(5).getId())) {
+                    Plan after = plan(filterCase.filter(), sort, cursor, limit);
+                    String page = pair + " after " + cursor;
+                    if (sortServesFilter) {
+                        assertThat(after.index()).as(page).isEqualTo(sortIndex);
+                        // The cursor row and a tie on its sort key are read past
+                        assertThat(after.rowsRead()).as(page).isLessThanOrEqualTo(limit + 2);
+                    } else if (filterCase.column() == null) {
+                        // Or the author index for the sort, e.g. IDX_BOOK_AUTHOR_PRICE, when the cursor bounds it
+                        assertThat(after.index()).as(page).matches(
+                                index -> index.equals(sortIndex) || index.startsWith(filterCase.index()));
+                        assertThat(after.rowsRead()).as(page).isLessThanOrEqualTo(matches + 1);
+                    } else {
+                        assertThat(after.index()).as(page).isIn(sortIndex, filterCase.index());
+                        if (after.index().equals(filterCase.index())) {
+                            assertThat(after.rowsRead()).as(page).isLessThanOrEqualTo(matches + 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testNarrowFieldsReadOnlyTheirColumns() {
+        jdbcTemplate.update("insert into book_stock (book_id, copies) values (?, 4)", books.get(0).getId());
+
+        SqlRecorder.SQL.clear();
+        List<BookInventory> narrow = bookCatalogRepository.findBooksByIds(
+                List.of(books.get(0).getId(), books.get(1).getId()), BookField.parse("isbn,copies"), true);
+
+        assertThat(narrow).extracting(BookInventory::getId, BookInventory::getIsbn, BookInventory::getCopies,
+                BookInventory::getTitle, BookInventory::getAuthor).containsExactlyInAnyOrder(
+                tuple(books.get(0).getId(), "isbn-0", 4L, null, null),
+                tuple(books.get(1).getId(), "isbn-1", 0L, null, null));
+        assertThat(SqlRecorder.SQL.get(SqlRecorder.SQL.size() - 1)).doesNotContain("title").doesNotContain("author");
+
+        // Stock from memory, book_stock is not read
+        SqlRecorder.SQL.clear();
+        assertThat(bookCatalogRepository.findBooksByIds(List.of(books.get(0).getId()), BookField.parse("copies"), false))
+                .extracting(BookInventory::getId, BookInventory::getCopies)
+                .containsExactly(tuple(books.get(0).getId(), null));
+        assertThat(SqlRecorder.SQL.get(SqlRecorder.SQL.size() - 1)).doesNotContain("book_stock");
+    }
+
+    @Test
+    void testMatchingNeedsEveryTermInTitleAuthorOrIsbn() {
+        Book spring = bookRepository.saveAndFlush(new Book(null, "Spring in Action", "Craig Walls", "978-1-61729-494-5",
+                BigDecimal.TEN, null));
+
+        List<Long> annTitles = books.stream()
+                .filter(book -> book.getAuthor().equals("Ann Author"))
+                .map(Book::getId)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        assertThat(bookCatalogRepository.findIdsMatching(List.of("title", "ann"), 0, 100))
+                .containsExactlyElementsOf(annTitles);
+        assertThat(bookCatalogRepository.findIdsMatching(List.of("title", "ann"), 1, 2))
+                .containsExactlyElementsOf(annTitles.subList(1, 3));
+        assertThat(bookCatalogRepository.countMatching(List.of("title", "ann"))).isEqualTo(annTitles.size());
+
+        assertThat(bookCatalogRepository.findIdsMatching(List.of("9781617294945"), 0, 10)).containsExactly(spring.getId());
+        assertThat(bookCatalogRepository.findIdsMatching(List.of("spring", "walls"), 0, 10)).containsExactly(spring.getId());
+        assertThat(bookCatalogRepository.countMatching(List.of("spring", "cooking"))).isZero();
+    }
+
+    private List<Long> readAll(BookFilterDto filter, Sort sort, int size) {
+        List<Long> ids = new ArrayList<>();
+        Long cursor = null;
+        List<Long> page;
+        do {
+            page = bookCatalogRepository.findIds(filter, sort, cursor, size);
+            ids.addAll(page);
+            cursor = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == size);
+        return ids;
+    }
+
+    /** The order each sort should produce, NULL lowest and ties broken by id in the sort direction */
+    private static Comparator<Book> order(Sort sort) {
+        Comparator<Book> byId = Comparator.comparing(Book::getId);
+        Comparator<Book> order = switch (sort) {
+            case PRICE, PRICE_DESC -> Comparator.comparing(Book::getPrice).thenComparing(byId);
+            case TITLE, TITLE_DESC -> Comparator.comparing((Book book) -> book.getTitle().toLowerCase())
+                    .thenComparing(byId);
+            case YEAR, YEAR_DESC -> Comparator.comparing(Book::getYear,
+                    Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(byId);
+            default -> byId;
+        };
+        return sort.isDescending() ? order.reversed() : order;
+    }
+
+    private static String sortIndex(Sort sort) {
+        return switch (sort) {
+            case PRICE, PRICE_DESC -> "IDX_BOOK_PRICE";
+            case TITLE, TITLE_DESC -> "IDX_BOOK_TITLE_SORT";
+            case YEAR, YEAR_DESC -> "IDX_BOOK_YEAR";
+            default -> "PRIMARY_KEY";
+        };
+    }
+
+    /**
+     * Run the page query and EXPLAIN ANALYZE it. Criteria values are inlined in this test, so the row limit is the
+     * only parameter left.
+     */
+    private Plan plan(BookFilterDto filter, Sort sort, Long cursor, int limit) {
+        SqlRecorder.SQL.clear();
+        bookCatalogRepository.findIds(filter, sort, cursor, limit);
+        String sql = SqlRecorder.SQL.get(SqlRecorder.SQL.size() - 1);
+        assertThat(sql.chars().filter(c -> c == '?').count()).as(sql).isEqualTo(1);
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN ANALYZE " + sql.replace("?", String.valueOf(limit)), String.class);
+        Matcher index = INDEX.matcher(plan);
+        Matcher scanCount = SCAN_COUNT.matcher(plan);
+        assertThat(index.find() && scanCount.find()).as(plan).isTrue();
+        // H2 numbers the primary key index e.g. PRIMARY_KEY_1
+        String name = index.group(1).startsWith("PRIMARY_KEY") ? "PRIMARY_KEY" : index.group(1);
+        return new Plan(name, Long.parseLong(scanCount.group(1)));
+    }
+
+    private static final Pattern INDEX = Pattern.compile("/\\* PUBLIC\\.(\\w+)");
+
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    /**
+     * @param index the index leading with the filter column, null for no filter
+     * @param column the sort the filter column is the key of, null when no sort is
+     */
+    private record FilterCase(String name, BookFilterDto filter, String index, String column,
+            Predicate<Book> matches) {
+    }
+
+    private record Plan(String index, long rowsRead) {
+    }
+
+    /**
+     * Keeps the SQL Hibernate sends, to explain it
+     */
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> SQL = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+}
@@ -8,12 +8,16 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import static com.ucd.bookshop.TestFixtures.newBook;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
@@ -37,6 +41,12 @@ class BookRepositoryIntegrationTest {
     @Autowired
     private InventoryRepository inventoryRepository;
 
+    @Autowired
+    private CatalogVersionRepository catalogVersionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void testSaveAndFind() {
         Book book = new Book();
@@ -73,7 +83,7 @@ class BookRepositoryIntegrationTest {
         inventory.setCopies(10);
         inventoryRepository.save(inventory);
 
-        List<BookInventory> books = bookRepository.findAllBooksWithInventory();
+        List<BookInventory> books = bookRepository.findBooksWithInventoryBefore(Long.MAX_VALUE, Limit.of(10));
         assertThat(books).hasSize(1);
         BookInventory saved = books.get(0);
 
@@ -83,5 +93,88 @@ class BookRepositoryIntegrationTest {
         assertThat(saved.getPrice()).isEqualTo(new BigDecimal("19.99"));
         assertThat(saved.getCopies()).isEqualTo(10);
     }
-}
 
+    @Test
+    void testFindBooksWithStockBeforeWalksTheCatalogByKey() {
+        for (int i = 0; i < 5; i++) {
+            Book book = new Book();
+            book.setTitle("Book " + i);
+            book.setIsbn("123-456-789");
+            book.setAuthor("John Doe");
+            book.setYear(LocalDate.of(2020, 1, 1));
+            book.setPrice(new BigDecimal("19.99"));
+            bookRepository.save(book);
+        }
+
+        List<BookInventory> first = bookRepository.findBooksWithStockBefore(Long.MAX_VALUE, Limit.of(2));
+        List<BookInventory> second = bookRepository.findBooksWithStockBefore(first.get(1).getId(), Limit.of(2));
+        List<BookInventory> last = bookRepository.findBooksWithStockBefore(second.get(1).getId(), Limit.of(2));
+
+        assertThat(first).extracting(BookInventory::getTitle).containsExactly("Book 4", "Book 3");
+        assertThat(second).extracting(BookInventory::getTitle).containsExactly("Book 2", "Book 1");
+        assertThat(last).extracting(BookInventory::getTitle).containsExactly("Book 0");
+        assertThat(last).allMatch(book -> book.getCopies() == 0L);
+    }
+
+    @Test
+    void testFindBooksWithStockByIsbn13In() {
+        Book book = new Book();
+        book.setTitle("Spring Boot Guide");
+        book.setIsbn("978-1-60309-452-8");
+        book.setAuthor("John Doe");
+        book.setYear(LocalDate.of(2020, 1, 1));
+        book.setPrice(new BigDecimal("19.99"));
+        bookRepository.save(book);
+
+        Book invalid = new Book();
+        invalid.setTitle("No ISBN");
+        invalid.setIsbn("123-456-789");
+        invalid.setAuthor("John Doe");
+        invalid.setYear(LocalDate.of(2020, 1, 1));
+        invalid.setPrice(new BigDecimal("19.99"));
+        bookRepository.save(invalid);
+
+        assertThat(book.getIsbn13()).isEqualTo("9781603094528");
+        assertThat(invalid.getIsbn13()).isNull();
+        assertThat(bookRepository.findBooksWithStockByIsbn13In(List.of("9781603094528", "9780262033848")))
+                .extracting(BookInventory::getTitle)
+                .containsExactly("Spring Boot Guide");
+    }
+
+    @Test
+    void testCatalogStateMovesWithEveryChange() {
+        Book book = bookRepository.saveAndFlush(newBook("Tagged"));
+        String created = bookRepository.findCatalogState().toTag();
+
+        // Bulk updates skip the entity timestamp, e.g. the isbn13 backfill
+        jdbcTemplate.update("update book set last_modified_date = ? where book_id = ?",
+                LocalDateTime.now().minusDays(1), book.getId());
+        String backdated = bookRepository.findCatalogState().toTag();
+        bookRepository.updateIsbn13(book.getId(), "9790000000001");
+        String backfilled = bookRepository.findCatalogState().toTag();
+
+        Inventory inventory = new Inventory();
+        inventory.setBook(book);
+        inventory.setCopies(3);
+        inventoryRepository.saveAndFlush(inventory);
+        String stocked = bookRepository.findCatalogState().toTag();
+
+        Book other = bookRepository.saveAndFlush(newBook("Other"));
+        String added = bookRepository.findCatalogState().toTag();
+        // Deleted as BookInventoryService does, e.g. on another node
+        jdbcTemplate.update("delete from inventory where book_id = ?", book.getId());
+        jdbcTemplate.update("delete from book where book_id = ?", book.getId());
+        catalogVersionRepository.bookDeleted();
+        String deleted = bookRepository.findCatalogState().toTag();
+        // The highest id moves back, the count keeps the tag from repeating an earlier one
+        bookRepository.deleteById(other.getId());
+        catalogVersionRepository.bookDeleted();
+        bookRepository.flush();
+        String deletedNewest = bookRepository.findCatalogState().toTag();
+
+        assertThat(List.of(created, backdated, backfilled, stocked, added, deleted, deletedNewest))
+                .doesNotHaveDuplicates();
+        assertThat(bookRepository.findCatalogState().toTag()).isEqualTo(deletedNewest);
+        assertThat(other.getId()).isGreaterThan(book.getId());
+    }
+}
@@ -0,0 +1,83 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.Inventory;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The writer's own pool against an H2 database holding only the ledger table.
+ */
+class InventoryLedgerWriterTest {
+
+    private static final String URL = "jdbc:h2:mem:inventory-ledger-writer;DB_CLOSE_DELAY=-1";
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database());
+
+    private InventoryLedgerWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("""
+                create table inventory (id bigint generated by default as identity primary key, book_id bigint,
+                copies int, on_hold_for_customer_id int, created_date timestamp)
+                """);
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        writer = new InventoryLedgerWriter(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+        jdbcTemplate.execute("drop table inventory");
+    }
+
+    @Test
+    void testWritesAndCommitsTheGroup() {
+        writer.write(List.of(row(5, null), row(-2, 42)));
+
+        assertThat(jdbcTemplate.queryForList("select copies from inventory order by id", Integer.class))
+                .containsExactly(5, -2);
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from inventory where on_hold_for_customer_id = 42", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void testDroppedConnectionIsReplaced() {
+        writer.write(List.of(row(5, null)));
+
+        // The server ends the writer's session, as a database restart or idle timeout would
+        jdbcTemplate.queryForList(
+                "select abort_session(session_id) from information_schema.sessions where session_id <> session_id()");
+        writer.write(List.of(row(3, null)));
+
+        assertThat(jdbcTemplate.queryForList("select copies from inventory order by id", Integer.class))
+                .containsExactly(5, 3);
+    }
+
+    private static Inventory row(int copies, Integer customerId) {
+        Book book = newBook("Ledger Book");
+        book.setId(1L);
+        Inventory row = new Inventory(book, copies, customerId);
+        row.setCreatedDate(LocalDateTime.now());
+        return row;
+    }
+
+    private static JdbcDataSource database() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(URL);
+        return dataSource;
+    }
+}
@@ -0,0 +1,115 @@
+package com.ucd.bookshop.repository;
+
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.InventoryPartition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The roll up SQL on H2, which runs it as MySQL does apart from partition pruning
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+@Import(InventoryPartitionRepository.class)
+class InventoryPartitionRepositoryTest {
+
+    private static final LocalDateTime FEBRUARY = LocalDateTime.of(2025, 2, 1, 0, 0);
+
+    private static final InventoryPartition JANUARY_PARTITION = new InventoryPartition("p202501", FEBRUARY);
+
+    @Autowired
+    private InventoryPartitionRepository inventoryPartitionRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        // Only in schema.sql, which the tests do not run
+        jdbcTemplate.execute("""
+                create table if not exists inventory_partition_archive (partition_name varchar(64) primary key,
+                range_end timestamp not null, carried_rows int not null, archived_date timestamp default current_timestamp)
+                """);
+        book = bookRepository.saveAndFlush(newBook("Rolled Up"));
+    }
+
+    @Test
+    void testRollUpMovesTheMonthForwardKeepingEverySum() {
+        ledger(10, null, LocalDateTime.of(2025, 1, 3, 9, 0));
+        ledger(-2, 1, LocalDateTime.of(2025, 1, 10, 9, 0));
+        ledger(-1, 2, LocalDateTime.of(2025, 1, 11, 9, 0));
+        ledger(1, 2, LocalDateTime.of(2025, 1, 12, 9, 0));
+        ledger(5, null, LocalDateTime.of(2025, 2, 2, 9, 0));
+
+        int carried = inventoryPartitionRepository.rollUp(JANUARY_PARTITION);
+
+        assertThat(carried).isEqualTo(2);
+        assertThat(inventoryRepository.getTotalCopiesByBookId(book.getId())).isEqualTo(13L);
+        // Customer 2 holds nothing on net, so has no row carried
+        Map<Integer, Long> expected = new HashMap<>();
+        expected.put(null, 15L);
+        expected.put(1, -2L);
+        assertThat(holds()).isEqualTo(expected);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from inventory where created_date < ?", Long.class,
+                FEBRUARY)).isZero();
+        assertThat(jdbcTemplate.queryForList("select created_date from inventory where created_date < ?",
+                LocalDateTime.class, FEBRUARY.plusDays(1))).containsOnly(FEBRUARY);
+        assertThat(inventoryPartitionRepository.isRolledUp(JANUARY_PARTITION.getName())).isTrue();
+
+        // A retry after a failed drop finds the month empty
+        assertThat(inventoryPartitionRepository.rollUp(JANUARY_PARTITION)).isZero();
+        assertThat(inventoryRepository.getTotalCopiesByBookId(book.getId())).isEqualTo(13L);
+    }
+
+    @Test
+    void testRollUpOfACopiedMonthOnlyDeletesIt() {
+        // Copied forward by a roll up that did not delete
+        ledger(4, null, LocalDateTime.of(2025, 1, 3, 9, 0));
+        ledger(4, null, FEBRUARY);
+        jdbcTemplate.update("insert into inventory_partition_archive (partition_name, range_end, carried_rows) values (?, ?, ?)",
+                JANUARY_PARTITION.getName(), FEBRUARY, 1);
+
+        assertThat(inventoryPartitionRepository.rollUp(JANUARY_PARTITION)).isZero();
+        assertThat(inventoryRepository.getTotalCopiesByBookId(book.getId())).isEqualTo(4L);
+    }
+
+    private void ledger(int copies, Integer customerId, LocalDateTime createdDate) {
+        jdbcTemplate.update("insert into inventory (book_id, copies, on_hold_for_customer_id, created_date) values (?, ?, ?, ?)",
+                book.getId(), copies, customerId, createdDate);
+    }
+
+    /** Net copies per hold, null for copies not on hold */
+    private Map<Integer, Long> holds() {
+        Map<Integer, Long> holds = new HashMap<>();
+        jdbcTemplate.query("""
+                select on_hold_for_customer_id, sum(copies) from inventory
+                where book_id = ? group by on_hold_for_customer_id
+                """, rs -> {
+            holds.put((Integer) rs.getObject(1), rs.getLong(2));
+        }, book.getId());
+        return holds;
+    }
+}
@@ -4,6 +4,7 @@ import com.ucd.bookshop.model.Book;
 import com.ucd.bookshop.model.Customer;
 import com.ucd.bookshop.model.Inventory;
 import com.ucd.bookshop.model.ShoppingCart;
+import com.ucd.bookshop.model.ShoppingCartWithInventory;
 import com.ucd.bookshop.model.User;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -16,10 +17,12 @@ import org.springframework.test.context.TestPropertySource;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
@@ -59,6 +62,8 @@ class ShoppingCartRepositoryTest {
         testUser1.setPassword("hashedpassword");
         testUser1.setSalt("salt123");
         testUser1.setRoleId(2);
+        testUser1.setIsUsing2FA(false);
+        testUser1.setSecret("secret");
         entityManager.persistAndFlush(testUser1);
 
         testUser2 = new User();
@@ -67,6 +72,8 @@ class ShoppingCartRepositoryTest {
         testUser2.setPassword("hashedpassword");
         testUser2.setSalt("salt456");
         testUser2.setRoleId(2);
+        testUser2.setIsUsing2FA(false);
+        testUser2.setSecret("secret");
         entityManager.persistAndFlush(testUser2);
 
         // Create customers
@@ -151,4 +158,55 @@ class ShoppingCartRepositoryTest {
         assertThat(customer2Items).hasSize(1);
         assertThat(customer2Items.get(0).getBook().getTitle()).isEqualTo("Testy mc testface");
     }
+
+    @Test
+    void testFindShoppingCartWithInventorySumsTheHoldsOfEachOpenItem() {
+        LocalDateTime addedAt = LocalDateTime.now().minusMinutes(30);
+        Integer customerId = testCustomer1.getId();
+
+        // Book 1: five bought in an earlier order, whose hold rows stay in the ledger, then two held one at a time
+        hold(testBook1, -5, customerId, addedAt.minusHours(2));
+        ShoppingCart item1 = cartItem(testBook1, testCustomer1, false, addedAt);
+        hold(testBook1, -1, customerId, addedAt);
+        hold(testBook1, -1, customerId, addedAt.plusMinutes(5));
+
+        // Book 2: three held, one given back
+        ShoppingCart item2 = cartItem(testBook2, testCustomer1, false, addedAt);
+        hold(testBook2, -3, customerId, addedAt.plusMinutes(1));
+        hold(testBook2, 1, customerId, addedAt.plusMinutes(2));
+
+        // Book 3: an abandoned item, and another customer holding the same books
+        cartItem(testBook3, testCustomer1, true, addedAt);
+        hold(testBook3, -1, customerId, addedAt.plusMinutes(1));
+        cartItem(testBook1, testCustomer2, false, addedAt);
+        hold(testBook1, -4, testCustomer2.getId(), addedAt.plusMinutes(1));
+        entityManager.clear();
+
+        List<ShoppingCartWithInventory> items = shoppingCartRepository.findShoppingCartWithInventoryByCustomerId(customerId);
+
+        assertThat(items).extracting(ShoppingCartWithInventory::getId, ShoppingCartWithInventory::getBookId,
+                ShoppingCartWithInventory::getTitle, ShoppingCartWithInventory::getPrice,
+                ShoppingCartWithInventory::getCopies).containsExactlyInAnyOrder(
+                tuple(item1.getId(), testBook1.getId(), "Spring Boot Guide", new BigDecimal("29.99"), 2L),
+                tuple(item2.getId(), testBook2.getId(), "John P. Programming", new BigDecimal("39.99"), 2L));
+        // What checkout charges, 2 x 29.99 + 2 x 39.99
+        assertThat(items.stream().map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getCopies())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add)).isEqualByComparingTo("139.96");
+
+        assertThat(shoppingCartRepository.findShoppingCartWithInventoryByCustomerId(testCustomer2.getId()))
+                .extracting(ShoppingCartWithInventory::getBookId, ShoppingCartWithInventory::getCopies)
+                .containsExactly(tuple(testBook1.getId(), 4L));
+    }
+
+    private ShoppingCart cartItem(Book book, Customer customer, boolean abandoned, LocalDateTime createdDate) {
+        ShoppingCart item = entityManager.persistAndFlush(new ShoppingCart(book, customer, abandoned));
+        item.setCreatedDate(createdDate);
+        return entityManager.persistAndFlush(item);
+    }
+
+    private void hold(Book book, int copies, Integer customerId, LocalDateTime createdDate) {
+        Inventory inventory = entityManager.persistAndFlush(new Inventory(book, copies, customerId));
+        inventory.setCreatedDate(createdDate);
+        entityManager.persistAndFlush(inventory);
+    }
 }
\ No newline at end of file
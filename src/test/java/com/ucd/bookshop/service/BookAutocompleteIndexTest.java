@@ -0,0 +1,83 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.AutocompleteSuggestionDto;
+import com.ucd.bookshop.controllers.dto.AutocompleteSuggestionDto.Type;
+import com.ucd.bookshop.model.BookSearchDocument;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class BookAutocompleteIndexTest {
+
+    private final BookAutocompleteIndex bookAutocompleteIndex = new BookAutocompleteIndex(null);
+
+    @Test
+    void testTitlesAndAuthorsAreMergedAlphabeticallyOnEqualBooks() {
+        bookAutocompleteIndex.index(new BookSearchDocument(1L, "Spring in Action", "Craig Walls", "1"));
+        bookAutocompleteIndex.index(new BookSearchDocument(2L, "Spring Boot Guide", "Spencer Gibb", "2"));
+        bookAutocompleteIndex.index(new BookSearchDocument(3L, "Clean Code", "Robert Martin", "3"));
+
+        assertThat(bookAutocompleteIndex.complete("sp", 10))
+                .extracting(AutocompleteSuggestionDto::getText, AutocompleteSuggestionDto::getType)
+                .containsExactly(
+                        tuple("Spencer Gibb", Type.AUTHOR),
+                        tuple("Spring Boot Guide", Type.TITLE),
+                        tuple("Spring in Action", Type.TITLE));
+        assertThat(bookAutocompleteIndex.complete("  SPRING   i", 10))
+                .extracting(AutocompleteSuggestionDto::getText)
+                .containsExactly("Spring in Action");
+        assertThat(bookAutocompleteIndex.complete("sp", 1)).hasSize(1);
+    }
+
+    @Test
+    void testSharedAuthorIsOneSuggestionUntilItsLastBookGoes() {
+        bookAutocompleteIndex.index(new BookSearchDocument(1L, "Emma", "Jane Austen", "1"));
+        bookAutocompleteIndex.index(new BookSearchDocument(2L, "Persuasion", "Jane Austen", "2"));
+
+        assertThat(bookAutocompleteIndex.complete("jane", 10)).singleElement()
+                .satisfies(suggestion -> assertThat(suggestion.getBooks()).isEqualTo(2));
+
+        bookAutocompleteIndex.remove(1L);
+        assertThat(bookAutocompleteIndex.complete("jane", 10)).singleElement()
+                .satisfies(suggestion -> assertThat(suggestion.getBooks()).isEqualTo(1));
+
+        // Renaming the last book moves the completion
+        bookAutocompleteIndex.index(new BookSearchDocument(2L, "Persuasion", "J. Austen", "2"));
+        assertThat(bookAutocompleteIndex.complete("jane", 10)).isEmpty();
+        assertThat(bookAutocompleteIndex.complete("j.", 10)).extracting(AutocompleteSuggestionDto::getText)
+                .containsExactly("J. Austen");
+    }
+
+    @Test
+    void testCompletionsSharedByMostBooksComeFirst() {
+        bookAutocompleteIndex.index(new BookSearchDocument(1L, "The Apple", "Ann Author", "1"));
+        bookAutocompleteIndex.index(new BookSearchDocument(2L, "The Zebra", "Ann Author", "2"));
+        bookAutocompleteIndex.index(new BookSearchDocument(3L, "The Zebra", "Ben Author", "3"));
+        bookAutocompleteIndex.index(new BookSearchDocument(4L, "The Zebra", "Theo Writer", "4"));
+        bookAutocompleteIndex.index(new BookSearchDocument(5L, "Their Story", "Theo Writer", "5"));
+
+        assertThat(bookAutocompleteIndex.complete("the", 3))
+                .extracting(AutocompleteSuggestionDto::getText, AutocompleteSuggestionDto::getBooks)
+                .containsExactly(tuple("The Zebra", 3), tuple("Theo Writer", 2), tuple("The Apple", 1));
+
+        // Kept for the short prefix until a book under it changes
+        assertThat(bookAutocompleteIndex.complete("t", 1)).extracting(AutocompleteSuggestionDto::getText)
+                .containsExactly("The Zebra");
+        for (long id = 6; id <= 8; id++) {
+            bookAutocompleteIndex.index(new BookSearchDocument(id, "The Apple", "Ann Author", Long.toString(id)));
+        }
+        assertThat(bookAutocompleteIndex.complete("t", 1))
+                .extracting(AutocompleteSuggestionDto::getText, AutocompleteSuggestionDto::getBooks)
+                .containsExactly(tuple("The Apple", 4));
+    }
+
+    @Test
+    void testBlankPrefixReturnsNothing() {
+        bookAutocompleteIndex.index(new BookSearchDocument(1L, "Emma", "Jane Austen", "1"));
+
+        assertThat(bookAutocompleteIndex.complete(" ", 10)).isEmpty();
+        assertThat(bookAutocompleteIndex.complete(null, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,147 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookStock;
+import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.BookStockRepository;
+import com.ucd.bookshop.repository.BookStreamRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "bookshop.catalog.stream.fetch-size=2",
+        "bookshop.export.max-concurrent=2"
+})
+@Import({ BookExportService.class, BookStreamRepository.class })
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class BookExportServiceTest {
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookStockRepository bookStockRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testWriteJsonStreamsEveryBookNewestFirst() throws Exception {
+        Book first = bookRepository.save(newBook("First Book"));
+        Book second = bookRepository.save(newBook("Second Book"));
+        bookRepository.save(newBook("Third Book"));
+        bookStockRepository.save(new BookStock(second.getId(), 7L));
+        bookStockRepository.flush();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookExportService.writeJson(out);
+
+        JsonNode books = objectMapper.readTree(out.toByteArray());
+        assertThat(books).hasSize(3);
+        assertThat(books.get(0).get("title").asText()).isEqualTo("Third Book");
+        assertThat(books.get(1).get("copies").asLong()).isEqualTo(7L);
+        assertThat(books.get(2).get("id").asLong()).isEqualTo(first.getId());
+        assertThat(books.get(2).get("copies").asLong()).isZero();
+        assertThat(books.get(2).get("year").asText()).isEqualTo("2020-01-01");
+    }
+
+    @Test
+    void testWriteBooksAsCsvResumesAfterTheLastId() throws Exception {
+        Book first = bookRepository.save(newBook("First Book"));
+        Book second = bookRepository.save(newBook("Second, \"Quoted\" Book"));
+        Book third = bookRepository.save(newBook("Third Book"));
+        bookStockRepository.save(new BookStock(second.getId(), 7L));
+        bookStockRepository.flush();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookExportService.writeBooks(out, FileFormat.CSV, first.getId());
+
+        // Read back as the import reads CSV
+        CsvRecordReader csv = new CsvRecordReader(new StringReader(out.toString(StandardCharsets.UTF_8)));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            records.add(record);
+        }
+
+        assertThat(records).containsExactly(
+                List.of(BookExportService.BOOK_COLUMNS),
+                List.of(second.getId().toString(), "Second, \"Quoted\" Book", "Jane Writer", second.getIsbn(),
+                        "19.99", "2020-01-01", "7"),
+                List.of(third.getId().toString(), "Third Book", "Jane Writer", third.getIsbn(), "19.99",
+                        "2020-01-01", "0"));
+    }
+
+    @Test
+    void testWriteLedgerAsNdjson() throws Exception {
+        Book book = bookRepository.save(newBook("Ledger Book"));
+        Inventory delivered = inventoryRepository.save(new Inventory(book, 5, null));
+        Inventory held = inventoryRepository.save(new Inventory(book, -2, 42));
+        inventoryRepository.flush();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookExportService.writeLedger(out, FileFormat.NDJSON, 0);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertThat(first.get("id").asLong()).isEqualTo(delivered.getId());
+        assertThat(first.get("bookId").asLong()).isEqualTo(book.getId());
+        assertThat(first.get("copies").asInt()).isEqualTo(5);
+        assertThat(first.get("onHoldForCustomerId").isNull()).isTrue();
+        assertThat(first.get("createdDate").asText()).isNotEmpty();
+        assertThat(second.get("id").asLong()).isEqualTo(held.getId());
+        assertThat(second.get("onHoldForCustomerId").asText()).isEqualTo("42");
+    }
+
+    @Test
+    void testReserveTurnsAwayExportsOverTheLimit() {
+        BookExportService.ExportSlot first = bookExportService.tryReserve();
+        BookExportService.ExportSlot second = bookExportService.tryReserve();
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(bookExportService.tryReserve()).isNull();
+
+        // A second release of the same slot frees nothing more
+        first.release();
+        first.release();
+        BookExportService.ExportSlot third = bookExportService.tryReserve();
+        assertThat(third).isNotNull();
+        assertThat(bookExportService.tryReserve()).isNull();
+
+        second.release();
+        third.release();
+    }
+}
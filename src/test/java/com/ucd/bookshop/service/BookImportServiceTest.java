@@ -0,0 +1,190 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.BookImportErrorDto;
+import com.ucd.bookshop.controllers.dto.BookImportResultDto;
+import com.ucd.bookshop.event.BookChangedEvent;
+import com.ucd.bookshop.event.BooksImportedEvent;
+import com.ucd.bookshop.event.InventoryChangedEvent;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookInventory;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.BookStockRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "bookshop.import.chunk-size=2"
+})
+@Import({ BookImportService.class, BookStockService.class, JacksonAutoConfiguration.class,
+        ValidationAutoConfiguration.class })
+@RecordApplicationEvents
+class BookImportServiceTest {
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private BookStockRepository bookStockRepository;
+
+    @Test
+    void testCsvRowsAreImportedOrReported() throws IOException {
+        String csv = """
+                isbn,title,author,price,year,copies
+                978-1-60309-452-8,"Stock, a Guide",Jane Writer,12.50,2001,4
+                9780306406157,"Two
+                Lines",Jane Writer,9.99,2002-05-01,0
+
+                9780306406157,Same Isbn,Other Writer,5.00,2003,1
+                9781861972712,Bad Price,Jane Writer,cheap,2004,1
+                9781861972712,No Author,,7.00,2005,1
+                not-an-isbn,Any Isbn,Jane Writer,3.00,2006,
+                """;
+
+        BookImportResultDto result = bookImportService.importBooks(input(csv), FileFormat.CSV);
+
+        assertThat(result).extracting(BookImportResultDto::getRows, BookImportResultDto::getImported,
+                BookImportResultDto::getRejected).containsExactly(6L, 3L, 3L);
+        // Lines of the file, the quoted line break and the blank line count
+        assertThat(result.getErrors()).extracting(BookImportErrorDto::getLine, BookImportErrorDto::getIsbn)
+                .containsExactly(tuple(7L, "9781861972712"), tuple(8L, "9781861972712"), tuple(6L, "9780306406157"));
+        assertThat(result.getErrors().get(2).getMessage()).contains("already exists");
+
+        List<Book> books = bookRepository.findAll();
+        assertThat(books).extracting(Book::getTitle, Book::getAuthor, Book::getIsbn13).containsExactlyInAnyOrder(
+                tuple("Stock, a Guide", "Jane Writer", "9781603094528"),
+                tuple("Two\nLines", "Jane Writer", "9780306406157"),
+                tuple("Any Isbn", "Jane Writer", null));
+
+        BookInventory guide = bookRepository.findBookWithStockById(find(books, "Stock, a Guide").getId());
+        assertThat(guide.getCopies()).isEqualTo(4L);
+        assertThat(guide.getPrice()).isEqualByComparingTo(new BigDecimal("12.50"));
+        assertThat(guide.getYear()).isEqualTo(LocalDate.of(2001, 1, 1));
+        // A ledger row for every book, as a single create writes
+        assertThat(inventoryRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void testNdjsonRowsAreImportedOrReported() throws IOException {
+        bookImportService.importBooks(input("""
+                title,author,isbn,price,year,copies
+                Already Here,Jane Writer,978-1-60309-452-8,1.00,2000,1
+                """), FileFormat.CSV);
+
+        String ndjson = """
+                {"id":99,"title":"From An Export","author":"Jane Writer","isbn":"9780306406157","price":4.5,"year":"2010-01-01","copies":2}
+                {"title":"Broken",
+                {"title":"Already Here","author":"Jane Writer","isbn":"9781603094528","price":1,"year":"2000-01-01","copies":1}
+                """;
+
+        BookImportResultDto result = bookImportService.importBooks(input(ndjson), FileFormat.NDJSON);
+
+        assertThat(result).extracting(BookImportResultDto::getRows, BookImportResultDto::getImported,
+                BookImportResultDto::getRejected).containsExactly(3L, 1L, 2L);
+        assertThat(result.getErrors()).extracting(BookImportErrorDto::getLine).containsExactly(2L, 3L);
+
+        Book imported = find(bookRepository.findAll(), "From An Export");
+        assertThat(imported.getId()).isNotEqualTo(99L);
+        assertThat(bookRepository.findBookWithStockById(imported.getId()).getCopies()).isEqualTo(2L);
+    }
+
+    /**
+     * Runs outside the test transaction, so each chunk commits or rolls back on its own as it does in production
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testRowTheDatabaseRejectsIsLeftOutOfItsChunk() throws IOException {
+        // Valid for the API, too long for the title column of the H2 schema generated from the entity
+        String longTitle = "Long ".repeat(60);
+        String csv = """
+                isbn,title,author,price,year,copies
+                9780306406157,First Of Chunk,Jane Writer,9.99,2002,1
+                9781861972712,%s,Jane Writer,9.99,2002,1
+                9781603094528,Dear Book,Jane Writer,1000.00,2002,1
+                9780262033848,Cheap Book,Jane Writer,-1,2002,1
+                """.formatted(longTitle);
+
+        try {
+            BookImportResultDto result = bookImportService.importBooks(input(csv), FileFormat.CSV);
+
+            assertThat(result).extracting(BookImportResultDto::getRows, BookImportResultDto::getImported,
+                    BookImportResultDto::getRejected).containsExactly(4L, 1L, 3L);
+            assertThat(result.getErrors()).extracting(BookImportErrorDto::getLine).containsExactly(3L, 4L, 5L);
+            assertThat(result.getErrors().get(0).getMessage()).startsWith("Not imported: ");
+            assertThat(result.getErrors().get(1).getMessage()).contains("at most 999.99");
+            assertThat(result.getErrors().get(2).getMessage()).contains("must not be negative");
+            assertThat(bookRepository.findAll()).extracting(Book::getTitle).containsExactly("First Of Chunk");
+        } finally {
+            inventoryRepository.deleteAll();
+            bookStockRepository.deleteAll();
+            bookRepository.deleteAll();
+        }
+    }
+
+    @Test
+    void testOneEventIsPublishedPerChunk() throws IOException {
+        StringBuilder csv = new StringBuilder("title,author,isbn,price,year,copies\n");
+        for (int i = 1; i <= 7; i++) {
+            csv.append("Volume %d,Jane Writer,vol-%d,1.00,2000,%d\n".formatted(i, i, i));
+        }
+
+        bookImportService.importBooks(input(csv.toString()), FileFormat.CSV);
+
+        List<BooksImportedEvent> chunks = events.stream(BooksImportedEvent.class).toList();
+        assertThat(chunks).hasSize(4);
+        assertThat(chunks).flatExtracting(BooksImportedEvent::getBooks).extracting(Book::getTitle)
+                .containsExactly("Volume 1", "Volume 2", "Volume 3", "Volume 4", "Volume 5", "Volume 6", "Volume 7");
+        assertThat(chunks.get(3).getCopiesByBookId()).containsValue(7L);
+        assertThat(events.stream(BookChangedEvent.class)).isEmpty();
+        assertThat(events.stream(InventoryChangedEvent.class)).isEmpty();
+    }
+
+    @Test
+    void testCsvHeaderMustNameEveryColumn() {
+        assertThatThrownBy(() -> bookImportService.importBooks(input("title,author,isbn,price\n"),
+                FileFormat.CSV)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Book find(List<Book> books, String title) {
+        return books.stream().filter(book -> book.getTitle().equals(title)).findFirst().orElseThrow();
+    }
+
+    private static ByteArrayInputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
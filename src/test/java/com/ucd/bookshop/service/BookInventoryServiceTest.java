@@ -92,8 +92,8 @@ class BookInventoryServiceTest {
         try {
             newBookWithInventoryDto.setCopies(4L);
             resultUpdate = bookInventoryService.updateBookInventory(newBookWithInventoryDto, 1234567890);
-        } catch (BookNotFoundException e) {
-            fail("BookNotFoundException should not be thrown");
+        } catch (BookNotFoundException | BookAlreadyExistsException e) {
+            fail(e.getMessage());
         }
 
         BookWithInventoryDto resultPersisted = null;
@@ -135,8 +135,8 @@ class BookInventoryServiceTest {
         try {
             newBookWithInventoryDto.setCopies(14L);
             resultUpdate = bookInventoryService.updateBookInventory(newBookWithInventoryDto, 2);
-        } catch (BookNotFoundException e) {
-            fail("BookNotFoundException should not be thrown");
+        } catch (BookNotFoundException | BookAlreadyExistsException e) {
+            fail(e.getMessage());
         }
 
         BookWithInventoryDto resultPersisted = null;
@@ -0,0 +1,99 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.BookSearchDocument;
+import com.ucd.bookshop.service.BookSearchIndex.SearchHits;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSearchIndexTest {
+
+    private final BookSearchIndex bookSearchIndex = new BookSearchIndex(null);
+
+    @Test
+    void testEveryWordMustMatchAndTitleRanksFirst() {
+        bookSearchIndex.index(new BookSearchDocument(1L, "Spring in Action", "Craig Walls", "978-1-61729-494-5"));
+        bookSearchIndex.index(new BookSearchDocument(2L, "Walls of Spring", "Jane Writer", "978-1-60309-452-8"));
+        bookSearchIndex.index(new BookSearchDocument(3L, "Spring Boot Guide", "John Doe", "978-0-13-468599-1"));
+
+        SearchHits hits = bookSearchIndex.search("walls SPRING", 0, 10);
+
+        assertThat(hits.getTotal()).isEqualTo(2);
+        // Both words in the title beat one in the title and one in the author
+        assertThat(hits.getBookIds()).containsExactly(2L, 1L);
+        assertThat(bookSearchIndex.search("spring cooking", 0, 10).getTotal()).isZero();
+    }
+
+    @Test
+    void testIsbnMatchesWithOrWithoutHyphens() {
+        bookSearchIndex.index(new BookSearchDocument(1L, "Spring in Action", "Craig Walls", "978-1-61729-494-5"));
+
+        assertThat(bookSearchIndex.search("9781617294945", 0, 10).getBookIds()).containsExactly(1L);
+        assertThat(bookSearchIndex.search("978-1-61729-494-5", 0, 10).getBookIds()).containsExactly(1L);
+        // ISBN-10 of the same book
+        assertThat(bookSearchIndex.search("1-61729-494-2", 0, 10).getBookIds()).containsExactly(1L);
+    }
+
+    @Test
+    void testAccentsAndCaseAreIgnored() {
+        bookSearchIndex.index(new BookSearchDocument(1L, "Les Misérables", "Victor Hugo", "978-0-14-044430-8"));
+
+        assertThat(bookSearchIndex.search("MISERABLES hugo", 0, 10).getBookIds()).containsExactly(1L);
+    }
+
+    @Test
+    void testUpdateAndDeleteAreReflected() {
+        bookSearchIndex.index(new BookSearchDocument(1L, "Spring in Action", "Craig Walls", "978-1-61729-494-5"));
+        bookSearchIndex.index(new BookSearchDocument(1L, "Summer in Action", "Craig Walls", "978-1-61729-494-5"));
+
+        assertThat(bookSearchIndex.search("spring", 0, 10).getTotal()).isZero();
+        assertThat(bookSearchIndex.search("summer", 0, 10).getBookIds()).containsExactly(1L);
+
+        bookSearchIndex.remove(1L);
+
+        assertThat(bookSearchIndex.search("summer", 0, 10).getTotal()).isZero();
+        assertThat(bookSearchIndex.size()).isZero();
+    }
+
+    @Test
+    void testPagesAreCutFromTheRanking() {
+        for (long id = 1; id <= 25; id++) {
+            bookSearchIndex.index(new BookSearchDocument(id, "Java Volume " + id, "Jane Writer", "978-0-00-000000-" + id));
+        }
+
+        SearchHits second = bookSearchIndex.search("java", 10, 10);
+        SearchHits last = bookSearchIndex.search("java", 20, 10);
+
+        assertThat(second.getTotal()).isEqualTo(25);
+        // Same score, newest first
+        assertThat(second.getBookIds()).first().isEqualTo(15L);
+        assertThat(second.getBookIds()).hasSize(10);
+        assertThat(last.getBookIds()).containsExactly(5L, 4L, 3L, 2L, 1L);
+    }
+
+    @Test
+    void testChunkIsMergedIntoTheListsAlreadyIndexed() {
+        bookSearchIndex.index(new BookSearchDocument(1L, "Java Basics", "Jane Writer", null));
+        bookSearchIndex.index(new BookSearchDocument(50001L, "Java Later", "Jane Writer", null));
+
+        // Out of id order, e.g. books around one already indexed
+        List<BookSearchDocument> chunk = new ArrayList<>();
+        for (long id = 50000; id >= 2; id--) {
+            chunk.add(new BookSearchDocument(id, "Java Volume " + id, "Jane Writer", null));
+        }
+        chunk.add(new BookSearchDocument(1L, "Kotlin Basics", "Jane Writer", null));
+        bookSearchIndex.indexAll(chunk);
+
+        assertThat(bookSearchIndex.size()).isEqualTo(50001);
+        assertThat(bookSearchIndex.search("java", 0, 3).getTotal()).isEqualTo(50000);
+        assertThat(bookSearchIndex.search("java", 0, 3).getBookIds()).containsExactly(50001L, 50000L, 49999L);
+        assertThat(bookSearchIndex.search("kotlin", 0, 10).getBookIds()).containsExactly(1L);
+        assertThat(bookSearchIndex.search("basics", 0, 10).getBookIds()).containsExactly(1L);
+        assertThat(bookSearchIndex.search("volume 2", 0, 10).getBookIds()).containsExactly(2L);
+        assertThat(bookSearchIndex.search("jane", 0, 0).getTotal()).isEqualTo(50001);
+    }
+}
@@ -0,0 +1,94 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.TestFixtures;
+import com.ucd.bookshop.controllers.dto.BookSearchResultDto;
+import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookSearchDocument;
+import com.ucd.bookshop.repository.BookCatalogRepository;
+import com.ucd.bookshop.repository.BookRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@Import({ BookSearchService.class, BookSearchIndex.class, BookCatalogRepository.class, InventoryStockEngine.class })
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "bookshop.search.enabled=false",
+        "bookshop.search.max-results=4"
+})
+class BookSearchServiceTest {
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 6; i++) {
+            books.add(bookRepository.save(TestFixtures.newBook("Gardening Volume " + i)));
+        }
+        bookRepository.save(TestFixtures.newBook("Cooking at Home"));
+        bookRepository.flush();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // The index is shared by the tests of the context
+        ReflectionTestUtils.setField(bookSearchIndex, "enabled", false);
+        books.forEach(book -> bookSearchIndex.remove(book.getId()));
+    }
+
+    @Test
+    void testSearchWithTheIndexOffReadsTheDatabase() {
+        BookSearchResultDto results = bookSearchService.search("GARDENING volume", 0, 2);
+
+        assertThat(results.getBooks()).extracting(BookWithInventoryDto::getId)
+                .containsExactly(books.get(5).getId(), books.get(4).getId());
+        assertThat(bookSearchService.search("cooking", 0, 2).getTotal()).isEqualTo(1);
+    }
+
+    @Test
+    void testTotalStopsAtMaxResults() {
+        assertCapped();
+
+        ReflectionTestUtils.setField(bookSearchIndex, "enabled", true);
+        for (Book book : books) {
+            bookSearchIndex.index(new BookSearchDocument(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn()));
+        }
+        assertCapped();
+    }
+
+    private void assertCapped() {
+        BookSearchResultDto first = bookSearchService.search("gardening", 0, 2);
+        BookSearchResultDto second = bookSearchService.search("gardening", 1, 2);
+
+        assertThat(first.getTotal()).isEqualTo(4);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getBooks()).hasSize(2);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(bookSearchService.search("gardening", 2, 2).getBooks()).isEmpty();
+    }
+}
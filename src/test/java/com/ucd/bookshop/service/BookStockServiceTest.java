@@ -0,0 +1,72 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookInventory;
+import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.BookStockRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+@Import(BookStockService.class)
+class BookStockServiceTest {
+
+    @Autowired
+    private BookStockService bookStockService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookStockRepository bookStockRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Test
+    void testApplyDeltaCreatesThenUpdatesStock() {
+        Book book = bookRepository.save(newBook("Stock Guide"));
+
+        bookStockService.applyDelta(book.getId(), 10);
+        bookStockService.applyDelta(book.getId(), -3);
+
+        BookInventory result = bookRepository.findBookWithStockById(book.getId());
+        assertThat(result.getCopies()).isEqualTo(7L);
+        assertThat(result.getAuthor()).isEqualTo("Jane Writer");
+        assertThat(result.getIsbn()).isEqualTo(book.getIsbn());
+    }
+
+    @Test
+    void testRebuildMatchesLedger() {
+        Book withLedger = bookRepository.save(newBook("Ledger Book"));
+        Book withoutLedger = bookRepository.save(newBook("Empty Book"));
+
+        inventoryRepository.save(new Inventory(withLedger, 10, null));
+        inventoryRepository.save(new Inventory(withLedger, -2, 1));
+        inventoryRepository.save(new Inventory(withLedger, 5, null));
+
+        // Projection out of step with the ledger
+        bookStockService.applyDelta(withLedger.getId(), 100);
+
+        int books = bookStockService.rebuild();
+
+        assertThat(books).isEqualTo(2);
+        assertThat(bookStockRepository.findById(withLedger.getId()).orElseThrow().getCopies())
+                .isEqualTo(inventoryRepository.getTotalCopiesByBookId(withLedger.getId()))
+                .isEqualTo(13L);
+        assertThat(bookStockRepository.findById(withoutLedger.getId()).orElseThrow().getCopies()).isZero();
+    }
+}
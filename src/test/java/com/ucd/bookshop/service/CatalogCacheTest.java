@@ -0,0 +1,177 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.BookPageDto;
+import com.ucd.bookshop.controllers.dto.BookWithInventoryDto;
+import com.ucd.bookshop.event.BookChangedEvent;
+import com.ucd.bookshop.event.BookChangedEvent.ChangeType;
+import com.ucd.bookshop.event.BooksImportedEvent;
+import com.ucd.bookshop.event.InventoryChangedEvent;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.service.CatalogCache.LoadedPage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CatalogCache catalogCache = new CatalogCache(meterRegistry);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testRepeatedPageIsServedFromCache() {
+        catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+        catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("bookshop.catalog.cache.gets").tag("result", "hit").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("bookshop.catalog.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    void testEachGetHasItsOwnCopyOfThePage() {
+        BookPageDto first = catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+        first.getBooks().get(0).setTitle("Changed by a form");
+
+        BookPageDto second = catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+        second.getBooks().get(1).setTitle("Changed by a form");
+
+        BookPageDto third = catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+        assertThat(third.getBooks()).extracting(BookWithInventoryDto::getTitle).containsOnlyNulls();
+        assertThat(catalogCache.getIfCached(Long.MAX_VALUE, 2).getBooks()).isNotSameAs(third.getBooks());
+        assertThatThrownBy(() -> third.getBooks().clear()).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testPageIsReadAgainOnceTheTtlIsUp() {
+        ReflectionTestUtils.setField(catalogCache, "ttl", Duration.ZERO);
+
+        catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+
+        // e.g. the import CLI added books
+        assertThat(catalogCache.getIfCached(Long.MAX_VALUE, 2)).isNull();
+        catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(meterRegistry.get("bookshop.catalog.cache.evictions").tag("cause", "expired").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testOnlyPagesCoveringTheChangedBookAreEvicted() {
+        // Books 10 to 5, pages of two
+        catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+        catalogCache.get(9, 2, page(8, 7, 6));
+        catalogCache.get(7, 2, page(6, 5));
+
+        catalogCache.onInventoryChanged(new InventoryChangedEvent(7L, -1, null));
+
+        assertThat(catalogCache.size()).isEqualTo(2);
+        catalogCache.get(9, 2, page(8, 7, 6));
+        assertThat(loads.get()).isEqualTo(4);
+
+        // A new book lands on the first page only
+        catalogCache.onBookChanged(new BookChangedEvent(11L, ChangeType.CREATED, null));
+
+        assertThat(catalogCache.size()).isEqualTo(2);
+        assertThat(catalogCache.getVersion()).isEqualTo(2);
+        assertThat(meterRegistry.get("bookshop.catalog.cache.evictions").tag("cause", "change").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void testImportedChunkMovesTheVersionOnce() {
+        catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+        catalogCache.get(9, 2, page(8, 7, 6));
+        catalogCache.get(7, 2, page(6, 5));
+
+        List<Book> books = LongStream.of(13, 5, 12, 11).mapToObj(id -> {
+            Book book = new Book();
+            book.setId(id);
+            return book;
+        }).toList();
+        catalogCache.onBooksImported(new BooksImportedEvent(books, Map.of()));
+
+        assertThat(catalogCache.getVersion()).isEqualTo(1);
+        assertThat(catalogCache.getIfCached(Long.MAX_VALUE, 2)).isNull();
+        assertThat(catalogCache.getIfCached(9, 2)).isNotNull();
+        assertThat(catalogCache.getIfCached(7, 2)).isNull();
+    }
+
+    @Test
+    void testDeletingTheProbeRowEvictsThePageAbove() {
+        catalogCache.get(Long.MAX_VALUE, 2, page(10, 9, 8));
+
+        // Page shows 10 and 9, 8 only told it there is a next page
+        catalogCache.onBookChanged(new BookChangedEvent(8L, ChangeType.DELETED, null));
+
+        assertThat(catalogCache.size()).isZero();
+    }
+
+    @Test
+    void testPageReadWhileAChangeCommitsIsNotCached() {
+        catalogCache.get(Long.MAX_VALUE, 2, () -> {
+            catalogCache.onInventoryChanged(new InventoryChangedEvent(1L, 5, null));
+            return page(10, 9, 8).get();
+        });
+
+        assertThat(catalogCache.size()).isZero();
+    }
+
+    @Test
+    void testVersionTagIsReadAgainAfterALocalChange() {
+        AtomicInteger reads = new AtomicInteger();
+        Supplier<String> reader = () -> "tag-" + reads.incrementAndGet();
+
+        assertThat(catalogCache.getVersionTag(reader)).isEqualTo("tag-1");
+        assertThat(catalogCache.getVersionTag(reader)).isEqualTo("tag-1");
+
+        catalogCache.onBookChanged(new BookChangedEvent(3L, ChangeType.UPDATED, null));
+
+        assertThat(catalogCache.getVersionTag(reader)).isEqualTo("tag-2");
+    }
+
+    @Test
+    void testVersionTagIsReadAgainOnceTheTtlIsUp() {
+        ReflectionTestUtils.setField(catalogCache, "versionTagTtl", Duration.ZERO);
+        AtomicInteger reads = new AtomicInteger();
+        Supplier<String> reader = () -> "tag-" + reads.incrementAndGet();
+
+        catalogCache.getVersionTag(reader);
+
+        // e.g. another node changed a book
+        assertThat(catalogCache.getVersionTag(reader)).isEqualTo("tag-2");
+    }
+
+    /** Loader of a page of size ids.length - 1 when there is a probe row, else the last page */
+    private Supplier<LoadedPage> page(long... ids) {
+        return () -> {
+            loads.incrementAndGet();
+            List<BookWithInventoryDto> books = LongStream.of(ids).mapToObj(id -> {
+                BookWithInventoryDto book = new BookWithInventoryDto();
+                book.setId(id);
+                return book;
+            }).toList();
+            if (ids.length <= 2) {
+                return new LoadedPage(new BookPageDto(books, null), null);
+            }
+            List<BookWithInventoryDto> shown = books.subList(0, 2);
+            return new LoadedPage(new BookPageDto(shown, shown.get(1).getId()), ids[2]);
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.CatalogFacetsDto;
+import com.ucd.bookshop.controllers.dto.FacetCountDto;
+import com.ucd.bookshop.event.BookChangedEvent;
+import com.ucd.bookshop.event.BookChangedEvent.ChangeType;
+import com.ucd.bookshop.event.InventoryChangedEvent;
+import com.ucd.bookshop.model.Book;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Incremental facet counts, driven by the same events the application publishes.
+ */
+class CatalogFacetsTest {
+
+    private final CatalogFacets facets = new CatalogFacets(null);
+
+    @Test
+    void testCountsFollowBookChanges() {
+        created(1L, "Ann Author", 1994, "9.99");
+        created(2L, "ann author", 1999, "15.00");
+        created(3L, "Bob Writer", 2005, "20.00");
+
+        CatalogFacetsDto counts = facets.getFacets();
+        assertThat(counts.getAuthors()).extracting(FacetCountDto::getValue, FacetCountDto::getCount)
+                .containsExactly(tuple("Ann Author", 2L), tuple("Bob Writer", 1L));
+        assertThat(counts.getDecades()).extracting(FacetCountDto::getValue, FacetCountDto::getFrom, FacetCountDto::getTo,
+                FacetCountDto::getCount).containsExactly(tuple("2000s", "2000", "2009", 1L), tuple("1990s", "1990", "1999", 2L));
+        assertThat(counts.getPriceBands()).extracting(FacetCountDto::getFrom, FacetCountDto::getTo, FacetCountDto::getCount)
+                .containsExactly(tuple(null, "9.99", 1L), tuple("10", "19.99", 1L), tuple("20", "49.99", 1L));
+
+        // Moves the book to its new author, decade and band
+        facets.onBookChanged(new BookChangedEvent(2L, ChangeType.UPDATED, book(2L, "Bob Writer", 2001, "60.00")));
+        facets.onBookChanged(new BookChangedEvent(1L, ChangeType.DELETED, null));
+
+        counts = facets.getFacets();
+        assertThat(counts.getAuthors()).extracting(FacetCountDto::getValue, FacetCountDto::getCount)
+                .containsExactly(tuple("Bob Writer", 2L));
+        assertThat(counts.getDecades()).extracting(FacetCountDto::getValue, FacetCountDto::getCount)
+                .containsExactly(tuple("2000s", 2L));
+        assertThat(counts.getPriceBands()).extracting(FacetCountDto::getValue, FacetCountDto::getCount)
+                .containsExactly(tuple("20 to 49.99", 1L), tuple("50 and over", 1L));
+    }
+
+    @Test
+    void testStockCountsFollowTheLedger() {
+        created(1L, "Ann Author", 1994, "9.99");
+        created(2L, "Bob Writer", 2005, "20.00");
+        facets.onInventoryChanged(new InventoryChangedEvent(1L, 3, null));
+
+        assertThat(facets.getFacets()).extracting(CatalogFacetsDto::getInStock, CatalogFacetsDto::getOutOfStock)
+                .containsExactly(1L, 1L);
+
+        // Holding the last copies takes the book out of stock, releasing them puts it back
+        facets.onInventoryChanged(new InventoryChangedEvent(1L, -3, 7));
+        assertThat(facets.getFacets().getInStock()).isZero();
+        facets.onInventoryChanged(new InventoryChangedEvent(1L, 1, 7));
+        assertThat(facets.getFacets().getInStock()).isEqualTo(1L);
+
+        // Copies survive an edit of the book
+        facets.onBookChanged(new BookChangedEvent(1L, ChangeType.UPDATED, book(1L, "Ann Author", 1995, "12.00")));
+        assertThat(facets.getFacets()).extracting(CatalogFacetsDto::getInStock, CatalogFacetsDto::getOutOfStock)
+                .containsExactly(1L, 1L);
+    }
+
+    @Test
+    void testCountsAreSharedUntilABookChanges() {
+        created(1L, "Ann Author", 1994, "9.99");
+
+        CatalogFacetsDto first = facets.getFacets();
+        facets.onInventoryChanged(new InventoryChangedEvent(1L, 2, null));
+        CatalogFacetsDto second = facets.getFacets();
+        created(2L, "Bob Writer", 2005, "20.00");
+        CatalogFacetsDto third = facets.getFacets();
+
+        assertThat(second.getAuthors()).isSameAs(first.getAuthors());
+        assertThat(second.getInStock()).isEqualTo(1L);
+        assertThat(third.getAuthors()).isNotSameAs(first.getAuthors()).hasSize(2);
+    }
+
+    private void created(Long id, String author, int year, String price) {
+        facets.onBookChanged(new BookChangedEvent(id, ChangeType.CREATED, book(id, author, year, price)));
+    }
+
+    private static Book book(Long id, String author, int year, String price) {
+        return new Book(id, "Title " + id, author, "isbn-" + id, new BigDecimal(price), LocalDate.of(year, 6, 1));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.exception.BookNotFoundException;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookStock;
+import com.ucd.bookshop.model.Customer;
+import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.model.ShoppingCartWithInventory;
+import com.ucd.bookshop.repository.BookStockRepository;
+import com.ucd.bookshop.repository.InventoryLedgerWriter;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static com.ucd.bookshop.TestFixtures.newCustomer;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The cart with write-behind in non-durable mode, the ledger writer's own pool sharing the test database so the
+ * holds are flushed to the database the cart is read from.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ CustomerCartService.class, BookInventoryService.class, BookStockService.class, InventoryStockEngine.class,
+        InventoryLedgerAppender.class, InventoryLedgerWriter.class, CatalogCache.class })
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:customer-cart;DB_CLOSE_DELAY=-1",
+        "bookshop.inventory.write-behind.enabled=true",
+        "bookshop.inventory.write-behind.durable=false",
+        // Long enough that the cart is read before the flusher gets to the hold
+        "bookshop.inventory.write-behind.interval=PT0.5S"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerCartServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CustomerCartService customerCartService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private BookStockRepository bookStockRepository;
+
+    @Test
+    void testAddViewRemoveWhileHoldsAreQueued() throws BookNotFoundException {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Customer customer = tx.execute(status -> newCustomer(entityManager, "writebehindcustomer"));
+        Book book = tx.execute(status -> {
+            Book saved = entityManager.persistAndFlush(newBook("Queued Hold"));
+            entityManager.persist(new Inventory(saved, 10, null));
+            entityManager.persist(new BookStock(saved.getId(), 10L));
+            return saved;
+        });
+
+        customerCartService.addBookToCart(customer.getId(), 1L, book.getId());
+
+        List<ShoppingCartWithInventory> cart = customerCartService.getCart(customer.getId());
+        assertThat(cart).extracting(ShoppingCartWithInventory::getBookId).containsExactly(book.getId());
+        assertThat(cart.get(0).getCopies()).isEqualTo(1L);
+
+        customerCartService.addBookToCart(customer.getId(), 1L, book.getId());
+
+        List<ShoppingCartWithInventory> afterRemove = customerCartService.removeBookFromCart(customer.getId(),
+                book.getId());
+        assertThat(afterRemove).isEmpty();
+
+        assertThat(customerCartService.getCart(customer.getId())).isEmpty();
+        assertThat(inventoryRepository.getTotalCopiesByBookId(book.getId())).isEqualTo(10L);
+        assertThat(bookStockRepository.findById(book.getId()).orElseThrow().getCopies()).isEqualTo(10L);
+    }
+}
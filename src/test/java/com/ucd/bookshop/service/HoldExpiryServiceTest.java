@@ -0,0 +1,119 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookStock;
+import com.ucd.bookshop.model.Customer;
+import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.model.ShoppingCart;
+import com.ucd.bookshop.repository.BookStockRepository;
+import com.ucd.bookshop.repository.InventoryLedgerWriter;
+import com.ucd.bookshop.repository.InventoryRepository;
+import com.ucd.bookshop.repository.ShoppingCartRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static com.ucd.bookshop.TestFixtures.newCustomer;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+@Import({ HoldExpiryService.class, BookInventoryService.class, BookStockService.class, InventoryStockEngine.class,
+        InventoryLedgerAppender.class, InventoryLedgerWriter.class, CatalogCache.class })
+class HoldExpiryServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private HoldExpiryService holdExpiryService;
+
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private BookStockRepository bookStockRepository;
+
+    @Test
+    void testExpireBatchReleasesOnlyExpiredHolds() {
+        Customer customer = newCustomer(entityManager, "holdcustomer");
+        Book expiredBook = entityManager.persistAndFlush(newBook("Expired Hold"));
+        Book freshBook = entityManager.persistAndFlush(newBook("Fresh Hold"));
+
+        ShoppingCart expired = hold(customer, expiredBook, 3, LocalDateTime.now().minusHours(3));
+        ShoppingCart fresh = hold(customer, freshBook, 2, LocalDateTime.now().minusMinutes(5));
+        entityManager.flush();
+        entityManager.clear();
+
+        int count = holdExpiryService.expireBatch(LocalDateTime.now().minusHours(2), 10);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(count).isEqualTo(1);
+        assertThat(shoppingCartRepository.findById(expired.getId()).orElseThrow().getAbandoned()).isTrue();
+        assertThat(shoppingCartRepository.findById(fresh.getId()).orElseThrow().getAbandoned()).isFalse();
+
+        assertThat(inventoryRepository.getHoldCopies(expiredBook.getId(), customer.getId(), expired.getCreatedDate())).isZero();
+        assertThat(inventoryRepository.getTotalCopiesByBookId(expiredBook.getId())).isEqualTo(10L);
+        assertThat(bookStockRepository.findById(expiredBook.getId()).orElseThrow().getCopies()).isEqualTo(10L);
+
+        assertThat(inventoryRepository.getHoldCopies(freshBook.getId(), customer.getId(), fresh.getCreatedDate())).isEqualTo(-2L);
+        assertThat(bookStockRepository.findById(freshBook.getId()).orElseThrow().getCopies()).isEqualTo(8L);
+    }
+
+    @Test
+    void testExpireBatchKeepsOldItemsOfARecentlyActiveCart() {
+        Customer customer = newCustomer(entityManager, "activecustomer");
+        Customer idle = newCustomer(entityManager, "idlecustomer");
+        Book oldItemBook = entityManager.persistAndFlush(newBook("Old Item"));
+        Book idleBook = entityManager.persistAndFlush(newBook("Idle Item"));
+        Book otherIdleBook = entityManager.persistAndFlush(newBook("Other Idle Item"));
+
+        ShoppingCart oldItem = hold(customer, oldItemBook, 1, LocalDateTime.now().minusHours(3));
+        hold(idle, idleBook, 2, LocalDateTime.now().minusHours(4));
+        hold(idle, otherIdleBook, 3, LocalDateTime.now().minusHours(5));
+        // e.g. the customer went to checkout
+        shoppingCartRepository.touchOpenCart(customer.getId(), LocalDateTime.now());
+        entityManager.flush();
+        entityManager.clear();
+
+        int count = holdExpiryService.expireBatch(LocalDateTime.now().minusHours(2), 10);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(count).isEqualTo(2);
+        assertThat(shoppingCartRepository.findById(oldItem.getId()).orElseThrow().getAbandoned()).isFalse();
+        assertThat(bookStockRepository.findById(oldItemBook.getId()).orElseThrow().getCopies()).isEqualTo(9L);
+        assertThat(bookStockRepository.findById(idleBook.getId()).orElseThrow().getCopies()).isEqualTo(10L);
+        assertThat(bookStockRepository.findById(otherIdleBook.getId()).orElseThrow().getCopies()).isEqualTo(10L);
+    }
+
+    @Test
+    void testExpireBatchWithNothingExpired() {
+        assertThat(holdExpiryService.expireBatch(LocalDateTime.now(), 10)).isZero();
+    }
+
+    private ShoppingCart hold(Customer customer, Book book, int copies, LocalDateTime createdDate) {
+        entityManager.persist(new Inventory(book, 10, null));
+        entityManager.persist(new Inventory(book, -copies, customer.getId()));
+        entityManager.persist(new BookStock(book.getId(), (long) (10 - copies)));
+
+        ShoppingCart cartItem = entityManager.persistAndFlush(new ShoppingCart(book, customer, false));
+        // created_date and last_activity_date are stamped on insert, backdate them afterwards
+        cartItem.setCreatedDate(createdDate);
+        cartItem.setLastActivityDate(createdDate);
+        return entityManager.persistAndFlush(cartItem);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.InventoryAdjustmentDto;
+import com.ucd.bookshop.controllers.dto.InventoryAdjustmentResultDto;
+import com.ucd.bookshop.controllers.dto.InventoryAdjustmentResultDto.Status;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookStock;
+import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.BookStockRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+@Import({ InventoryAdjustmentService.class, BookStockService.class })
+class InventoryAdjustmentServiceTest {
+
+    @Autowired
+    private InventoryAdjustmentService inventoryAdjustmentService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookStockRepository bookStockRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void testApplyAdjustmentsReportsEachLine() {
+        Book stocked = bookRepository.save(newBook("Stocked Book"));
+        Book unstocked = bookRepository.save(newBook("New Arrival"));
+        inventoryRepository.save(new Inventory(stocked, 4, null));
+        bookStockRepository.saveAndFlush(new BookStock(stocked.getId(), 4L));
+
+        List<InventoryAdjustmentResultDto> results = inventoryAdjustmentService.applyAdjustments(List.of(
+                new InventoryAdjustmentDto(stocked.getId(), 10L),
+                new InventoryAdjustmentDto(unstocked.getId(), 7L),
+                new InventoryAdjustmentDto(-1L, 5L),
+                new InventoryAdjustmentDto(stocked.getId(), 0L),
+                new InventoryAdjustmentDto(stocked.getId(), -3L)));
+
+        assertThat(results).extracting(InventoryAdjustmentResultDto::getStatus).containsExactly(
+                Status.APPLIED, Status.APPLIED, Status.BOOK_NOT_FOUND, Status.INVALID, Status.APPLIED);
+        assertThat(results).extracting(InventoryAdjustmentResultDto::getLine).containsExactly(0, 1, 2, 3, 4);
+
+        assertThat(inventoryRepository.findAllByBookId(stocked.getId())).hasSize(3);
+        assertThat(inventoryRepository.getTotalCopiesByBookId(stocked.getId())).isEqualTo(11L);
+        assertThat(inventoryRepository.getTotalCopiesByBookId(unstocked.getId())).isEqualTo(7L);
+
+        assertThat(bookRepository.findBookWithStockById(stocked.getId()).getCopies()).isEqualTo(11L);
+        assertThat(bookRepository.findBookWithStockById(unstocked.getId()).getCopies()).isEqualTo(7L);
+    }
+
+    @Test
+    void testApplyAdjustmentsRejectsLinesTheStockCannotTake() {
+        Book book = bookRepository.save(newBook("Short Supply"));
+        inventoryRepository.save(new Inventory(book, 2, null));
+        bookStockRepository.saveAndFlush(new BookStock(book.getId(), 2L));
+
+        List<InventoryAdjustmentResultDto> results = inventoryAdjustmentService.applyAdjustments(List.of(
+                new InventoryAdjustmentDto(book.getId(), -3L),
+                new InventoryAdjustmentDto(book.getId(), 1L),
+                new InventoryAdjustmentDto(book.getId(), -3L),
+                new InventoryAdjustmentDto(book.getId(), Integer.MAX_VALUE + 1L),
+                new InventoryAdjustmentDto(book.getId(), (long) Integer.MAX_VALUE),
+                // Net delta of the book past the int range
+                new InventoryAdjustmentDto(book.getId(), 3L)));
+
+        assertThat(results).extracting(InventoryAdjustmentResultDto::getStatus).containsExactly(
+                Status.INVALID, Status.APPLIED, Status.APPLIED, Status.INVALID, Status.APPLIED, Status.INVALID);
+        assertThat(results.get(0).getMessage()).isEqualTo("Only 2 copies in stock");
+        entityManager.clear();
+        assertThat(bookStockRepository.findById(book.getId()).orElseThrow().getCopies())
+                .isEqualTo((long) Integer.MAX_VALUE);
+        assertThat(inventoryRepository.getTotalCopiesByBookId(book.getId())).isEqualTo((long) Integer.MAX_VALUE);
+    }
+
+    @Test
+    void testApplyThousandsOfAdjustments() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            books.add(bookRepository.save(newBook("Restock " + i)));
+        }
+
+        List<InventoryAdjustmentDto> lines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            lines.add(new InventoryAdjustmentDto(books.get(i % books.size()).getId(), 1L));
+        }
+
+        List<InventoryAdjustmentResultDto> results = inventoryAdjustmentService.applyAdjustments(lines);
+
+        assertThat(results).allMatch(result -> result.getStatus() == Status.APPLIED);
+        assertThat(inventoryRepository.count()).isEqualTo(2000L);
+        assertThat(bookRepository.findBooksWithStockBefore(Long.MAX_VALUE, Limit.unlimited()))
+                .allMatch(bookInventory -> bookInventory.getCopies() == 100L);
+    }
+}
@@ -0,0 +1,74 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.controllers.dto.InventoryAsOfDto;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.InventoryCheckpointRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+@Import(InventoryCheckpointService.class)
+class InventoryCheckpointServiceTest {
+
+    private static final LocalDateTime DAY_1 = LocalDateTime.of(2025, 3, 1, 9, 0);
+    private static final LocalDateTime DAY_2 = DAY_1.plusDays(1);
+    private static final LocalDateTime DAY_3 = DAY_1.plusDays(2);
+
+    @Autowired
+    private InventoryCheckpointService inventoryCheckpointService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryCheckpointRepository inventoryCheckpointRepository;
+
+    @Test
+    void testCopiesAsOfCombineCheckpointAndLedger() throws Exception {
+        Book book = bookRepository.save(newBook("Reconciliation"));
+        Long bookId = book.getId();
+        inventoryRepository.insertCheckpoint(bookId, 10L, null, DAY_1);
+        inventoryRepository.insertCheckpoint(bookId, -3L, 7, DAY_2);
+        inventoryRepository.insertCheckpoint(bookId, 5L, null, DAY_3);
+
+        assertThat(inventoryCheckpointService.checkpointChunk(List.of(bookId), DAY_2.plusHours(1))).isEqualTo(1);
+        // Nothing new since the checkpoint
+        assertThat(inventoryCheckpointService.checkpointChunk(List.of(bookId), DAY_2.plusHours(2))).isZero();
+
+        InventoryAsOfDto beforeLedger = inventoryCheckpointService.getCopiesAsOf(bookId, DAY_1.minusHours(1));
+        InventoryAsOfDto beforeCheckpoint = inventoryCheckpointService.getCopiesAsOf(bookId, DAY_1.plusHours(1));
+        InventoryAsOfDto atCheckpoint = inventoryCheckpointService.getCopiesAsOf(bookId, DAY_2.plusHours(3));
+        InventoryAsOfDto afterCheckpoint = inventoryCheckpointService.getCopiesAsOf(bookId, DAY_3.plusHours(1));
+
+        assertThat(beforeLedger.getCopies()).isZero();
+        assertThat(beforeCheckpoint.getCopies()).isEqualTo(10L);
+        assertThat(beforeCheckpoint.getCheckpointAsOf()).isNull();
+        assertThat(atCheckpoint.getCopies()).isEqualTo(7L);
+        assertThat(atCheckpoint.getCheckpointAsOf()).isEqualTo(DAY_2.plusHours(1));
+        assertThat(afterCheckpoint.getCopies()).isEqualTo(12L);
+        assertThat(afterCheckpoint.isExact()).isTrue();
+
+        assertThat(inventoryCheckpointService.checkpointChunk(List.of(bookId), DAY_3.plusHours(1))).isEqualTo(1);
+        assertThat(inventoryCheckpointRepository.findLatestByBookIds(List.of(bookId)))
+                .singleElement()
+                .satisfies(checkpoint -> assertThat(checkpoint.getCopies()).isEqualTo(12L));
+    }
+}
@@ -0,0 +1,85 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+@Import(InventoryCompactionService.class)
+class InventoryCompactionServiceTest {
+
+    private static final LocalDateTime OLD = LocalDateTime.of(2020, 1, 1, 12, 0);
+
+    @Autowired
+    private InventoryCompactionService inventoryCompactionService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void testCompactChunkKeepsTotalsAndRecentRows() {
+        Book book = bookRepository.save(newBook("Compaction Guide"));
+
+        // Old stock movements and a released hold
+        saveInventory(book, 10, null, OLD);
+        saveInventory(book, -2, null, OLD.plusDays(1));
+        saveInventory(book, 4, null, OLD.plusDays(2));
+        saveInventory(book, -1, 7, OLD.plusDays(3));
+        saveInventory(book, 1, 7, OLD.plusDays(4));
+        // Recent, inside the horizon
+        saveInventory(book, -3, 7, LocalDateTime.now());
+
+        Long totalBefore = inventoryRepository.getTotalCopiesByBookId(book.getId());
+
+        long removed = inventoryCompactionService.compactChunk(List.of(book.getId()), LocalDateTime.now().minusDays(30));
+        entityManager.clear();
+
+        List<Inventory> rows = inventoryRepository.findAllByBookId(book.getId());
+
+        // 3 stock rows fold into 1 checkpoint, the released hold folds away, the recent hold is kept
+        assertThat(removed).isEqualTo(4);
+        assertThat(rows).hasSize(2);
+        assertThat(inventoryRepository.getTotalCopiesByBookId(book.getId())).isEqualTo(totalBefore).isEqualTo(9L);
+        assertThat(rows).anySatisfy(row -> {
+            assertThat(row.getCopies()).isEqualTo(12);
+            assertThat(row.getOnHoldForCustomerId()).isNull();
+            assertThat(row.getCreatedDate()).isEqualTo(OLD.plusDays(2));
+        });
+        assertThat(rows).anySatisfy(row -> {
+            assertThat(row.getCopies()).isEqualTo(-3);
+            assertThat(row.getOnHoldForCustomerId()).isEqualTo(7);
+        });
+    }
+
+    private void saveInventory(Book book, int copies, Integer customerId, LocalDateTime createdDate) {
+        Inventory inventory = inventoryRepository.saveAndFlush(new Inventory(book, copies, customerId));
+        entityManager.getEntityManager()
+                .createNativeQuery("update inventory set created_date = :createdDate where inventory_id = :id")
+                .setParameter("createdDate", createdDate)
+                .setParameter("id", inventory.getId())
+                .executeUpdate();
+    }
+}
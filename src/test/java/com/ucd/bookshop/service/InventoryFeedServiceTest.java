@@ -0,0 +1,45 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.event.InventoryChangedEvent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryFeedServiceTest {
+
+    private final InventoryFeedService inventoryFeedService = new InventoryFeedService(null, null);
+
+    @Test
+    void testBurstOnOneBookIsCoalesced() {
+        inventoryFeedService.onInventoryChanged(new InventoryChangedEvent(1L, -1, 7));
+        inventoryFeedService.onInventoryChanged(new InventoryChangedEvent(1L, -1, 8));
+        inventoryFeedService.onInventoryChanged(new InventoryChangedEvent(1L, 1, 7));
+        inventoryFeedService.onInventoryChanged(new InventoryChangedEvent(1L, -2, 9));
+        inventoryFeedService.onInventoryChanged(new InventoryChangedEvent(2L, 20, null));
+
+        assertThat(inventoryFeedService.drainPending()).isEqualTo(Map.of(1L, -3L, 2L, 20L));
+        // Nothing left for the next interval
+        assertThat(inventoryFeedService.drainPending()).isEmpty();
+    }
+
+    @Test
+    void testNetZeroChangeIsNotSent() {
+        inventoryFeedService.onInventoryChanged(new InventoryChangedEvent(1L, -1, 7));
+        inventoryFeedService.onInventoryChanged(new InventoryChangedEvent(1L, 1, 7));
+
+        assertThat(inventoryFeedService.drainPending()).isEmpty();
+    }
+
+    @Test
+    void testPublishWithoutSubscribersDropsChanges() {
+        inventoryFeedService.onInventoryChanged(new InventoryChangedEvent(1L, 5, null));
+
+        inventoryFeedService.publishPending();
+
+        assertThat(inventoryFeedService.subscriberCount()).isZero();
+        assertThat(inventoryFeedService.drainPending()).isEmpty();
+    }
+}
@@ -0,0 +1,158 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.Inventory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Group commit and crash-safety behaviour of the write-behind appender against a fake sink.
+ */
+class InventoryLedgerAppenderTest {
+
+    private static final Duration INTERVAL = Duration.ofMillis(5);
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final List<List<Inventory>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private InventoryLedgerAppender appender;
+
+    @AfterEach
+    void tearDown() {
+        if (appender != null) {
+            appender.stop();
+        }
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    void testConcurrentAppendsAreGroupedIntoBatches() throws Exception {
+        appender = new InventoryLedgerAppender(batches::add, true, true, 10000, 100, INTERVAL, TIMEOUT);
+        appender.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    appender.append(newRow(1)).get(5, TimeUnit.SECONDS);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(2000);
+        assertThat(batches).allMatch(batch -> batch.size() <= 100);
+        // Waiting writers share commits
+        assertThat(batches.size()).isLessThan(2000);
+    }
+
+    @Test
+    void testFailedGroupIsRetriedNotLost() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        appender = new InventoryLedgerAppender(rows -> {
+            if (attempts.getAndIncrement() == 0) {
+                throw new IllegalStateException("database unavailable");
+            }
+            batches.add(rows);
+        }, true, true, 10000, 100, INTERVAL, TIMEOUT);
+        appender.start();
+
+        List<CompletableFuture<Void>> flushed = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            flushed.add(appender.append(newRow(1)));
+        }
+        CompletableFuture.allOf(flushed.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertThat(attempts.get()).isGreaterThan(1);
+        assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(10);
+    }
+
+    @Test
+    void testStopDrainsQueuedRows() {
+        appender = new InventoryLedgerAppender(rows -> {
+            sleep(20);
+            batches.add(rows);
+        }, true, false, 10000, 10, INTERVAL, TIMEOUT);
+        appender.start();
+
+        List<CompletableFuture<Void>> flushed = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            flushed.add(appender.append(newRow(1)));
+        }
+        appender.stop();
+
+        assertThat(appender.pendingCount()).isZero();
+        assertThat(flushed).allMatch(future -> future.isDone() && !future.isCompletedExceptionally());
+        assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(50);
+    }
+
+    @Test
+    void testUnwritableRowsFailOnStop() {
+        appender = new InventoryLedgerAppender(rows -> {
+            throw new IllegalStateException("database unavailable");
+        }, true, false, 10000, 10, INTERVAL, TIMEOUT);
+        appender.start();
+
+        CompletableFuture<Void> flushed = appender.append(newRow(1));
+        appender.stop();
+
+        assertThat(flushed).isCompletedExceptionally();
+    }
+
+    @Test
+    void testRowIsOnlyQueuedWhenTransactionCommits() {
+        appender = new InventoryLedgerAppender(batches::add, true, true, 10000, 100, INTERVAL, TIMEOUT);
+        appender.start();
+
+        TransactionSynchronizationManager.initSynchronization();
+        appender.appendAfterCommit(newRow(-1));
+        List<TransactionSynchronization> rolledBack = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        rolledBack.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        TransactionSynchronizationManager.initSynchronization();
+        appender.appendAfterCommit(newRow(-2));
+        List<TransactionSynchronization> committed = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        // Durable, returns once the row has been flushed
+        committed.forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(batches).flatMap(batch -> batch).singleElement()
+                .satisfies(row -> assertThat(row.getCopies()).isEqualTo(-2));
+    }
+
+    private static Inventory newRow(int copies) {
+        Book book = new Book();
+        book.setId(1L);
+        return new Inventory(book, copies, 7);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.model.InventoryPartition;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryPartitionManagerTest {
+
+    private static final InventoryPartition FUTURE = new InventoryPartition("p_future", null);
+
+    @Test
+    void testPlanNewPartitionsOnFreshTable() {
+        List<InventoryPartition> planned = InventoryPartitionManager.planNewPartitions(List.of(FUTURE),
+                YearMonth.of(2025, 11), 2);
+
+        assertThat(planned).extracting(InventoryPartition::getName).containsExactly("p202511", "p202512", "p202601");
+        assertThat(planned).extracting(InventoryPartition::getLessThan).containsExactly(
+                LocalDateTime.of(2025, 12, 1, 0, 0),
+                LocalDateTime.of(2026, 1, 1, 0, 0),
+                LocalDateTime.of(2026, 2, 1, 0, 0));
+    }
+
+    @Test
+    void testPlanNewPartitionsOnlyAfterLastBound() {
+        List<InventoryPartition> existing = List.of(
+                month("p202510", 2025, 11),
+                month("p202511", 2025, 12),
+                FUTURE);
+
+        List<InventoryPartition> planned = InventoryPartitionManager.planNewPartitions(existing, YearMonth.of(2025, 11), 2);
+
+        assertThat(planned).extracting(InventoryPartition::getName).containsExactly("p202512", "p202601");
+        assertThat(InventoryPartitionManager.planNewPartitions(existing, YearMonth.of(2025, 10), 1)).isEmpty();
+    }
+
+    @Test
+    void testPlanDroppedPartitionsKeepsRetainedMonths() {
+        List<InventoryPartition> existing = List.of(
+                month("p202506", 2025, 7),
+                month("p202507", 2025, 8),
+                month("p202508", 2025, 9),
+                month("p202509", 2025, 10),
+                FUTURE);
+
+        LocalDateTime retainedFrom = InventoryPartitionManager.retainedFrom(YearMonth.of(2025, 10), 2);
+
+        assertThat(retainedFrom).isEqualTo(LocalDateTime.of(2025, 8, 1, 0, 0));
+        assertThat(InventoryPartitionManager.planDroppedPartitions(existing, retainedFrom))
+                .extracting(InventoryPartition::getName).containsExactly("p202506", "p202507");
+    }
+
+    private static InventoryPartition month(String name, int nextYear, int nextMonth) {
+        return new InventoryPartition(name, LocalDateTime.of(nextYear, nextMonth, 1, 0, 0));
+    }
+}
@@ -0,0 +1,105 @@
+package com.ucd.bookshop.service;
+
+import com.ucd.bookshop.exception.OutOfStockException;
+import com.ucd.bookshop.model.Book;
+import com.ucd.bookshop.model.BookStock;
+import com.ucd.bookshop.model.Inventory;
+import com.ucd.bookshop.repository.BookRepository;
+import com.ucd.bookshop.repository.BookStockRepository;
+import com.ucd.bookshop.repository.InventoryLedgerWriter;
+import com.ucd.bookshop.repository.InventoryRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ucd.bookshop.TestFixtures.newBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many customers racing to hold the last copies of one popular book.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@ActiveProfiles("test")
+@Import({ BookInventoryService.class, BookStockService.class, InventoryStockEngine.class,
+        InventoryLedgerAppender.class, InventoryLedgerWriter.class, CatalogCache.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationConcurrencyTest {
+
+    private static final int COPIES = 50;
+    private static final int CUSTOMERS = 300;
+
+    @Autowired
+    private BookInventoryService bookInventoryService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookStockRepository bookStockRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @AfterEach
+    void tearDown() {
+        inventoryRepository.deleteAllInBatch();
+        bookStockRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testConcurrentHoldsNeverOversell() throws Exception {
+        Book book = bookRepository.save(newBook("Very Popular Book"));
+        inventoryRepository.save(new Inventory(book, COPIES, null));
+        bookStockRepository.save(new BookStock(book.getId(), (long) COPIES));
+
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CUSTOMERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int customerId = 1; customerId <= CUSTOMERS; customerId++) {
+            int customer = customerId;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    bookInventoryService.updateBookInventoryForCustomer(book, 1, customer);
+                    reserved.incrementAndGet();
+                } catch (OutOfStockException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(reserved.get()).isEqualTo(COPIES);
+        assertThat(rejected.get()).isEqualTo(CUSTOMERS - COPIES);
+        assertThat(bookStockRepository.findById(book.getId()).orElseThrow().getCopies()).isZero();
+        assertThat(inventoryRepository.getTotalCopiesByBookId(book.getId())).isZero();
+        assertThat(inventoryRepository.findAllByBookId(book.getId())).hasSize(COPIES + 1);
+    }
+}